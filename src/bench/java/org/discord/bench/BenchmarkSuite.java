@@ -0,0 +1,79 @@
+package org.discord.bench;
+
+import com.google.gson.GsonBuilder;
+import org.discord.handlers.DatabaseManager;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Generates a throwaway database, checks the query plans, then runs {@link DatabaseBenchmarks} against it along
+ * with the in-memory {@link EloMathBenchmarks}.
+ * <p>
+ * Configured with system properties: {@code bench.players}, {@code bench.matches}, {@code bench.dir} (where the
+ * database and results go) and optionally {@code bench.include}, a regex selecting benchmark methods. Results are
+ * written as JMH JSON to {@code results.json} and the checked plans to {@code plans.json}, both stable enough to
+ * diff between releases. Exits non-zero if a plan check fails.
+ */
+public final class BenchmarkSuite {
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkSuite.class);
+    private static final long SEED = 20240101L;
+
+    private BenchmarkSuite() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        int players = Integer.getInteger("bench.players", 100_000);
+        int matches = Integer.getInteger("bench.matches", 1_000_000);
+        Path dir = Paths.get(System.getProperty("bench.dir", "target/bench")).toAbsolutePath();
+        String include = System.getProperty("bench.include", ".*");
+
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve("benchDB.mv.db"));
+        Files.deleteIfExists(dir.resolve("benchDB.trace.db"));
+        String url = "jdbc:h2:" + dir.resolve("benchDB");
+
+        DatabaseManager database = new DatabaseManager(url, 1, 4);
+        try {
+            database.initialize();
+            new SyntheticDataset(players, matches).generate(database, SEED);
+            Map<String, String> plans = QueryPlans.verify(database);
+            Files.writeString(dir.resolve("plans.json"), new GsonBuilder().setPrettyPrinting().create().toJson(plans), StandardCharsets.UTF_8);
+            logger.info("Query plans use the expected indexes.");
+        } catch (IllegalStateException e) {
+            logger.error("Benchmark setup failed", e);
+            System.exit(1);
+        } finally {
+            database.shutdown();
+        }
+
+        Options options = new OptionsBuilder()
+                .include(DatabaseBenchmarks.class.getName() + "\\." + include)
+                .include(EloMathBenchmarks.class.getName() + "\\." + include)
+                .param("players", String.valueOf(players))
+                .param("matches", String.valueOf(matches))
+                .jvmArgsAppend("-D" + DatabaseBenchmarks.DATABASE_URL_PROPERTY + "=" + url)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .resultFormat(ResultFormatType.JSON)
+                .result(dir.resolve("results.json").toString())
+                .build();
+        new Runner(options).run();
+        logger.info("Benchmark results written to {}", dir.resolve("results.json"));
+    }
+}
@@ -0,0 +1,142 @@
+package org.discord.bench;
+
+import org.discord.handlers.DatabaseManager;
+import org.discord.handlers.storage.PlayerElo;
+import org.discord.handlers.storage.PlayerSet;
+import org.discord.handlers.storage.TournamentChanges;
+import org.discord.handlers.storage.TournamentMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-statement latency of {@link DatabaseManager} against the dataset {@link BenchmarkSuite} generated.
+ * <p>
+ * Writes change the dataset as they run: updates rewrite existing rows in place, inserts add players and matches
+ * above the generated id ranges. Reads pick uniformly random existing rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DatabaseBenchmarks {
+    static final String DATABASE_URL_PROPERTY = "bench.db";
+    private static final int LEADERBOARD_SIZE = 5;
+    private static final int PLAYER_SETS_LIMIT = 10;
+    private static final int MIRROR_BATCH_SIZE = 16;
+
+    /**
+     * Recorded with the results; set by {@link BenchmarkSuite} to the generated dataset's size.
+     */
+    @Param("0")
+    public int players;
+
+    @Param("0")
+    public int matches;
+
+    private DatabaseManager database;
+    private SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void open() {
+        String url = System.getProperty(DATABASE_URL_PROPERTY);
+        if (url == null) {
+            throw new IllegalStateException("Run through BenchmarkSuite, which generates the database and sets " + DATABASE_URL_PROPERTY);
+        }
+        database = new DatabaseManager(url, 4, 8);
+        database.initialize();
+        dataset = new SyntheticDataset(players, matches);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        database.shutdown();
+    }
+
+    /**
+     * Per-thread random source and id counters, so concurrent runs never insert the same new id.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        SplittableRandom random;
+        long nextPlayerId;
+        long nextMatchId;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            int thread = threadParams.getThreadIndex();
+            random = new SplittableRandom(42 + thread);
+            nextPlayerId = SyntheticDataset.FIRST_PLAYER_ID + 500_000_000_000L + thread * 1_000_000_000L;
+            nextMatchId = 2_000_000_000_000L + thread * 1_000_000_000L;
+        }
+    }
+
+    private String randomPlayer(Cursor cursor) {
+        return String.valueOf(SyntheticDataset.playerId(cursor.random.nextInt(dataset.players)));
+    }
+
+    @Benchmark
+    public List<PlayerElo> getTopPlayers() {
+        return database.getTopPlayers(LEADERBOARD_SIZE);
+    }
+
+    @Benchmark
+    public int getEloRating(Cursor cursor) {
+        return database.getEloRating(randomPlayer(cursor));
+    }
+
+    @Benchmark
+    public void updateEloRating(Cursor cursor) {
+        database.updateEloRating(randomPlayer(cursor), 800 + cursor.random.nextInt(400));
+    }
+
+    @Benchmark
+    public void insertEloRating(Cursor cursor) {
+        database.insertEloRating(String.valueOf(cursor.nextPlayerId++), 1000);
+    }
+
+    @Benchmark
+    public void createTournamentMatch(Cursor cursor) {
+        String tournamentId = String.valueOf(SyntheticDataset.tournamentId(cursor.random.nextInt(dataset.tournaments)));
+        database.createTournamentMatch(String.valueOf(cursor.nextMatchId++), tournamentId, randomPlayer(cursor), randomPlayer(cursor), "OPEN");
+    }
+
+    @Benchmark
+    public void updateTournamentMatchResult(Cursor cursor) {
+        String matchId = String.valueOf(SyntheticDataset.matchId(cursor.random.nextInt(dataset.matches)));
+        database.updateTournamentMatchResult(matchId, randomPlayer(cursor), "3-1");
+    }
+
+    /**
+     * One tournament mirror flush: a poll's worth of match upserts in a single transaction.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean saveTournamentChanges(Cursor cursor) {
+        String tournamentId = String.valueOf(SyntheticDataset.tournamentId(cursor.random.nextInt(dataset.tournaments)));
+        List<TournamentMatch> batch = new ArrayList<>(MIRROR_BATCH_SIZE);
+        for (int i = 0; i < MIRROR_BATCH_SIZE; i++) {
+            String player1 = randomPlayer(cursor);
+            batch.add(new TournamentMatch(String.valueOf(cursor.nextMatchId++), tournamentId, player1, randomPlayer(cursor),
+                    player1, "3-2", "COMPLETED"));
+        }
+        return database.saveTournamentChanges(new TournamentChanges(List.of(), List.of(), batch));
+    }
+
+    @Benchmark
+    public List<PlayerSet> getPlayerSets(Cursor cursor) {
+        return database.getPlayerSets(randomPlayer(cursor), PLAYER_SETS_LIMIT);
+    }
+}
@@ -0,0 +1,62 @@
+package org.discord.bench;
+
+import org.discord.handlers.rating.EloMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-result Elo update cost: the {@link Math#pow} formula {@code EloManager} used to evaluate against the
+ * table-driven {@link EloMath}, over the same pairs of ladder-shaped ratings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EloMathBenchmarks {
+    private static final int PAIRS = 4096;
+    private static final int K_FACTOR = 32;
+    private static final int MIN_ELO = 100;
+
+    private final int[] winners = new int[PAIRS];
+    private final int[] losers = new int[PAIRS];
+    private final int[] updated = new int[2 * PAIRS];
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < PAIRS; i++) {
+            winners[i] = 1000 + (int) Math.round((random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5) * 280);
+            losers[i] = 1000 + (int) Math.round((random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5) * 280);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int[] updatePow() {
+        for (int i = 0; i < PAIRS; i++) {
+            double expectedScoreWinner = 1.0 / (1.0 + Math.pow(10, (losers[i] - winners[i]) / 400.0));
+            double expectedScoreLoser = 1.0 - expectedScoreWinner;
+            updated[2 * i] = Math.max((int) Math.round(winners[i] + K_FACTOR * (1 - expectedScoreWinner)), MIN_ELO);
+            updated[2 * i + 1] = Math.max((int) Math.round(losers[i] + K_FACTOR * (0 - expectedScoreLoser)), MIN_ELO);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int[] updateTable() {
+        for (int i = 0; i < PAIRS; i++) {
+            EloMath.update(winners[i], losers[i], K_FACTOR, K_FACTOR, MIN_ELO, updated, 2 * i);
+        }
+        return updated;
+    }
+}
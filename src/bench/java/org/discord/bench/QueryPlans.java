@@ -0,0 +1,103 @@
+package org.discord.bench;
+
+import org.discord.handlers.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks with {@code EXPLAIN} that the benchmarked statements still use their indexes, so a dropped or unused
+ * index fails the suite instead of only showing up as a slower number.
+ * <p>
+ * The statements are copies of the ones in {@link DatabaseManager}; keep them in step when those change.
+ */
+public final class QueryPlans {
+    private static final long SAMPLE_PLAYER = SyntheticDataset.playerId(0);
+
+    private static final class Check {
+        final String name;
+        final String sql;
+        final Object[] parameters;
+        final String[] requiredIndexes;
+
+        Check(String name, String sql, Object[] parameters, String... requiredIndexes) {
+            this.name = name;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.requiredIndexes = requiredIndexes;
+        }
+    }
+
+    private static final List<Check> CHECKS = List.of(
+            new Check("getTopPlayers", "SELECT player_id, elo FROM elo_ratings ORDER BY elo DESC LIMIT ?",
+                    new Object[]{5}, "IDX_ELO_RATINGS_ELO"),
+            new Check("getEloRating", "SELECT elo FROM elo_ratings WHERE player_id = ?",
+                    new Object[]{SAMPLE_PLAYER}, "PRIMARY_KEY"),
+            new Check("updateEloRating", "UPDATE elo_ratings SET elo = ?, version = version + 1 WHERE player_id = ?",
+                    new Object[]{1000, SAMPLE_PLAYER}, "PRIMARY_KEY"),
+            new Check("updateTournamentMatchResult", "UPDATE tournament_matches SET winner_id = ?, score = ?, status = 'COMPLETED' WHERE id = ?",
+                    new Object[]{SAMPLE_PLAYER, "3-0", 1L}, "PRIMARY_KEY"),
+            new Check("getPlayerSets", "SELECT m.id, m.tournament_id, t.name, m.player1_id, m.player2_id, m.winner_id, m.score, m.status FROM ("
+                    + "SELECT * FROM tournament_matches WHERE player1_id = ? "
+                    + "UNION ALL SELECT * FROM tournament_matches WHERE player2_id = ? AND player1_id <> ?"
+                    + ") m JOIN tournaments t ON t.id = m.tournament_id "
+                    + "ORDER BY m.tournament_id DESC, m.id DESC LIMIT ?",
+                    new Object[]{SAMPLE_PLAYER, SAMPLE_PLAYER, SAMPLE_PLAYER, 10}, "IDX_MATCHES_PLAYER1", "IDX_MATCHES_PLAYER2")
+    );
+
+    private QueryPlans() {
+    }
+
+    /**
+     * @return each checked statement's plan, by benchmark name
+     * @throws IllegalStateException if a statement scans a table or misses an index it should use
+     */
+    public static Map<String, String> verify(DatabaseManager database) {
+        Map<String, String> plans = new LinkedHashMap<>();
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = database.getConnection()) {
+            for (Check check : CHECKS) {
+                String plan = explain(conn, check);
+                plans.put(check.name, plan);
+                String upperPlan = plan.toUpperCase();
+                if (upperPlan.contains("TABLESCAN")) {
+                    failures.add(check.name + " scans a table");
+                }
+                for (String index : check.requiredIndexes) {
+                    if (!upperPlan.contains(index)) {
+                        failures.add(check.name + " does not use " + index);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Explaining the benchmarked queries failed", e);
+        }
+        if (!failures.isEmpty()) {
+            StringBuilder message = new StringBuilder("Query plan regression: ").append(String.join("; ", failures));
+            plans.forEach((name, plan) -> message.append("\n--- ").append(name).append(" ---\n").append(plan));
+            throw new IllegalStateException(message.toString());
+        }
+        return plans;
+    }
+
+    private static String explain(Connection conn, Check check) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + check.sql)) {
+            for (int i = 0; i < check.parameters.length; i++) {
+                pstmt.setObject(i + 1, check.parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
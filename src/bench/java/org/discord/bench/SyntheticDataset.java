@@ -0,0 +1,149 @@
+package org.discord.bench;
+
+import org.discord.handlers.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a freshly migrated database with a reproducible ladder: ratings, and bracket-shaped tournaments of
+ * {@link #PLAYERS_PER_TOURNAMENT} entrants with one set per bracket slot.
+ * <p>
+ * Player ids are snowflake-sized and contiguous from {@link #FIRST_PLAYER_ID}, so benchmarks can pick existing
+ * players, tournaments and matches by index without reading them back.
+ */
+public final class SyntheticDataset {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataset.class);
+    public static final long FIRST_PLAYER_ID = 100_000_000_000_000_000L;
+    public static final long FIRST_TOURNAMENT_ID = 1_000_000L;
+    public static final int PLAYERS_PER_TOURNAMENT = 64;
+    public static final int MATCHES_PER_TOURNAMENT = PLAYERS_PER_TOURNAMENT - 1;
+    private static final int BATCH_SIZE = 10_000;
+    private static final String[] SCORES = {"3-0", "3-1", "3-2", "0-3", "1-3", "2-3"};
+
+    public final int players;
+    public final int matches;
+    public final int tournaments;
+
+    public SyntheticDataset(int players, int matches) {
+        if (players < PLAYERS_PER_TOURNAMENT) {
+            throw new IllegalArgumentException("Need at least " + PLAYERS_PER_TOURNAMENT + " players");
+        }
+        this.players = players;
+        this.matches = matches;
+        this.tournaments = Math.max(1, (matches + MATCHES_PER_TOURNAMENT - 1) / MATCHES_PER_TOURNAMENT);
+    }
+
+    public static long playerId(int index) {
+        return FIRST_PLAYER_ID + index;
+    }
+
+    public static long tournamentId(int index) {
+        return FIRST_TOURNAMENT_ID + index;
+    }
+
+    /**
+     * Match ids run from 1 to {@link #matches}.
+     */
+    public static long matchId(int index) {
+        return index + 1L;
+    }
+
+    public void generate(DatabaseManager database, long seed) {
+        long start = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Connection conn = database.getConnection()) {
+            // Committed batch by batch; a failed run leaves a partial throwaway database, which is regenerated anyway
+            conn.setAutoCommit(false);
+            try {
+                insertRatings(conn, random);
+                insertTournaments(conn, random);
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Generating the synthetic dataset failed", e);
+        }
+        logger.info("Generated {} players, {} tournaments and {} matches in {} ms.", players, tournaments, matches,
+                System.currentTimeMillis() - start);
+    }
+
+    private void insertRatings(Connection conn, SplittableRandom random) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO elo_ratings (player_id, elo) VALUES (?, ?)")) {
+            for (int i = 0; i < players; i++) {
+                // Roughly normal around the starting rating, like a settled ladder
+                int elo = 1000 + (int) Math.round((random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5) * 280);
+                pstmt.setLong(1, playerId(i));
+                pstmt.setInt(2, Math.max(100, elo));
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Each tournament draws a contiguous run of players starting at a random offset, so the entrants are distinct
+     * and every player ends up in roughly the same number of tournaments.
+     */
+    private void insertTournaments(Connection conn, SplittableRandom random) throws SQLException {
+        try (PreparedStatement tournamentStmt = conn.prepareStatement("INSERT INTO tournaments (id, name, status) VALUES (?, ?, ?)");
+             PreparedStatement participantStmt = conn.prepareStatement("INSERT INTO tournament_participants (tournament_id, player_id) VALUES (?, ?)");
+             PreparedStatement matchStmt = conn.prepareStatement("INSERT INTO tournament_matches "
+                     + "(id, tournament_id, player1_id, player2_id, winner_id, score, status) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            int matchIndex = 0;
+            for (int t = 0; t < tournaments; t++) {
+                long tournamentId = tournamentId(t);
+                tournamentStmt.setLong(1, tournamentId);
+                tournamentStmt.setString(2, "Synthetic #" + (t + 1));
+                tournamentStmt.setString(3, "COMPLETED");
+                tournamentStmt.addBatch();
+
+                int firstEntrant = random.nextInt(players);
+                for (int p = 0; p < PLAYERS_PER_TOURNAMENT; p++) {
+                    participantStmt.setLong(1, tournamentId);
+                    participantStmt.setLong(2, playerId((firstEntrant + p) % players));
+                    participantStmt.addBatch();
+                }
+
+                for (int m = 0; m < MATCHES_PER_TOURNAMENT && matchIndex < matches; m++, matchIndex++) {
+                    int slot1 = random.nextInt(PLAYERS_PER_TOURNAMENT);
+                    int slot2 = (slot1 + 1 + random.nextInt(PLAYERS_PER_TOURNAMENT - 1)) % PLAYERS_PER_TOURNAMENT;
+                    long player1 = playerId((firstEntrant + slot1) % players);
+                    long player2 = playerId((firstEntrant + slot2) % players);
+                    String score = SCORES[random.nextInt(SCORES.length)];
+                    matchStmt.setLong(1, matchId(matchIndex));
+                    matchStmt.setLong(2, tournamentId);
+                    matchStmt.setLong(3, player1);
+                    matchStmt.setLong(4, player2);
+                    matchStmt.setLong(5, score.startsWith("3") ? player1 : player2);
+                    matchStmt.setString(6, score);
+                    matchStmt.setString(7, "COMPLETED");
+                    matchStmt.addBatch();
+                }
+
+                if ((t + 1) % 100 == 0) {
+                    tournamentStmt.executeBatch();
+                    participantStmt.executeBatch();
+                    matchStmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            tournamentStmt.executeBatch();
+            participantStmt.executeBatch();
+            matchStmt.executeBatch();
+        }
+    }
+}
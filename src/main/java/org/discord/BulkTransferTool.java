@@ -0,0 +1,61 @@
+package org.discord;
+
+import org.discord.handlers.BulkTransfer;
+import org.discord.handlers.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * Command-line import and export of ratings and tournament history. Run it while the bot is stopped, since the
+ * bot keeps ratings in memory and holds the database file open.
+ * <pre>
+ * BulkTransferTool export elo_ratings ratings.csv
+ * BulkTransferTool import elo_ratings ratings.jsonl --batch-size=5000 --db=jdbc:h2:./data/eloDB
+ * </pre>
+ */
+public class BulkTransferTool {
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransferTool.class);
+    private static final String DEFAULT_DB_URL = "jdbc:h2:./data/eloDB";
+
+    public static void main(String[] args) {
+        if (args.length < 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("Usage: BulkTransferTool (import|export) <table> <file.csv|file.jsonl> [--batch-size=N] [--db=URL]");
+            System.err.println("Tables: " + String.join(", ", BulkTransfer.getTableNames()));
+            System.exit(2);
+        }
+
+        int batchSize = BulkTransfer.DEFAULT_BATCH_SIZE;
+        String dbUrl = DEFAULT_DB_URL;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].startsWith("--batch-size=")) {
+                batchSize = Integer.parseInt(args[i].substring("--batch-size=".length()));
+            } else if (args[i].startsWith("--db=")) {
+                dbUrl = args[i].substring("--db=".length());
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        DatabaseManager databaseManager = new DatabaseManager(dbUrl, 1, 1);
+        int exitCode = 0;
+        try {
+            databaseManager.initialize();
+            BulkTransfer transfer = new BulkTransfer(databaseManager, batchSize);
+            long rows = args[0].equals("import")
+                    ? transfer.importTable(args[1], Paths.get(args[2]))
+                    : transfer.exportTable(args[1], Paths.get(args[2]));
+            System.out.println((args[0].equals("import") ? "Imported " : "Exported ") + rows + " row(s).");
+        } catch (IOException | SQLException | RuntimeException e) {
+            logger.error("Bulk " + args[0] + " of " + args[1] + " failed", e);
+            exitCode = 1;
+        } finally {
+            databaseManager.shutdown();
+        }
+        System.exit(exitCode);
+    }
+}
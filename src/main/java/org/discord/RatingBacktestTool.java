@@ -0,0 +1,125 @@
+package org.discord;
+
+import org.discord.handlers.DatabaseManager;
+import org.discord.handlers.rating.Backtester;
+import org.discord.handlers.rating.EloRatingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Replays the recorded match history under every combination of the given rating settings and prints how well
+ * each predicted the results, best first. Stored ratings are left untouched; run it against a copy or while the
+ * bot is stopped, since the bot holds the database file open.
+ * <p>
+ * A K schedule is a constant K, {@code tiered} for the tournament schedule, or thresholds such as
+ * {@code 40<1200/32<2000/16}: K = 40 below 1200, 32 below 2000, 16 above.
+ * <pre>
+ * RatingBacktestTool --k=16,24,32,40,tiered --min-elo=0,100 --initial-elo=1000,1200 --db=jdbc:h2:./backup/eloDB
+ * </pre>
+ */
+public class RatingBacktestTool {
+    private static final Logger logger = LoggerFactory.getLogger(RatingBacktestTool.class);
+    private static final String DEFAULT_DB_URL = "jdbc:h2:./data/eloDB";
+    private static final int FETCH_SIZE = 10_000;
+
+    public static void main(String[] args) {
+        String dbUrl = DEFAULT_DB_URL;
+        String[] kSchedules = {"32", "tiered"};
+        String[] minElos = {"100"};
+        String[] initialElos = {"1000"};
+        for (String arg : args) {
+            if (arg.startsWith("--db=")) {
+                dbUrl = arg.substring("--db=".length());
+            } else if (arg.startsWith("--k=")) {
+                kSchedules = arg.substring("--k=".length()).split(",");
+            } else if (arg.startsWith("--min-elo=")) {
+                minElos = arg.substring("--min-elo=".length()).split(",");
+            } else if (arg.startsWith("--initial-elo=")) {
+                initialElos = arg.substring("--initial-elo=".length()).split(",");
+            } else {
+                System.err.println("Usage: RatingBacktestTool [--k=K|tiered|K<ELO/.../K,...] [--min-elo=N,...] [--initial-elo=N,...] [--db=URL]");
+                System.exit(2);
+            }
+        }
+
+        List<Backtester.Configuration> configurations = new ArrayList<>();
+        try {
+            for (String kSchedule : kSchedules) {
+                IntUnaryOperator kFactor = parseKSchedule(kSchedule.trim());
+                for (String minElo : minElos) {
+                    for (String initialElo : initialElos) {
+                        configurations.add(new Backtester.Configuration(kSchedule.trim(), kFactor,
+                                Integer.parseInt(minElo.trim()), Integer.parseInt(initialElo.trim())));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid setting: " + e.getMessage());
+            System.exit(2);
+        }
+
+        DatabaseManager databaseManager = new DatabaseManager(dbUrl, 1, 1);
+        int exitCode = 0;
+        try {
+            databaseManager.initialize();
+            long start = System.currentTimeMillis();
+            Backtester.MatchHistory history;
+            try (Connection conn = databaseManager.getConnection()) {
+                history = Backtester.loadHistory(conn, FETCH_SIZE);
+            }
+            logger.info("Loaded {} match(es) between {} player(s) in {} ms.", history.matches, history.players, System.currentTimeMillis() - start);
+
+            start = System.currentTimeMillis();
+            List<Backtester.Score> scores = Backtester.sweep(history, configurations);
+            System.out.printf("%-24s %8s %8s %10s %9s %8s%n", "K schedule", "min ELO", "initial", "log-loss", "accuracy", "ms");
+            for (Backtester.Score score : scores) {
+                System.out.printf("%-24s %8d %8d %10.5f %8.2f%% %8d%n", score.configuration.kSchedule, score.configuration.minElo,
+                        score.configuration.initialElo, score.logLoss, 100 * score.accuracy, score.durationMillis);
+            }
+            System.out.println("Replayed " + configurations.size() + " configuration(s) over " + history.matches + " match(es) in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Rating backtest failed", e);
+            exitCode = 1;
+        } finally {
+            databaseManager.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * @throws NumberFormatException if the schedule is not a K, {@code tiered} or a threshold list
+     */
+    private static IntUnaryOperator parseKSchedule(String schedule) {
+        if (schedule.equals("tiered")) {
+            return EloRatingEngine.TIERED_K;
+        }
+        String[] tiers = schedule.split("/");
+        int[] kFactors = new int[tiers.length];
+        int[] below = new int[tiers.length - 1];
+        for (int i = 0; i < tiers.length; i++) {
+            String[] parts = tiers[i].split("<");
+            if (parts.length != (i < below.length ? 2 : 1)) {
+                throw new NumberFormatException("K schedule " + schedule);
+            }
+            kFactors[i] = Integer.parseInt(parts[0].trim());
+            if (i < below.length) {
+                below[i] = Integer.parseInt(parts[1].trim());
+            }
+        }
+        return elo -> {
+            for (int i = 0; i < below.length; i++) {
+                if (elo < below[i]) {
+                    return kFactors[i];
+                }
+            }
+            return kFactors[kFactors.length - 1];
+        };
+    }
+}
@@ -7,35 +7,61 @@ import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.internal.utils.JDALogger;
 import org.discord.handlers.*;
+import org.discord.handlers.rating.EloRatingEngine;
+import org.discord.handlers.rating.Glicko2RatingEngine;
+import org.discord.handlers.rating.RatingEngine;
+import org.discord.handlers.storage.HeapRatingStore;
+import org.discord.handlers.storage.InMemoryStorageBackend;
+import org.discord.handlers.storage.MappedRatingStore;
+import org.discord.handlers.storage.RatingStore;
+import org.discord.handlers.storage.StorageBackend;
 import org.discord.utils.ChallongeApiClient;
 import org.discord.utils.ChallongeService;
+import org.discord.utils.CommandRateMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 public class SmashEloBot {
     private static final Logger logger = LoggerFactory.getLogger(SmashEloBot.class);
     public static JDA jda;
     private final DiscordCommandHandler discordCommandHandler;
-    private final DatabaseManager databaseManager;
+    private final StorageBackend storage;
+    private final EloManager eloManager;
+    private final OutboxDispatcher outbox;
+    private final LeaderElection leaderElection;
+    private final TournamentMirror tournamentMirror;
+    private final TournamentManager tournamentManager;
     List<String> organizerRoles = Arrays.asList("TO", "Tournament Organizer", "Admin", "Moderator");
 
-    public SmashEloBot(String token, String challongeApiKey, String challongeUsername, String dbUrl) throws LoginException {
+    public SmashEloBot(String token, String challongeApiKey, String challongeUsername, StorageBackend storage,
+                       long eloFlushIntervalMillis, RatingStore ratingStore, CommandRateMonitor commandRate,
+                       long outboxPollIntervalMillis, LeaderElection leaderElection, long tournamentMirrorFlushMillis,
+                       RatingEngine ratingEngine, long ratingPeriodMillis, long ledgerFollowMillis) throws LoginException {
         jda = JDABuilder.createDefault(token)
                 .disableCache(CacheFlag.EMOJI, CacheFlag.VOICE_STATE)
                 .enableIntents(GatewayIntent.GUILD_MEMBERS)
                 .build();
 
-        this.databaseManager = new DatabaseManager(dbUrl);
-        EloManager eloManager = new EloManager(databaseManager);
+        this.storage = storage;
+        this.eloManager = new EloManager(storage, eloFlushIntervalMillis, ratingStore, ratingEngine, ratingPeriodMillis, leaderElection,
+                ledgerFollowMillis);
+        this.leaderElection = leaderElection;
+        this.outbox = new OutboxDispatcher(storage, leaderElection, outboxPollIntervalMillis);
+        this.tournamentMirror = new TournamentMirror(storage, tournamentMirrorFlushMillis);
         ChallongeApiClient challongeApiClient = new ChallongeApiClient(challongeApiKey, challongeUsername);
         ChallongeService challongeService = challongeApiClient.getService();
-        TournamentManager tournamentManager = new TournamentManager(challongeService, eloManager, "911034984444338186", organizerRoles);
+        this.tournamentManager = new TournamentManager(challongeService, eloManager, "911034984444338186", organizerRoles, outbox, leaderElection,
+                tournamentMirror);
         RankedMatchManager rankedMatchManager = new RankedMatchManager(eloManager);
-        this.discordCommandHandler = new DiscordCommandHandler(jda, tournamentManager, rankedMatchManager, eloManager);
+        this.discordCommandHandler = new DiscordCommandHandler(jda, tournamentManager, rankedMatchManager, eloManager, commandRate);
 
     }
 
@@ -44,7 +70,55 @@ public class SmashEloBot {
         String token = System.getenv("DISCORD_BOT_TOKEN");
         String challongeApiKey = System.getenv("CHALLONGE_API_KEY");
         String challongeUsername = System.getenv("CHALLONGE_USERNAME");
-        String dbUrl = "jdbc:h2:./data/eloDB";
+        // "h2" (default) or "memory"; the memory backend snapshots ratings to MEMORY_SNAPSHOT_FILE
+        String storageBackend = System.getenv().getOrDefault("STORAGE_BACKEND", "h2");
+        String memorySnapshotFile = System.getenv().getOrDefault("MEMORY_SNAPSHOT_FILE", "./data/ratings.snapshot");
+        // Point DB_URL at an H2 TCP server (jdbc:h2:tcp://host/./data/eloDB) or set DB_AUTO_SERVER so that several
+        // instances can share the database; the first to open the file then serves it to the others
+        String dbUrl = System.getenv().getOrDefault("DB_URL", "jdbc:h2:./data/eloDB");
+        if (Boolean.parseBoolean(System.getenv("DB_AUTO_SERVER"))) {
+            dbUrl += ";AUTO_SERVER=TRUE";
+            int autoServerPort = getEnvInt("DB_AUTO_SERVER_PORT", 0);
+            if (autoServerPort > 0) {
+                dbUrl += ";AUTO_SERVER_PORT=" + autoServerPort;
+            }
+        }
+        // Instances sharing a database elect one leader to run pollers; the rest only serve commands
+        String instanceId = System.getenv().getOrDefault("INSTANCE_ID", LeaderElection.defaultInstanceId());
+        long leaderLeaseMillis = getEnvInt("LEADER_LEASE_MS", (int) LeaderElection.DEFAULT_LEASE_MILLIS);
+        int minPoolSize = getEnvInt("DB_POOL_MIN", DatabaseManager.DEFAULT_MIN_POOL_SIZE);
+        int maxPoolSize = getEnvInt("DB_POOL_MAX", DatabaseManager.DEFAULT_MAX_POOL_SIZE);
+        long eloFlushIntervalMillis = getEnvInt("ELO_FLUSH_INTERVAL_MS", (int) EloManager.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        // Instances sharing the database write ratings through and read each other's changes from the ledger
+        // every LEDGER_FOLLOW_INTERVAL_MS
+        boolean sharedDatabase = !"memory".equalsIgnoreCase(storageBackend) && isSharedDatabase(dbUrl);
+        long ledgerFollowMillis = sharedDatabase
+                ? getEnvInt("LEDGER_FOLLOW_INTERVAL_MS", (int) EloManager.DEFAULT_LEDGER_FOLLOW_MILLIS) : 0;
+        if (sharedDatabase && eloFlushIntervalMillis > 0) {
+            logger.warn("Ignoring ELO_FLUSH_INTERVAL_MS={}: instances sharing a database write ratings through.", eloFlushIntervalMillis);
+            eloFlushIntervalMillis = 0;
+        }
+        // Optional memory-mapped rating store for very large ladders; ratings stay on the heap when unset
+        String eloStoreFile = System.getenv("ELO_STORE_FILE");
+        int eloStoreExpectedPlayers = getEnvInt("ELO_STORE_EXPECTED_PLAYERS", 100_000);
+        // H2 upkeep (ANALYZE, compaction, BACKUP TO) runs only while fewer commands than this arrive per minute
+        int maintenanceIntervalMillis = getEnvInt("DB_MAINTENANCE_INTERVAL_MS", 15 * 60 * 1000);
+        int maintenanceQuietCommandsPerMinute = getEnvInt("DB_MAINTENANCE_QUIET_COMMANDS_PER_MINUTE", 5);
+        int backupIntervalMillis = getEnvInt("DB_BACKUP_INTERVAL_MS", 24 * 60 * 60 * 1000);
+        int backupsToKeep = getEnvInt("DB_BACKUPS_TO_KEEP", 3);
+        // How often queued Challonge writes and notifications are retried; new entries are sent immediately
+        long outboxPollIntervalMillis = getEnvInt("OUTBOX_POLL_INTERVAL_MS", (int) OutboxDispatcher.DEFAULT_POLL_INTERVAL_MILLIS);
+        // How long tournament, registration and match updates are batched before being mirrored to the database
+        long tournamentMirrorFlushMillis = getEnvInt("TOURNAMENT_MIRROR_FLUSH_MS", (int) TournamentMirror.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        // "elo" (default) rates every match as it is confirmed; "glicko2" queues results and rates them together
+        // every RATING_PERIOD_MS
+        String ratingEngineName = System.getenv().getOrDefault("RATING_ENGINE", "elo");
+        long ratingPeriodMillis = getEnvInt("RATING_PERIOD_MS", (int) EloManager.DEFAULT_RATING_PERIOD_MILLIS);
+        // Players without a game or placement for DECAY_INACTIVE_DAYS lose DECAY_POINTS every DECAY_INTERVAL_MS;
+        // DECAY_POINTS=0 turns decay off
+        int decayInactiveDays = getEnvInt("DECAY_INACTIVE_DAYS", 30);
+        int decayPoints = getEnvInt("DECAY_POINTS", 10);
+        long decayIntervalMillis = getEnvInt("DECAY_INTERVAL_MS", 24 * 60 * 60 * 1000);
 
         if (token == null || token.isEmpty()) {
             logger.error("Bot token not found. Please set the DISCORD_BOT_TOKEN environment variable.");
@@ -57,17 +131,80 @@ public class SmashEloBot {
         }
 
         try {
-            SmashEloBot bot = new SmashEloBot(token, challongeApiKey, challongeUsername, dbUrl);
+            RatingStore ratingStore = eloStoreFile == null || eloStoreFile.isEmpty()
+                    ? new HeapRatingStore()
+                    : MappedRatingStore.open(Paths.get(eloStoreFile), eloStoreExpectedPlayers);
+            StorageBackend storage = "memory".equalsIgnoreCase(storageBackend)
+                    ? new InMemoryStorageBackend(Paths.get(memorySnapshotFile))
+                    : new DatabaseManager(dbUrl, minPoolSize, maxPoolSize);
+            RatingEngine ratingEngine = "glicko2".equalsIgnoreCase(ratingEngineName)
+                    ? new Glicko2RatingEngine(Glicko2RatingEngine.DEFAULT_TAU, EloManager.MIN_ELO)
+                    : new EloRatingEngine(EloRatingEngine.LADDER_K, EloManager.MIN_ELO);
+            CommandRateMonitor commandRate = new CommandRateMonitor();
+            LeaderElection leaderElection = new LeaderElection(storage, LeaderElection.SCHEDULER_LEASE, instanceId, leaderLeaseMillis);
+            SmashEloBot bot = new SmashEloBot(token, challongeApiKey, challongeUsername, storage, eloFlushIntervalMillis, ratingStore, commandRate,
+                    outboxPollIntervalMillis, leaderElection, tournamentMirrorFlushMillis, ratingEngine, ratingPeriodMillis,
+                    ledgerFollowMillis);
+            Runtime.getRuntime().addShutdownHook(new Thread(bot::shutdown, "smashbot-shutdown"));
             bot.initialize();
+            if (storage instanceof DatabaseManager && maintenanceIntervalMillis > 0) {
+                ((DatabaseManager) storage).startMaintenance(commandRate, leaderElection, new DatabaseMaintenance.Settings(
+                        maintenanceIntervalMillis, maintenanceQuietCommandsPerMinute, backupIntervalMillis, backupsToKeep));
+            }
+            if (decayPoints > 0) {
+                bot.eloManager.startInactivityDecay(new EloManager.DecaySettings(
+                        TimeUnit.DAYS.toMillis(decayInactiveDays), decayPoints, decayIntervalMillis));
+            }
             logger.info("SmashEloBot initialized successfully.");
-        } catch (LoginException | InterruptedException e) {
+        } catch (LoginException | InterruptedException | IOException e) {
             logger.error("Failed to initialize SmashEloBot", e);
         }
     }
 
     public void initialize() throws InterruptedException {
+        // Ratings must be in memory before any command can read or change them
+        storage.initialize();
+        leaderElection.start();
+        eloManager.start();
+        tournamentMirror.start();
+
         discordCommandHandler.registerCommands();
+        // Queued deliveries need a ready JDA to resolve channels and users
+        outbox.start();
+        // Likewise for tournaments taken over from other instances
+        tournamentManager.start();
+    }
+
+    public void shutdown() {
+        logger.info("Shutting down SmashEloBot...");
+        // Stop deliveries first; anything in flight needs JDA, and pending entries resume on the next start
+        outbox.shutdown();
+        tournamentManager.shutdown();
+        jda.shutdown();
+        eloManager.shutdown();
+        tournamentMirror.shutdown();
+        leaderElection.shutdown();
+        storage.shutdown();
+    }
 
-        databaseManager.initializeDatabase();
+    /**
+     * @return true if other instances can open the same database, through an H2 server or the automatic mixed mode
+     */
+    static boolean isSharedDatabase(String dbUrl) {
+        String url = dbUrl.toUpperCase(Locale.ROOT);
+        return url.startsWith("JDBC:H2:TCP:") || url.startsWith("JDBC:H2:SSL:") || url.contains(";AUTO_SERVER=TRUE");
+    }
+
+    private static int getEnvInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid value '{}' for {}; using {}", value, name, defaultValue);
+            return defaultValue;
+        }
     }
 }
\ No newline at end of file
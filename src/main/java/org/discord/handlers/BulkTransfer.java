@@ -0,0 +1,556 @@
+package org.discord.handlers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.discord.handlers.storage.RatingEvent;
+import org.discord.handlers.storage.RatingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming CSV and JSON-lines import/export of the rating and tournament tables.
+ * <p>
+ * Exports read a forward-only result set and write each row as it arrives, so memory use does not grow with the
+ * table. Imports {@code MERGE} rows in JDBC batches and commit every batch, so a failure part-way leaves the
+ * batches before it in place. Imported ratings are recorded in the rating ledger in the same transaction as their
+ * batch, so ledger replay and persistent rating stores see them.
+ * <p>
+ * CSV files start with a header row naming the columns; an empty unquoted field is NULL. JSON-lines files hold
+ * one object per line, with snowflake ids as strings. Optional columns left out of a file are imported as NULL, or
+ * as the column's default where it has one, so older exports still import.
+ */
+public class BulkTransfer {
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransfer.class);
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final Map<String, TableSpec> TABLES = new LinkedHashMap<>();
+
+    static {
+        addTable(new TableSpec("elo_ratings", new String[]{"player_id"},
+                new Column("player_id", Types.BIGINT, true),
+                new Column("elo", Types.INTEGER, true),
+                new Column("rd", Types.DOUBLE, String.valueOf(RatingState.DEFAULT_DEVIATION)),
+                new Column("volatility", Types.DOUBLE, String.valueOf(RatingState.DEFAULT_VOLATILITY)),
+                // Like the migration's backfill, a player without a known game starts a full decay grace period
+                new Column("last_played", Types.TIMESTAMP, "CURRENT_TIMESTAMP")));
+        addTable(new TableSpec("tournaments", new String[]{"id"},
+                new Column("id", Types.BIGINT, true),
+                new Column("name", Types.VARCHAR, true),
+                new Column("status", Types.VARCHAR, true),
+                new Column("created_at", Types.TIMESTAMP, false),
+                new Column("channel_id", Types.BIGINT, false),
+                new Column("tournament_type", Types.VARCHAR, false)));
+        addTable(new TableSpec("tournament_participants", new String[]{"tournament_id", "player_id"},
+                new Column("tournament_id", Types.BIGINT, true),
+                new Column("player_id", Types.BIGINT, true)));
+        addTable(new TableSpec("tournament_matches", new String[]{"id"},
+                new Column("id", Types.BIGINT, true),
+                new Column("tournament_id", Types.BIGINT, true),
+                new Column("player1_id", Types.BIGINT, true),
+                new Column("player2_id", Types.BIGINT, true),
+                new Column("winner_id", Types.BIGINT, false),
+                new Column("score", Types.VARCHAR, false),
+                new Column("status", Types.VARCHAR, true)));
+    }
+
+    private final DatabaseManager databaseManager;
+    private final int batchSize;
+
+    public BulkTransfer(DatabaseManager databaseManager, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.databaseManager = databaseManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the tables that can be imported and exported, in an order that satisfies their foreign keys
+     */
+    public static List<String> getTableNames() {
+        return new ArrayList<>(TABLES.keySet());
+    }
+
+    /**
+     * Writes every row of {@code table} to {@code file}, as CSV or JSON lines depending on the file extension.
+     *
+     * @return the number of rows written
+     */
+    public long exportTable(String table, Path file) throws IOException, SQLException {
+        TableSpec spec = getTable(table);
+        Format format = Format.forFile(file);
+        long start = System.currentTimeMillis();
+        long rows = 0;
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            stmt.setFetchSize(batchSize);
+            if (format == Format.CSV) {
+                writeCsvRecord(out, spec.columnNames());
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT " + String.join(", ", spec.columnNames())
+                    + " FROM " + spec.name + " ORDER BY " + String.join(", ", spec.keyColumns))) {
+                String[] values = new String[spec.columns.length];
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getString(i + 1);
+                    }
+                    if (format == Format.CSV) {
+                        writeCsvRecord(out, values);
+                    } else {
+                        writeJsonLine(out, spec, values);
+                    }
+                    rows++;
+                }
+            }
+        }
+        logger.info("Exported {} row(s) from {} to {} in {} ms.", rows, table, file, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * Merges every row of {@code file} into {@code table}, committing every batch.
+     *
+     * @return the number of rows imported
+     * @throws IllegalArgumentException if the file does not match the table; batches before the bad row stay committed
+     */
+    public long importTable(String table, Path file) throws IOException, SQLException {
+        TableSpec spec = getTable(table);
+        Format format = Format.forFile(file);
+        boolean ratings = spec.name.equals("elo_ratings");
+        long start = System.currentTimeMillis();
+        long rows = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Connection conn = databaseManager.getConnection()) {
+            RowReader reader = format == Format.CSV ? new CsvRowReader(in, spec) : new JsonRowReader(in, spec);
+            conn.setAutoCommit(false);
+            try (PreparedStatement merge = conn.prepareStatement("MERGE INTO " + spec.name + " (" + String.join(", ", spec.columnNames())
+                    + ") KEY (" + String.join(", ", spec.keyColumns) + ") VALUES (" + String.join(", ", spec.placeholders()) + ")")) {
+                List<String[]> batch = new ArrayList<>(batchSize);
+                String[] row;
+                while ((row = reader.next()) != null) {
+                    for (int i = 0; i < row.length; i++) {
+                        bind(merge, i + 1, spec.columns[i], row[i], reader.position());
+                    }
+                    merge.addBatch();
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        rows += writeBatch(conn, merge, batch, ratings);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    rows += writeBatch(conn, merge, batch, ratings);
+                }
+            } catch (IOException | SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        if (ratings && rows > 0) {
+            // Imported ratings would otherwise all be replayed from the ledger on every start
+            databaseManager.writeSnapshot();
+        }
+        logger.info("Imported {} row(s) into {} from {} in {} ms.", rows, table, file, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private static int writeBatch(Connection conn, PreparedStatement merge, List<String[]> batch, boolean ratings) throws SQLException {
+        // Read the ratings being replaced before the merge overwrites them
+        List<RatingEvent> events = ratings ? toImportEvents(conn, batch) : List.of();
+        merge.executeBatch();
+        RatingLedger.appendEvents(conn, events);
+        conn.commit();
+        return batch.size();
+    }
+
+    /**
+     * Builds one ledger event per imported rating, reading the ratings it replaces in a single query.
+     * Players without a previous rating get an event with no change.
+     */
+    private static List<RatingEvent> toImportEvents(Connection conn, List<String[]> batch) throws SQLException {
+        Object[] playerIds = new Object[batch.size()];
+        for (int i = 0; i < playerIds.length; i++) {
+            playerIds[i] = Long.parseLong(batch.get(i)[0]);
+        }
+
+        Map<String, Integer> previous = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT player_id, elo FROM elo_ratings WHERE player_id = ANY(?)")) {
+            Array array = conn.createArrayOf("BIGINT", playerIds);
+            pstmt.setArray(1, array);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    previous.put(rs.getString("player_id"), rs.getInt("elo"));
+                }
+            }
+        }
+
+        List<RatingEvent> events = new ArrayList<>(batch.size());
+        for (String[] row : batch) {
+            String playerId = Long.toString(Long.parseLong(row[0]));
+            int newElo = Integer.parseInt(row[1]);
+            events.add(new RatingEvent(null, playerId, null, previous.getOrDefault(playerId, newElo), newElo, null, RatingEvent.Source.IMPORT));
+        }
+        return events;
+    }
+
+    private static void bind(PreparedStatement pstmt, int index, Column column, String value, String position) throws SQLException {
+        if (value == null && column.required) {
+            throw new IllegalArgumentException("Missing " + column.name + " at " + position);
+        }
+        if (value == null) {
+            pstmt.setNull(index, column.sqlType);
+            return;
+        }
+        try {
+            switch (column.sqlType) {
+                case Types.BIGINT:
+                    pstmt.setLong(index, Long.parseLong(value.trim()));
+                    break;
+                case Types.INTEGER:
+                    pstmt.setInt(index, Integer.parseInt(value.trim()));
+                    break;
+                case Types.DOUBLE:
+                    pstmt.setDouble(index, Double.parseDouble(value.trim()));
+                    break;
+                case Types.TIMESTAMP:
+                    pstmt.setTimestamp(index, Timestamp.valueOf(value.trim()));
+                    break;
+                default:
+                    pstmt.setString(index, value);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + column.name + " '" + value + "' at " + position, e);
+        }
+    }
+
+    private static TableSpec getTable(String table) {
+        TableSpec spec = TABLES.get(table.toLowerCase(Locale.ROOT));
+        if (spec == null) {
+            throw new IllegalArgumentException("Unknown table '" + table + "'; expected one of " + TABLES.keySet());
+        }
+        return spec;
+    }
+
+    private static void addTable(TableSpec spec) {
+        TABLES.put(spec.name, spec);
+    }
+
+    private static void writeCsvRecord(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write('\n');
+    }
+
+    private static void writeJsonLine(Writer out, TableSpec spec, String[] values) throws IOException {
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < values.length; i++) {
+            Column column = spec.columns[i];
+            if (values[i] == null) {
+                object.add(column.name, null);
+            } else if (column.sqlType == Types.INTEGER) {
+                object.addProperty(column.name, Integer.parseInt(values[i]));
+            } else if (column.sqlType == Types.DOUBLE) {
+                object.addProperty(column.name, Double.parseDouble(values[i]));
+            } else {
+                object.addProperty(column.name, values[i]);
+            }
+        }
+        out.write(object.toString());
+        out.write('\n');
+    }
+
+    public enum Format {
+        CSV,
+        JSONL;
+
+        static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Unknown file format for " + file + "; use .csv or .jsonl");
+        }
+    }
+
+    private interface RowReader {
+        /**
+         * @return the next row with one value per table column, or null at the end of the file
+         */
+        String[] next() throws IOException;
+
+        String position();
+    }
+
+    private static class CsvRowReader implements RowReader {
+        private final Reader in;
+        private final TableSpec spec;
+        private final int[] columnForField;
+        private long line = 1;
+        private long recordLine = 1;
+        private boolean endOfFile;
+
+        CsvRowReader(Reader in, TableSpec spec) throws IOException {
+            this.in = in;
+            this.spec = spec;
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV file is empty; expected a header row");
+            }
+            columnForField = new int[header.size()];
+            for (int i = 0; i < header.size(); i++) {
+                columnForField[i] = spec.indexOf(header.get(i) == null ? "" : header.get(i).trim());
+                if (columnForField[i] < 0) {
+                    throw new IllegalArgumentException("Unknown column '" + header.get(i) + "' for " + spec.name
+                            + "; expected " + Arrays.toString(spec.columnNames()));
+                }
+            }
+            spec.checkKeyColumnsPresent(columnForField);
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            List<String> fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() != columnForField.length) {
+                throw new IllegalArgumentException("Expected " + columnForField.length + " field(s) but found " + fields.size() + " at " + position());
+            }
+            String[] row = new String[spec.columns.length];
+            for (int i = 0; i < fields.size(); i++) {
+                row[columnForField[i]] = fields.get(i);
+            }
+            return row;
+        }
+
+        @Override
+        public String position() {
+            return "line " + recordLine;
+        }
+
+        /**
+         * Reads one RFC 4180 record. Quoted fields may contain commas, doubled quotes and line breaks.
+         */
+        private List<String> readRecord() throws IOException {
+            if (endOfFile) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean inQuotes = false;
+            int c;
+            while (true) {
+                c = in.read();
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted field at " + position());
+                    }
+                    if (c == '"') {
+                        in.mark(1);
+                        if (in.read() == '"') {
+                            field.append('"');
+                        } else {
+                            in.reset();
+                            inQuotes = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0 && !quoted) {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                    field.setLength(0);
+                    quoted = false;
+                } else if (c == '\n' || c == -1) {
+                    if (c == -1) {
+                        endOfFile = true;
+                        if (fields.isEmpty() && field.length() == 0 && !quoted) {
+                            return null;
+                        }
+                    }
+                    int length = field.length();
+                    if (length > 0 && field.charAt(length - 1) == '\r') {
+                        field.setLength(length - 1);
+                    }
+                    if (fields.isEmpty() && field.length() == 0 && !quoted) {
+                        // Skip blank lines
+                        line++;
+                        recordLine = line;
+                        continue;
+                    }
+                    fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                    line++;
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+    }
+
+    private static class JsonRowReader implements RowReader {
+        private final BufferedReader in;
+        private final TableSpec spec;
+        private long line;
+
+        JsonRowReader(BufferedReader in, TableSpec spec) {
+            this.in = in;
+            this.spec = spec;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+
+            JsonObject object;
+            try {
+                object = JsonParser.parseString(text).getAsJsonObject();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid JSON object at " + position(), e);
+            }
+            String[] row = new String[spec.columns.length];
+            for (int i = 0; i < row.length; i++) {
+                JsonElement value = object.get(spec.columns[i].name);
+                row[i] = value == null || value.isJsonNull() ? null : value.getAsString();
+            }
+            return row;
+        }
+
+        @Override
+        public String position() {
+            return "line " + line;
+        }
+    }
+
+    private static class Column {
+        final String name;
+        final int sqlType;
+        final boolean required;
+        // SQL expression imported in place of a missing value, or null to import NULL
+        final String defaultSql;
+
+        Column(String name, int sqlType, boolean required) {
+            this(name, sqlType, required, null);
+        }
+
+        Column(String name, int sqlType, String defaultSql) {
+            this(name, sqlType, false, defaultSql);
+        }
+
+        private Column(String name, int sqlType, boolean required, String defaultSql) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.required = required;
+            this.defaultSql = defaultSql;
+        }
+    }
+
+    private static class TableSpec {
+        final String name;
+        final String[] keyColumns;
+        final Column[] columns;
+
+        TableSpec(String name, String[] keyColumns, Column... columns) {
+            this.name = name;
+            this.keyColumns = keyColumns;
+            this.columns = columns;
+        }
+
+        String[] columnNames() {
+            String[] names = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                names[i] = columns[i].name;
+            }
+            return names;
+        }
+
+        /**
+         * @return one {@code MERGE} value per column, falling back to the column's default for missing values
+         */
+        String[] placeholders() {
+            String[] placeholders = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                placeholders[i] = columns[i].defaultSql == null ? "?" : "COALESCE(?, " + columns[i].defaultSql + ")";
+            }
+            return placeholders;
+        }
+
+        int indexOf(String columnName) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].name.equalsIgnoreCase(columnName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void checkKeyColumnsPresent(int[] columnForField) {
+            for (String key : keyColumns) {
+                int index = indexOf(key);
+                if (Arrays.stream(columnForField).noneMatch(column -> column == index)) {
+                    throw new IllegalArgumentException("CSV header for " + name + " is missing key column '" + key + "'");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.discord.handlers;
+
+import org.discord.utils.CommandRateMonitor;
+import org.h2.engine.Session;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodic upkeep of the embedded H2 database while the bot keeps running.
+ * <p>
+ * Every check interval the job looks at the command rate and does nothing while the bot is busy. In a quiet
+ * window it refreshes optimizer statistics with {@code ANALYZE}, compacts the MVStore file when its chunks have
+ * become sparse, and takes an online {@code BACKUP TO} snapshot if the last one is older than the backup
+ * interval, keeping only the newest few. Compaction runs under a time budget, so writers are held up for at most
+ * that long. With several instances on one database only the {@link LeaderElection leader} runs it.
+ */
+public class DatabaseMaintenance {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseMaintenance.class);
+    private static final long ANALYZE_INTERVAL_MILLIS = 60 * 60 * 1000;
+    private static final int COMPACT_BELOW_CHUNKS_FILL_RATE = 80;
+    // Fill rates of a small file swing with every commit; not worth compacting
+    private static final long COMPACT_MIN_FILE_SIZE_BYTES = 16 * 1024 * 1024;
+    private static final int COMPACT_TIME_BUDGET_MILLIS = 2_000;
+    private static final int TRACE_MAX_FILE_SIZE_MB = 4;
+
+    private final DatabaseManager databaseManager;
+    private final CommandRateMonitor commandRate;
+    private final LeaderElection leaderElection;
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "db-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong skippedBusy = new AtomicLong();
+    private volatile long lastAnalyzeMillis;
+    private volatile long lastCompactionMillis;
+    private volatile long lastCompactionReclaimedBytes;
+    private volatile long lastBackupMillis;
+    private volatile String lastBackupFile;
+
+    public DatabaseMaintenance(DatabaseManager databaseManager, CommandRateMonitor commandRate, LeaderElection leaderElection,
+                               Settings settings) {
+        this.databaseManager = databaseManager;
+        this.commandRate = commandRate;
+        this.leaderElection = leaderElection;
+        this.settings = settings;
+    }
+
+    public void start() {
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            // H2 rolls the trace file over at this size, so it stays bounded at twice the limit
+            stmt.execute("SET TRACE_MAX_FILE_SIZE " + TRACE_MAX_FILE_SIZE_MB);
+        } catch (SQLException e) {
+            logger.warn("Could not limit the database trace file size", e);
+        }
+        scheduler.scheduleWithFixedDelay(this::runIfQuiet, settings.checkIntervalMillis, settings.checkIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Database maintenance every {} ms when below {} command(s)/min; backups every {} ms, keeping {}.",
+                settings.checkIntervalMillis, settings.quietCommandsPerMinute, settings.backupIntervalMillis, settings.backupsToKeep);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runIfQuiet() {
+        if (!leaderElection.isLeader()) {
+            return;
+        }
+        int commandsPerMinute = commandRate.getCommandsPerMinute();
+        if (commandsPerMinute > settings.quietCommandsPerMinute) {
+            skippedBusy.incrementAndGet();
+            logger.debug("Skipping database maintenance: {} command(s) in the last minute.", commandsPerMinute);
+            return;
+        }
+        try {
+            runMaintenance();
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Database maintenance failed", e);
+        }
+    }
+
+    /**
+     * Runs whatever maintenance is due, regardless of the command rate.
+     */
+    public void runMaintenance() {
+        runs.incrementAndGet();
+        long now = System.currentTimeMillis();
+        try (Connection conn = databaseManager.getConnection()) {
+            if (now - lastAnalyzeMillis >= ANALYZE_INTERVAL_MILLIS) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("ANALYZE");
+                }
+                lastAnalyzeMillis = now;
+            }
+
+            StoreInfo before = readStoreInfo(conn);
+            if (before.fileSizeBytes >= COMPACT_MIN_FILE_SIZE_BYTES && before.chunksFillRate >= 0
+                    && before.chunksFillRate < COMPACT_BELOW_CHUNKS_FILL_RATE) {
+                long start = System.currentTimeMillis();
+                if (compact(conn)) {
+                    StoreInfo after = readStoreInfo(conn);
+                    lastCompactionMillis = System.currentTimeMillis();
+                    lastCompactionReclaimedBytes = before.fileSizeBytes - after.fileSizeBytes;
+                    logger.info("Compacted database file in {} ms: {} -> {} bytes, chunk fill rate {}% -> {}%.",
+                            lastCompactionMillis - start, before.fileSizeBytes, after.fileSizeBytes, before.chunksFillRate, after.chunksFillRate);
+                }
+            }
+
+            if (settings.backupIntervalMillis > 0 && now - lastBackupMillis >= settings.backupIntervalMillis) {
+                backup(conn);
+            }
+        } catch (SQLException e) {
+            logger.error("Error during database maintenance", e);
+        }
+        logger.info("Database maintenance finished: {}", getStats());
+    }
+
+    /**
+     * Compacts the store in-process. Only possible for an embedded database; a server owns its own file.
+     */
+    private boolean compact(Connection conn) throws SQLException {
+        Session session = conn.unwrap(JdbcConnection.class).getSession();
+        if (!(session instanceof SessionLocal)) {
+            return false;
+        }
+        MVStore store = ((SessionLocal) session).getDatabase().getStore().getMvStore();
+        // compactFile drops the retention time to 0 so freed chunks can be reused at once; put it back afterwards
+        int retentionTime = store.getRetentionTime();
+        try {
+            store.compactFile(COMPACT_TIME_BUDGET_MILLIS);
+        } finally {
+            store.setRetentionTime(retentionTime);
+        }
+        // The file is only truncated once the compacted state is committed
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CHECKPOINT");
+        }
+        return true;
+    }
+
+    private void backup(Connection conn) throws SQLException {
+        String databaseFile = databaseManager.getDatabaseFilePath();
+        if (databaseFile == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String backupFile = databaseFile + "-backup-" + start + ".zip";
+        try (PreparedStatement backup = conn.prepareStatement("BACKUP TO ?")) {
+            backup.setString(1, backupFile);
+            backup.execute();
+        }
+        lastBackupMillis = start;
+        lastBackupFile = backupFile;
+        logger.info("Backed up database to {} in {} ms.", backupFile, System.currentTimeMillis() - start);
+        pruneBackups(Paths.get(databaseFile));
+    }
+
+    private void pruneBackups(Path databaseFile) {
+        Path directory = databaseFile.toAbsolutePath().getParent();
+        String pattern = databaseFile.getFileName() + "-backup-*.zip";
+        List<Path> backups = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, pattern)) {
+            stream.forEach(backups::add);
+        } catch (IOException e) {
+            logger.warn("Could not list database backups in " + directory, e);
+            return;
+        }
+        // Names embed the backup time, so newest sorts last as long as the timestamps have the same width
+        Collections.sort(backups);
+        for (int i = 0; i < backups.size() - settings.backupsToKeep; i++) {
+            try {
+                Files.delete(backups.get(i));
+                logger.info("Deleted old database backup {}", backups.get(i));
+            } catch (IOException e) {
+                logger.warn("Could not delete old database backup " + backups.get(i), e);
+            }
+        }
+    }
+
+    public MaintenanceStats getStats() {
+        StoreInfo info;
+        try (Connection conn = databaseManager.getConnection()) {
+            info = readStoreInfo(conn);
+        } catch (SQLException e) {
+            logger.error("Error reading database file statistics", e);
+            info = new StoreInfo(-1, -1, -1);
+        }
+        return new MaintenanceStats(info.fileSizeBytes, info.fillRate, info.chunksFillRate, runs.get(), skippedBusy.get(),
+                lastAnalyzeMillis, lastCompactionMillis, lastCompactionReclaimedBytes, lastBackupMillis, lastBackupFile);
+    }
+
+    private static StoreInfo readStoreInfo(Connection conn) throws SQLException {
+        long fileSize = -1;
+        int fillRate = -1;
+        int chunksFillRate = -1;
+        String sql = "SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+                + "WHERE SETTING_NAME IN ('info.FILE_SIZE', 'info.FILL_RATE', 'info.CHUNKS_FILL_RATE')";
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                switch (rs.getString(1)) {
+                    case "info.FILE_SIZE":
+                        fileSize = Long.parseLong(rs.getString(2));
+                        break;
+                    case "info.FILL_RATE":
+                        fillRate = Integer.parseInt(rs.getString(2));
+                        break;
+                    case "info.CHUNKS_FILL_RATE":
+                        chunksFillRate = Integer.parseInt(rs.getString(2));
+                        break;
+                }
+            }
+        }
+        return new StoreInfo(fileSize, fillRate, chunksFillRate);
+    }
+
+    private static class StoreInfo {
+        final long fileSizeBytes;
+        final int fillRate;
+        final int chunksFillRate;
+
+        StoreInfo(long fileSizeBytes, int fillRate, int chunksFillRate) {
+            this.fileSizeBytes = fileSizeBytes;
+            this.fillRate = fillRate;
+            this.chunksFillRate = chunksFillRate;
+        }
+    }
+
+    public static class Settings {
+        public final long checkIntervalMillis;
+        public final int quietCommandsPerMinute;
+        public final long backupIntervalMillis;
+        public final int backupsToKeep;
+
+        /**
+         * @param backupIntervalMillis minimum time between backups, or 0 to never back up
+         */
+        public Settings(long checkIntervalMillis, int quietCommandsPerMinute, long backupIntervalMillis, int backupsToKeep) {
+            this.checkIntervalMillis = checkIntervalMillis;
+            this.quietCommandsPerMinute = quietCommandsPerMinute;
+            this.backupIntervalMillis = backupIntervalMillis;
+            this.backupsToKeep = backupsToKeep;
+        }
+    }
+
+    public static class MaintenanceStats {
+        public final long fileSizeBytes;
+        public final int fillRate;
+        public final int chunksFillRate;
+        public final long runs;
+        public final long skippedBusy;
+        public final long lastAnalyzeMillis;
+        public final long lastCompactionMillis;
+        public final long lastCompactionReclaimedBytes;
+        public final long lastBackupMillis;
+        public final String lastBackupFile;
+
+        public MaintenanceStats(long fileSizeBytes, int fillRate, int chunksFillRate, long runs, long skippedBusy,
+                                long lastAnalyzeMillis, long lastCompactionMillis, long lastCompactionReclaimedBytes,
+                                long lastBackupMillis, String lastBackupFile) {
+            this.fileSizeBytes = fileSizeBytes;
+            this.fillRate = fillRate;
+            this.chunksFillRate = chunksFillRate;
+            this.runs = runs;
+            this.skippedBusy = skippedBusy;
+            this.lastAnalyzeMillis = lastAnalyzeMillis;
+            this.lastCompactionMillis = lastCompactionMillis;
+            this.lastCompactionReclaimedBytes = lastCompactionReclaimedBytes;
+            this.lastBackupMillis = lastBackupMillis;
+            this.lastBackupFile = lastBackupFile;
+        }
+
+        @Override
+        public String toString() {
+            return "fileSize=" + fileSizeBytes + "B, fillRate=" + fillRate + "%, chunksFillRate=" + chunksFillRate + "%"
+                    + ", runs=" + runs + ", skippedBusy=" + skippedBusy
+                    + ", lastAnalyze=" + lastAnalyzeMillis + ", lastCompaction=" + lastCompactionMillis
+                    + " (reclaimed " + lastCompactionReclaimedBytes + "B)"
+                    + ", lastBackup=" + lastBackupMillis + (lastBackupFile != null ? " (" + lastBackupFile + ")" : "");
+        }
+    }
+}
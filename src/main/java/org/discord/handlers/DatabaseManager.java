@@ -1,96 +1,190 @@
 package org.discord.handlers;
 
+import org.discord.handlers.storage.LedgerChanges;
+import org.discord.handlers.storage.MatchResult;
+import org.discord.handlers.storage.OutboxEntry;
+import org.discord.handlers.storage.PlayerElo;
+import org.discord.handlers.storage.PlayerSet;
+import org.discord.handlers.storage.RatingCalculator;
+import org.discord.handlers.storage.RatingCorrection;
+import org.discord.handlers.storage.RatingDecay;
+import org.discord.handlers.storage.RatingEvent;
+import org.discord.handlers.storage.RatingPeriod;
+import org.discord.handlers.storage.RatingState;
+import org.discord.handlers.storage.SeasonRollover;
+import org.discord.handlers.storage.StorageBackend;
+import org.discord.handlers.storage.TournamentChanges;
+import org.discord.handlers.storage.TournamentMatch;
+import org.discord.utils.CommandRateMonitor;
+import org.discord.utils.ConnectionPool;
+import org.discord.utils.DatabaseExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-public class DatabaseManager {
+/**
+ * H2 implementation of {@link StorageBackend}, with pooled connections and a bounded executor for blocking work.
+ */
+public class DatabaseManager implements StorageBackend {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
+    public static final int DEFAULT_MIN_POOL_SIZE = 2;
+    public static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 5_000;
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = 60_000;
+    private static final int DB_QUEUE_CAPACITY = 1_000;
+    private static final int MAX_RATING_UPDATE_ATTEMPTS = 5;
+    // Blind write of one rating; still bumps the row version so concurrent compare-and-set writers retry
+    private static final String UPSERT_RATING_SQL = "MERGE INTO elo_ratings t USING (VALUES (CAST(? AS BIGINT), CAST(? AS INT))) s(player_id, elo) "
+            + "ON t.player_id = s.player_id "
+            + "WHEN MATCHED THEN UPDATE SET elo = s.elo, version = t.version + 1 "
+            + "WHEN NOT MATCHED THEN INSERT (player_id, elo) VALUES (s.player_id, s.elo)";
+
     private final String dbUrl;
+    private final ConnectionPool connectionPool;
+    private final DatabaseExecutor dbExecutor;
+    private final RatingLedger ratingLedger = new RatingLedger(this);
+    private volatile DatabaseMaintenance maintenance;
 
     public DatabaseManager(String dbUrl) {
+        this(dbUrl, DEFAULT_MIN_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+    }
+
+    public DatabaseManager(String dbUrl, int minPoolSize, int maxPoolSize) {
         this.dbUrl = dbUrl;
+        this.connectionPool = new ConnectionPool(dbUrl, "sa", "", minPoolSize, maxPoolSize,
+                POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS);
+        // One worker per pooled connection, so queued tasks never block waiting for a connection
+        this.dbExecutor = new DatabaseExecutor("db-worker", maxPoolSize, DB_QUEUE_CAPACITY);
+        logger.info("Connection pool opened for {} (min {}, max {})", dbUrl, minPoolSize, maxPoolSize);
     }
 
+    /**
+     * Borrows a pooled connection. Closing it returns it to the pool.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, "sa", "");
+        return connectionPool.getConnection();
     }
 
-    public void initializeDatabase() {
-        createEloTable();
-        createTournamentTables();
+    public ConnectionPool.PoolStats getPoolStats() {
+        return connectionPool.getStats();
     }
 
-    private void createEloTable() {
-        String sql = "CREATE TABLE IF NOT EXISTS elo_ratings ("
-                + "player_id VARCHAR(255) PRIMARY KEY,"
-                + "elo INT NOT NULL"
-                + ")";
+    public DatabaseExecutor.ExecutorStats getExecutorStats() {
+        return dbExecutor.getStats();
+    }
 
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            logger.info("ELO ratings table created or already exists.");
-        } catch (SQLException e) {
-            logger.error("Error creating ELO ratings table", e);
-        }
+    /**
+     * Runs blocking database work on the dedicated database executor.
+     * The returned future fails with a {@link java.util.concurrent.RejectedExecutionException} when the queue is full.
+     */
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return dbExecutor.supplyAsync(task);
+    }
+
+    @Override
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return dbExecutor.runAsync(task);
     }
 
-    private void createTournamentTables() {
-        String createTournamentsTable = "CREATE TABLE IF NOT EXISTS tournaments ("
-                + "id VARCHAR(255) PRIMARY KEY,"
-                + "name VARCHAR(255) NOT NULL,"
-                + "status VARCHAR(50) NOT NULL,"
-                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
-                + ")";
+    /**
+     * Starts background compaction, statistics and backups, run only while the command rate is low.
+     * Call after {@link #initialize()}.
+     */
+    public void startMaintenance(CommandRateMonitor commandRate, LeaderElection leaderElection, DatabaseMaintenance.Settings settings) {
+        maintenance = new DatabaseMaintenance(this, commandRate, leaderElection, settings);
+        maintenance.start();
+    }
 
-        String createParticipantsTable = "CREATE TABLE IF NOT EXISTS tournament_participants ("
-                + "id INT AUTO_INCREMENT PRIMARY KEY,"
-                + "tournament_id VARCHAR(255) NOT NULL,"
-                + "player_id VARCHAR(255) NOT NULL,"
-                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id),"
-                + "FOREIGN KEY (player_id) REFERENCES elo_ratings(player_id)"
-                + ")";
+    /**
+     * @return file size, fill rate and last maintenance results, or null if maintenance was not started.
+     */
+    public DatabaseMaintenance.MaintenanceStats getMaintenanceStats() {
+        DatabaseMaintenance current = maintenance;
+        return current != null ? current.getStats() : null;
+    }
 
-        String createMatchesTable = "CREATE TABLE IF NOT EXISTS tournament_matches ("
-                + "id VARCHAR(255) PRIMARY KEY,"
-                + "tournament_id VARCHAR(255) NOT NULL,"
-                + "player1_id VARCHAR(255) NOT NULL,"
-                + "player2_id VARCHAR(255) NOT NULL,"
-                + "winner_id VARCHAR(255),"
-                + "score VARCHAR(10),"
-                + "status VARCHAR(50) NOT NULL,"
-                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id),"
-                + "FOREIGN KEY (player1_id) REFERENCES elo_ratings(player_id),"
-                + "FOREIGN KEY (player2_id) REFERENCES elo_ratings(player_id),"
-                + "FOREIGN KEY (winner_id) REFERENCES elo_ratings(player_id)"
-                + ")";
+    @Override
+    public void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+        }
+        logger.info("Draining database executor ({})", dbExecutor.getStats());
+        dbExecutor.shutdown();
+        logger.info("Closing connection pool for {} ({})", dbUrl, connectionPool.getStats());
+        connectionPool.close();
+    }
 
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createTournamentsTable);
-            stmt.execute(createParticipantsTable);
-            stmt.execute(createMatchesTable);
-            logger.info("Tournament tables created or already exist.");
+    @Override
+    public void initialize() {
+        try {
+            int version = new SchemaMigrator(this).migrate();
+            logger.info("Database initialized at schema version {}.", version);
         } catch (SQLException e) {
-            logger.error("Error creating tournament tables", e);
+            logger.error("Error migrating database schema", e);
+            throw new IllegalStateException("Database schema migration failed", e);
         }
     }
 
-    public void insertEloRating(String playerId, int initialElo) {
-        String sql = "MERGE INTO elo_ratings KEY (player_id) VALUES (?, ?)";
+    /**
+     * Returns the database file path without the {@code .mv.db} suffix, or null for in-memory and remote databases.
+     */
+    public String getDatabaseFilePath() {
+        if (!dbUrl.startsWith("jdbc:h2:")) {
+            return null;
+        }
+        String path = dbUrl.substring("jdbc:h2:".length());
+        int options = path.indexOf(';');
+        if (options >= 0) {
+            path = path.substring(0, options);
+        }
+        if (path.startsWith("mem:") || path.startsWith("tcp:") || path.startsWith("ssl:")) {
+            return null;
+        }
+        if (path.startsWith("file:")) {
+            path = path.substring("file:".length());
+        }
+        return path;
+    }
+
+    /**
+     * Parses a player, tournament or match id for a BIGINT key column. A non-numeric id fails as a
+     * {@link SQLDataException}, so it takes the same log-and-return (or rollback) path as any other statement error.
+     */
+    static long parseKey(String id) throws SQLException {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new SQLDataException("Not a numeric id: " + id, e);
+        }
+    }
 
+    public void insertEloRating(String playerId, int initialElo) {
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, playerId);
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_RATING_SQL)) {
+            pstmt.setLong(1, parseKey(playerId));
             pstmt.setInt(2, initialElo);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -99,12 +193,12 @@ public class DatabaseManager {
     }
 
     public void updateEloRating(String playerId, int newElo) {
-        String sql = "UPDATE elo_ratings SET elo = ? WHERE player_id = ?";
+        String sql = "UPDATE elo_ratings SET elo = ?, version = version + 1 WHERE player_id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, newElo);
-            pstmt.setString(2, playerId);
+            pstmt.setLong(2, parseKey(playerId));
             pstmt.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error updating ELO rating for player " + playerId, e);
@@ -116,7 +210,7 @@ public class DatabaseManager {
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, playerId);
+            pstmt.setLong(1, parseKey(playerId));
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return rs.getInt("elo");
@@ -128,6 +222,476 @@ public class DatabaseManager {
         return -1; // Return -1 if no rating found or error occurred
     }
 
+    public Map<String, Integer> loadAllRatings() {
+        Map<String, Integer> ratings = new HashMap<>();
+        String sql = "SELECT player_id, elo FROM elo_ratings";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ratings.put(rs.getString("player_id"), rs.getInt("elo"));
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading ELO ratings", e);
+        }
+        return ratings;
+    }
+
+    @Override
+    public Map<String, Integer> loadRatings() {
+        try {
+            return ratingLedger.loadRatings();
+        } catch (SQLException e) {
+            logger.error("Error loading ratings from the rating ledger", e);
+            throw new IllegalStateException("Failed to load ratings from the rating ledger", e);
+        }
+    }
+
+    @Override
+    public long getLatestEventId() {
+        try {
+            return ratingLedger.getLatestEventId();
+        } catch (SQLException e) {
+            logger.error("Error reading the latest rating event id", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public LedgerChanges getLedgerChanges(long afterEventId) {
+        try {
+            return ratingLedger.getChangesSince(afterEventId);
+        } catch (SQLException e) {
+            logger.error("Error reading rating changes after event " + afterEventId, e);
+            throw new IllegalStateException("Failed to read rating changes after event " + afterEventId, e);
+        }
+    }
+
+    @Override
+    public long countEventsSinceSnapshot() {
+        try {
+            return ratingLedger.countEventsSinceSnapshot();
+        } catch (SQLException e) {
+            logger.error("Error counting rating events since the last snapshot", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void writeSnapshot() {
+        try {
+            ratingLedger.writeSnapshot();
+        } catch (SQLException e) {
+            logger.error("Error writing rating ledger snapshot", e);
+        }
+    }
+
+    public boolean saveEloRatings(Map<String, Integer> ratings) {
+        return saveEloRatings(ratings, Collections.emptyList());
+    }
+
+    /**
+     * Upserts a batch of ratings and appends the rating events that produced them in one transaction. Players with a
+     * game or placement among the events get their {@code last_played} moved up to it.
+     *
+     * @return true if the batch was committed.
+     */
+    @Override
+    public boolean saveEloRatings(Map<String, Integer> ratings, List<RatingEvent> events) {
+        Map<String, Long> lastPlayed = new HashMap<>();
+        for (RatingEvent event : events) {
+            if (event.isPlayed()) {
+                lastPlayed.merge(event.playerId, event.createdAtMillis, Math::max);
+            }
+        }
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_RATING_SQL);
+                 PreparedStatement played = conn.prepareStatement("UPDATE elo_ratings SET last_played = ? WHERE player_id = ? "
+                         + "AND (last_played IS NULL OR last_played < ?)")) {
+                for (Map.Entry<String, Integer> entry : ratings.entrySet()) {
+                    pstmt.setLong(1, parseKey(entry.getKey()));
+                    pstmt.setInt(2, entry.getValue());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                if (!lastPlayed.isEmpty()) {
+                    for (Map.Entry<String, Long> entry : lastPlayed.entrySet()) {
+                        Timestamp playedAt = new Timestamp(entry.getValue());
+                        played.setTimestamp(1, playedAt);
+                        played.setLong(2, parseKey(entry.getKey()));
+                        played.setTimestamp(3, playedAt);
+                        played.addBatch();
+                    }
+                    played.executeBatch();
+                }
+                RatingLedger.appendEvents(conn, events);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error saving batch of " + ratings.size() + " ELO ratings", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void queuePeriodResults(List<MatchResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO rating_period_results (match_id, winner_id, loser_id, source) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (MatchResult result : results) {
+                    pstmt.setString(1, result.matchId);
+                    pstmt.setLong(2, parseKey(result.winnerId));
+                    pstmt.setLong(3, parseKey(result.loserId));
+                    pstmt.setString(4, result.source.name());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error queueing " + results.size() + " result(s) for the rating period", e);
+            throw new IllegalStateException("Failed to queue " + results.size() + " result(s) for the rating period", e);
+        }
+    }
+
+    @Override
+    public Set<String> findRecordedMatches(Collection<String> matchIds, RatingEvent.Source source) {
+        Set<String> recorded = new HashSet<>();
+        if (matchIds.isEmpty()) {
+            return recorded;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(matchIds.size(), "?"));
+        String sql = "SELECT match_id FROM rating_events WHERE source = ? AND match_id IN (" + placeholders + ") "
+                + "UNION SELECT match_id FROM rating_period_results WHERE source = ? AND match_id IN (" + placeholders + ") "
+                + "UNION SELECT match_id FROM rating_period_matches WHERE source = ? AND match_id IN (" + placeholders + ")";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int table = 0; table < 3; table++) {
+                pstmt.setString(index++, source.name());
+                for (String matchId : matchIds) {
+                    pstmt.setString(index++, matchId);
+                }
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    recorded.add(rs.getString("match_id"));
+                }
+            }
+            return recorded;
+        } catch (SQLException e) {
+            logger.error("Error looking up recorded matches", e);
+            throw new IllegalStateException("Failed to look up " + matchIds.size() + " recorded match(es)", e);
+        }
+    }
+
+    @Override
+    public RatingPeriod loadRatingPeriod() {
+        String sql = "SELECT id, match_id, winner_id, loser_id, source FROM rating_period_results ORDER BY id";
+        List<MatchResult> results = new ArrayList<>();
+        long lastResultId = 0;
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                results.add(new MatchResult(rs.getString("winner_id"), rs.getString("loser_id"), rs.getString("match_id"),
+                        RatingEvent.Source.valueOf(rs.getString("source"))));
+                lastResultId = rs.getLong("id");
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading the queued rating period results", e);
+            throw new IllegalStateException("Failed to load the queued rating period results", e);
+        }
+        return new RatingPeriod(results, lastResultId);
+    }
+
+    @Override
+    public List<RatingState> loadRatingStates() {
+        String sql = "SELECT player_id, elo, rd, volatility FROM elo_ratings";
+        List<RatingState> states = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                states.add(new RatingState(rs.getString("player_id"), rs.getInt("elo"), rs.getDouble("rd"), rs.getDouble("volatility")));
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading rating states", e);
+            throw new IllegalStateException("Failed to load rating states", e);
+        }
+        return states;
+    }
+
+    /**
+     * Upserts the period's rating states in one batch, appends their events, keeps the rated match ids and dequeues
+     * the rated results in one transaction, so a crash either rates the whole period or leaves it queued.
+     */
+    @Override
+    public boolean saveRatingPeriod(List<RatingState> states, List<RatingEvent> events, long lastResultId) {
+        String upsertSql = "MERGE INTO elo_ratings t USING (VALUES (CAST(? AS BIGINT), CAST(? AS INT), CAST(? AS DOUBLE PRECISION), "
+                + "CAST(? AS DOUBLE PRECISION))) s(player_id, elo, rd, volatility) "
+                + "ON t.player_id = s.player_id "
+                + "WHEN MATCHED THEN UPDATE SET elo = s.elo, rd = s.rd, volatility = s.volatility, version = t.version + 1 "
+                + "WHEN NOT MATCHED THEN INSERT (player_id, elo, rd, volatility) VALUES (s.player_id, s.elo, s.rd, s.volatility)";
+        String keepMatchesSql = "INSERT INTO rating_period_matches (match_id, source, period_end) "
+                + "SELECT match_id, source, ? FROM rating_period_results WHERE id <= ? AND match_id IS NOT NULL";
+        String dequeueSql = "DELETE FROM rating_period_results WHERE id <= ?";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement upsert = conn.prepareStatement(upsertSql);
+                 PreparedStatement keepMatches = conn.prepareStatement(keepMatchesSql);
+                 PreparedStatement dequeue = conn.prepareStatement(dequeueSql)) {
+                for (RatingState state : states) {
+                    upsert.setLong(1, parseKey(state.playerId));
+                    upsert.setInt(2, state.elo);
+                    upsert.setDouble(3, state.deviation);
+                    upsert.setDouble(4, state.volatility);
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+                RatingLedger.appendEvents(conn, events);
+                keepMatches.setLong(1, lastResultId);
+                keepMatches.setLong(2, lastResultId);
+                keepMatches.executeUpdate();
+                dequeue.setLong(1, lastResultId);
+                dequeue.executeUpdate();
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error saving rating period of " + states.size() + " rating(s)", e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies a sequence of match results to the stored ratings in one transaction with optimistic concurrency:
+     * one {@code SELECT} reads every involved row with its version, the new ratings are computed in order
+     * (a player appearing in several results carries the updated value forward), and one batched compare-and-set
+     * {@code UPDATE ... WHERE version = ?} writes them back together with one rating event per player and result.
+     * If another writer changed one of the rows in between, nothing is written and the whole read-compute-write
+     * is retried, up to {@value #MAX_RATING_UPDATE_ATTEMPTS} times. No row locks are held while computing, so
+     * results for unrelated players never wait on each other.
+     *
+     * @param results    match results in the order they should be applied
+     * @param initialElo rating used for players that have no row yet
+     * @param calculator computes {@code {newWinnerElo, newLoserElo}} from the current ratings
+     * @return the new rating of every involved player
+     * @throws IllegalStateException if the transaction failed or kept conflicting, and was rolled back
+     */
+    @Override
+    public Map<String, Integer> applyMatchResults(List<MatchResult> results, int initialElo, RatingCalculator calculator) {
+        if (results.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Set<String> playerIds = new LinkedHashSet<>();
+        for (MatchResult result : results) {
+            playerIds.add(result.winnerId);
+            playerIds.add(result.loserId);
+        }
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            for (int attempt = 1; attempt <= MAX_RATING_UPDATE_ATTEMPTS; attempt++) {
+                Map<String, Integer> updated = tryApplyMatchResults(conn, results, playerIds, initialElo, calculator);
+                if (updated != null) {
+                    return updated;
+                }
+                logger.debug("Rating update for {} conflicted with a concurrent writer (attempt {})", playerIds, attempt);
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5 * attempt + 1));
+            }
+            throw new IllegalStateException("Gave up applying " + results.size() + " match result(s) after "
+                    + MAX_RATING_UPDATE_ATTEMPTS + " conflicting attempts");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to apply " + results.size() + " match result(s)", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying " + results.size() + " match result(s)", e);
+        }
+    }
+
+    /**
+     * One optimistic attempt. Commits and returns the new ratings, or rolls back and returns null if a row was
+     * changed or inserted by someone else since it was read.
+     */
+    private Map<String, Integer> tryApplyMatchResults(Connection conn, List<MatchResult> results, Set<String> playerIds,
+                                                      int initialElo, RatingCalculator calculator) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(playerIds.size(), "?"));
+        String selectSql = "SELECT player_id, elo, version FROM elo_ratings WHERE player_id IN (" + placeholders + ")";
+        String updateSql = "UPDATE elo_ratings SET elo = ?, version = version + 1, last_played = ? WHERE player_id = ? AND version = ?";
+        String insertSql = "INSERT INTO elo_ratings (player_id, elo, last_played) VALUES (?, ?, ?)";
+
+        try {
+            Map<String, Integer> current = new HashMap<>();
+            Map<String, Long> versions = new HashMap<>();
+            try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                int index = 1;
+                for (String playerId : playerIds) {
+                    select.setLong(index++, parseKey(playerId));
+                }
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        current.put(rs.getString("player_id"), rs.getInt("elo"));
+                        versions.put(rs.getString("player_id"), rs.getLong("version"));
+                    }
+                }
+            }
+
+            List<RatingEvent> events = new ArrayList<>();
+            for (MatchResult result : results) {
+                int winnerElo = current.getOrDefault(result.winnerId, initialElo);
+                int loserElo = current.getOrDefault(result.loserId, initialElo);
+                int[] updated = calculator.calculate(winnerElo, loserElo);
+                current.put(result.winnerId, updated[0]);
+                current.put(result.loserId, updated[1]);
+                events.addAll(result.toEvents(winnerElo, loserElo, updated));
+            }
+
+            try (PreparedStatement update = conn.prepareStatement(updateSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                boolean inserts = false;
+                Timestamp playedAt = new Timestamp(System.currentTimeMillis());
+                for (String playerId : playerIds) {
+                    Long version = versions.get(playerId);
+                    if (version != null) {
+                        update.setInt(1, current.get(playerId));
+                        update.setTimestamp(2, playedAt);
+                        update.setLong(3, parseKey(playerId));
+                        update.setLong(4, version);
+                        update.addBatch();
+                    } else {
+                        insert.setLong(1, parseKey(playerId));
+                        insert.setInt(2, current.get(playerId));
+                        insert.setTimestamp(3, playedAt);
+                        insert.addBatch();
+                        inserts = true;
+                    }
+                }
+                if (!versions.isEmpty()) {
+                    for (int count : update.executeBatch()) {
+                        if (count == 0) {
+                            conn.rollback();
+                            return null;
+                        }
+                    }
+                }
+                if (inserts) {
+                    try {
+                        insert.executeBatch();
+                    } catch (SQLException e) {
+                        if (!isDuplicateKey(e)) {
+                            throw e;
+                        }
+                        // Another writer created the player's row first
+                        conn.rollback();
+                        return null;
+                    }
+                }
+            }
+            RatingLedger.appendEvents(conn, events);
+            conn.commit();
+
+            Map<String, Integer> updatedRatings = new HashMap<>();
+            for (String playerId : playerIds) {
+                updatedRatings.put(playerId, current.get(playerId));
+            }
+            return updatedRatings;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the match and its downstream chain in the ledger, upserts the changed ratings in one batch and
+     * replaces ledger snapshots that held the old ratings, all in one transaction.
+     */
+    @Override
+    public RatingCorrection correctMatchResult(String matchId, String winnerId, Function<RatingEvent.Source, RatingCalculator> calculators,
+                                               int minElo) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement upsert = conn.prepareStatement(UPSERT_RATING_SQL)) {
+                Timestamp seasonStart = null;
+                try (ResultSet rs = stmt.executeQuery("SELECT started_at FROM seasons WHERE ended_at IS NULL ORDER BY id DESC LIMIT 1")) {
+                    if (rs.next()) {
+                        seasonStart = rs.getTimestamp(1);
+                    }
+                }
+                RatingCorrection correction = RatingLedger.correctResult(conn, matchId, winnerId, calculators, minElo, seasonStart);
+                if (correction.rewrittenEvents == 0) {
+                    conn.rollback();
+                    return correction;
+                }
+                for (Map.Entry<String, Integer> entry : correction.ratings.entrySet()) {
+                    upsert.setLong(1, parseKey(entry.getKey()));
+                    upsert.setInt(2, entry.getValue());
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+                RatingLedger.replaceSnapshotsFrom(conn, correction.firstEventId);
+                RatingLedger.advanceGeneration(conn);
+                conn.commit();
+                return correction;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error correcting match " + matchId, e);
+            throw new IllegalStateException("Failed to correct match " + matchId, e);
+        }
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if ("23505".equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public CompletableFuture<Void> insertEloRatingAsync(String playerId, int initialElo) {
+        return runAsync(() -> insertEloRating(playerId, initialElo));
+    }
+
+    public CompletableFuture<Void> updateEloRatingAsync(String playerId, int newElo) {
+        return runAsync(() -> updateEloRating(playerId, newElo));
+    }
+
+    public CompletableFuture<Integer> getEloRatingAsync(String playerId) {
+        return supplyAsync(() -> getEloRating(playerId));
+    }
+
+    public CompletableFuture<List<PlayerElo>> getTopPlayersAsync(int limit) {
+        return supplyAsync(() -> getTopPlayers(limit));
+    }
+
     public List<PlayerElo> getTopPlayers(int limit) {
         List<PlayerElo> topPlayers = new ArrayList<>();
         String sql = "SELECT player_id, elo FROM elo_ratings ORDER BY elo DESC LIMIT ?";
@@ -148,12 +712,336 @@ public class DatabaseManager {
         return topPlayers;
     }
 
+    /**
+     * Runs the whole rollover in one transaction. The archive copy is a single {@code INSERT ... SELECT} and the
+     * reset a single {@code UPDATE}, so no rating is read into the application. Because the reset bypasses the
+     * rating events, a ledger snapshot of the reset ratings is written in the same transaction; replaying the
+     * ledger therefore starts from the new season.
+     */
+    @Override
+    public SeasonRollover closeSeason(String nextSeasonName, double carryOver, int initialElo) {
+        long start = System.currentTimeMillis();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                int closedSeasonId;
+                try (ResultSet rs = stmt.executeQuery("SELECT id FROM seasons WHERE ended_at IS NULL ORDER BY id DESC LIMIT 1 FOR UPDATE")) {
+                    if (!rs.next()) {
+                        throw new SQLException("No open season to close");
+                    }
+                    closedSeasonId = rs.getInt(1);
+                }
+
+                int archived;
+                try (PreparedStatement archive = conn.prepareStatement(
+                        "INSERT INTO season_ratings (season_id, player_id, elo) SELECT ?, player_id, elo FROM elo_ratings")) {
+                    archive.setInt(1, closedSeasonId);
+                    archived = archive.executeUpdate();
+                }
+
+                if (carryOver <= 0) {
+                    stmt.executeUpdate("DELETE FROM elo_ratings");
+                } else {
+                    try (PreparedStatement reset = conn.prepareStatement("UPDATE elo_ratings SET elo = CAST(ROUND(? + (elo - ?) * CAST(? AS DOUBLE PRECISION)) AS INT), version = version + 1")) {
+                        reset.setInt(1, initialElo);
+                        reset.setInt(2, initialElo);
+                        reset.setDouble(3, Math.min(carryOver, 1.0));
+                        reset.executeUpdate();
+                    }
+                    try (PreparedStatement prune = conn.prepareStatement("DELETE FROM elo_ratings WHERE elo = ?")) {
+                        prune.setInt(1, initialElo);
+                        prune.executeUpdate();
+                    }
+                }
+
+                try (PreparedStatement close = conn.prepareStatement("UPDATE seasons SET ended_at = CURRENT_TIMESTAMP WHERE id = ?")) {
+                    close.setInt(1, closedSeasonId);
+                    close.executeUpdate();
+                }
+                int newSeasonId;
+                try (PreparedStatement open = conn.prepareStatement("INSERT INTO seasons (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+                    open.setString(1, nextSeasonName);
+                    open.executeUpdate();
+                    try (ResultSet keys = open.getGeneratedKeys()) {
+                        keys.next();
+                        newSeasonId = keys.getInt(1);
+                    }
+                }
+
+                // Under the ledger lock, so the ratings read are exactly those of the events up to the watermark
+                long lastEventId = RatingLedger.lockLatestEventId(conn);
+                Map<String, Integer> liveRatings = new HashMap<>();
+                try (ResultSet rs = stmt.executeQuery("SELECT player_id, elo FROM elo_ratings")) {
+                    while (rs.next()) {
+                        liveRatings.put(rs.getString("player_id"), rs.getInt("elo"));
+                    }
+                }
+                RatingLedger.insertSnapshot(conn, lastEventId, liveRatings);
+                RatingLedger.advanceGeneration(conn);
+
+                conn.commit();
+                return new SeasonRollover(closedSeasonId, newSeasonId, archived, liveRatings.size(), System.currentTimeMillis() - start);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error closing season", e);
+            throw new IllegalStateException("Failed to close the season", e);
+        }
+    }
+
+    /**
+     * Applies the decay with one {@code UPDATE} in one transaction and records it in the ledger. The ratings the
+     * update replaced come back from its old rows, so no rating is read into the application beforehand. The events
+     * are appended after the update, since appending takes the ledger lock and every writer takes it last.
+     */
+    @Override
+    public RatingDecay decayInactiveRatings(long inactiveSinceMillis, int points, int minElo) {
+        String decaySql = "SELECT player_id, elo FROM OLD TABLE (UPDATE elo_ratings SET elo = GREATEST(?, elo - ?), "
+                + "version = version + 1 WHERE last_played < ? AND elo > ?)";
+
+        long start = System.currentTimeMillis();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement decay = conn.prepareStatement(decaySql)) {
+                Map<String, Integer> decayed = new HashMap<>();
+                List<RatingEvent> events = new ArrayList<>();
+                decay.setInt(1, minElo);
+                decay.setInt(2, points);
+                decay.setTimestamp(3, new Timestamp(inactiveSinceMillis));
+                decay.setInt(4, minElo);
+                try (ResultSet rs = decay.executeQuery()) {
+                    while (rs.next()) {
+                        String playerId = rs.getString("player_id");
+                        int oldElo = rs.getInt("elo");
+                        int newElo = Math.max(minElo, oldElo - points);
+                        decayed.put(playerId, newElo);
+                        events.add(new RatingEvent(RatingLedger.decayReference(points), playerId, null, oldElo, newElo, null,
+                                RatingEvent.Source.INACTIVITY_DECAY));
+                    }
+                }
+                RatingLedger.appendEvents(conn, events);
+                conn.commit();
+                return new RatingDecay(decayed, System.currentTimeMillis() - start);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error decaying inactive ratings", e);
+            throw new IllegalStateException("Failed to decay inactive ratings", e);
+        }
+    }
+
+    @Override
+    public List<PlayerElo> getSeasonLeaderboard(int seasonId, int limit) {
+        List<PlayerElo> topPlayers = new ArrayList<>();
+        String sql = "SELECT player_id, elo FROM season_ratings WHERE season_id = ? ORDER BY elo DESC LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, seasonId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    topPlayers.add(new PlayerElo(rs.getString("player_id"), rs.getInt("elo")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error retrieving leaderboard for season " + seasonId, e);
+        }
+        return topPlayers;
+    }
+
+    /**
+     * Queues the entries in one transaction. A concurrent enqueue of the same dedup key shows up as a duplicate key
+     * on the unique constraint; the batch is then retried and the other copy wins.
+     */
+    @Override
+    public int enqueueOutbox(List<OutboxEntry> entries) {
+        String deleteFailedSql = "DELETE FROM outbox WHERE dedup_key = ? AND status = 'FAILED'";
+        String insertSql = "INSERT INTO outbox (dedup_key, partition_key, kind, payload) SELECT ?, ?, ?, ? "
+                + "WHERE NOT EXISTS (SELECT 1 FROM outbox WHERE dedup_key = ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            for (int attempt = 1; ; attempt++) {
+                try (PreparedStatement deleteFailed = conn.prepareStatement(deleteFailedSql);
+                     PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                    int queued = 0;
+                    for (OutboxEntry entry : entries) {
+                        deleteFailed.setString(1, entry.dedupKey);
+                        deleteFailed.executeUpdate();
+                        insert.setString(1, entry.dedupKey);
+                        insert.setString(2, entry.partitionKey);
+                        insert.setString(3, entry.kind.name());
+                        insert.setString(4, entry.payload);
+                        insert.setString(5, entry.dedupKey);
+                        queued += insert.executeUpdate();
+                    }
+                    conn.commit();
+                    return queued;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (!isDuplicateKey(e) || attempt >= MAX_RATING_UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error queueing " + entries.size() + " outbox entries", e);
+            throw new IllegalStateException("Failed to queue outbox entries", e);
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> getDueOutboxEntries(int limit) {
+        List<OutboxEntry> due = new ArrayList<>();
+        String sql = "SELECT id, dedup_key, partition_key, kind, payload, attempts FROM outbox o "
+                + "WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP "
+                + "AND id = (SELECT MIN(id) FROM outbox p WHERE p.status = 'PENDING' AND p.partition_key = o.partition_key) "
+                + "ORDER BY id LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    due.add(new OutboxEntry(rs.getLong("id"), rs.getString("dedup_key"), rs.getString("partition_key"),
+                            OutboxEntry.Kind.valueOf(rs.getString("kind")), rs.getString("payload"), rs.getInt("attempts")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error reading due outbox entries", e);
+        }
+        return due;
+    }
+
+    @Override
+    public void markOutboxDelivered(long id) {
+        String sql = "UPDATE outbox SET status = 'DELIVERED', attempts = attempts + 1, delivered_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error marking outbox entry delivered: " + id, e);
+        }
+    }
+
+    @Override
+    public void rescheduleOutboxEntry(long id, long delayMillis, String error) {
+        String sql = "UPDATE outbox SET attempts = attempts + 1, next_attempt_at = DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP), "
+                + "last_error = ? WHERE id = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, delayMillis);
+            pstmt.setString(2, truncateError(error));
+            pstmt.setLong(3, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error rescheduling outbox entry: " + id, e);
+        }
+    }
+
+    @Override
+    public void markOutboxFailed(long id, String error) {
+        String sql = "UPDATE outbox SET status = 'FAILED', attempts = attempts + 1, last_error = ? WHERE id = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, truncateError(error));
+            pstmt.setLong(2, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error marking outbox entry failed: " + id, e);
+        }
+    }
+
+    @Override
+    public int purgeDeliveredOutbox(long ageMillis) {
+        String sql = "DELETE FROM outbox WHERE status = 'DELIVERED' AND delivered_at < DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP)";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, -ageMillis);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error purging delivered outbox entries", e);
+            return 0;
+        }
+    }
+
+    private static String truncateError(String error) {
+        return error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+
+    /**
+     * Lease times come from the database's clock, so instances with skewed clocks still agree on expiry.
+     */
+    @Override
+    public boolean tryAcquireLease(String name, String holder, long durationMillis) {
+        String renewSql = "UPDATE leases SET holder = ?, "
+                + "acquired_at = CASE WHEN holder = ? THEN acquired_at ELSE CURRENT_TIMESTAMP END, "
+                + "expires_at = DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP) "
+                + "WHERE name = ? AND (holder = ? OR expires_at < CURRENT_TIMESTAMP)";
+        String insertSql = "INSERT INTO leases (name, holder, acquired_at, expires_at) "
+                + "VALUES (?, ?, CURRENT_TIMESTAMP, DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP))";
+
+        try (Connection conn = getConnection()) {
+            try (PreparedStatement renew = conn.prepareStatement(renewSql)) {
+                renew.setString(1, holder);
+                renew.setString(2, holder);
+                renew.setLong(3, durationMillis);
+                renew.setString(4, name);
+                renew.setString(5, holder);
+                if (renew.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                insert.setString(1, name);
+                insert.setString(2, holder);
+                insert.setLong(3, durationMillis);
+                insert.executeUpdate();
+                return true;
+            } catch (SQLException e) {
+                if (isDuplicateKey(e)) {
+                    // Someone else holds an unexpired lease
+                    return false;
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error acquiring lease " + name + " for " + holder, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseLease(String name, String holder) {
+        String sql = "UPDATE leases SET expires_at = DATEADD(MILLISECOND, -1, CURRENT_TIMESTAMP) WHERE name = ? AND holder = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, holder);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error releasing lease " + name + " for " + holder, e);
+        }
+    }
+
+    @Override
     public void createTournament(String tournamentId, String name, String status) {
         String sql = "INSERT INTO tournaments (id, name, status) VALUES (?, ?, ?)";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, tournamentId);
+            pstmt.setLong(1, parseKey(tournamentId));
             pstmt.setString(2, name);
             pstmt.setString(3, status);
             pstmt.executeUpdate();
@@ -162,28 +1050,30 @@ public class DatabaseManager {
         }
     }
 
+    @Override
     public void addTournamentParticipant(String tournamentId, String playerId) {
         String sql = "INSERT INTO tournament_participants (tournament_id, player_id) VALUES (?, ?)";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, tournamentId);
-            pstmt.setString(2, playerId);
+            pstmt.setLong(1, parseKey(tournamentId));
+            pstmt.setLong(2, parseKey(playerId));
             pstmt.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error adding participant to tournament: " + tournamentId + ", player: " + playerId, e);
         }
     }
 
+    @Override
     public void createTournamentMatch(String matchId, String tournamentId, String player1Id, String player2Id, String status) {
         String sql = "INSERT INTO tournament_matches (id, tournament_id, player1_id, player2_id, status) VALUES (?, ?, ?, ?, ?)";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, matchId);
-            pstmt.setString(2, tournamentId);
-            pstmt.setString(3, player1Id);
-            pstmt.setString(4, player2Id);
+            pstmt.setLong(1, parseKey(matchId));
+            pstmt.setLong(2, parseKey(tournamentId));
+            pstmt.setLong(3, parseKey(player1Id));
+            pstmt.setLong(4, parseKey(player2Id));
             pstmt.setString(5, status);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -191,40 +1081,152 @@ public class DatabaseManager {
         }
     }
 
+    @Override
     public void updateTournamentMatchResult(String matchId, String winnerId, String score) {
         String sql = "UPDATE tournament_matches SET winner_id = ?, score = ?, status = 'COMPLETED' WHERE id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, winnerId);
+            pstmt.setLong(1, parseKey(winnerId));
             pstmt.setString(2, score);
-            pstmt.setString(3, matchId);
+            pstmt.setLong(3, parseKey(matchId));
             pstmt.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error updating tournament match result: " + matchId, e);
         }
     }
 
+    @Override
     public void updateTournamentStatus(String tournamentId, String status) {
         String sql = "UPDATE tournaments SET status = ? WHERE id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status);
-            pstmt.setString(2, tournamentId);
+            pstmt.setLong(2, parseKey(tournamentId));
             pstmt.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error updating tournament status: " + tournamentId, e);
         }
     }
 
-    public static class PlayerElo {
-        public final String playerId;
-        public final int elo;
+    @Override
+    public boolean saveTournamentChanges(TournamentChanges changes) {
+        // A status update without a channel or type keeps the stored ones
+        String tournamentSql = "MERGE INTO tournaments t USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS VARCHAR), "
+                + "CAST(? AS BIGINT), CAST(? AS VARCHAR))) s (id, name, status, channel_id, tournament_type) ON t.id = s.id "
+                + "WHEN MATCHED THEN UPDATE SET name = s.name, status = s.status, channel_id = COALESCE(s.channel_id, t.channel_id), "
+                + "tournament_type = COALESCE(s.tournament_type, t.tournament_type) "
+                + "WHEN NOT MATCHED THEN INSERT (id, name, status, channel_id, tournament_type) "
+                + "VALUES (s.id, s.name, s.status, s.channel_id, s.tournament_type)";
+        String participantSql = "MERGE INTO tournament_participants (tournament_id, player_id) KEY (tournament_id, player_id) VALUES (?, ?)";
+        String matchSql = "MERGE INTO tournament_matches (id, tournament_id, player1_id, player2_id, winner_id, score, status) "
+                + "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement tournaments = conn.prepareStatement(tournamentSql);
+                 PreparedStatement participants = conn.prepareStatement(participantSql);
+                 PreparedStatement matches = conn.prepareStatement(matchSql)) {
+                // Parents first, so the tournament foreign keys hold within the batch
+                for (TournamentChanges.Tournament tournament : changes.tournaments) {
+                    tournaments.setLong(1, parseKey(tournament.id));
+                    tournaments.setString(2, tournament.name);
+                    tournaments.setString(3, tournament.status);
+                    if (tournament.channelId != null) {
+                        tournaments.setLong(4, parseKey(tournament.channelId));
+                    } else {
+                        tournaments.setNull(4, Types.BIGINT);
+                    }
+                    tournaments.setString(5, tournament.tournamentType);
+                    tournaments.addBatch();
+                }
+                tournaments.executeBatch();
+
+                for (TournamentChanges.Participant participant : changes.participants) {
+                    participants.setLong(1, parseKey(participant.tournamentId));
+                    participants.setLong(2, parseKey(participant.playerId));
+                    participants.addBatch();
+                }
+                participants.executeBatch();
 
-        public PlayerElo(String playerId, int elo) {
-            this.playerId = playerId;
-            this.elo = elo;
+                for (TournamentMatch match : changes.matches) {
+                    matches.setLong(1, parseKey(match.id));
+                    matches.setLong(2, parseKey(match.tournamentId));
+                    matches.setLong(3, parseKey(match.player1Id));
+                    matches.setLong(4, parseKey(match.player2Id));
+                    if (match.winnerId != null) {
+                        matches.setLong(5, parseKey(match.winnerId));
+                    } else {
+                        matches.setNull(5, Types.BIGINT);
+                    }
+                    matches.setString(6, match.score);
+                    matches.setString(7, match.status);
+                    matches.addBatch();
+                }
+                matches.executeBatch();
+
+                conn.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Error saving " + changes.size() + " tournament change(s)", e);
+            return false;
+        }
+    }
+
+    /**
+     * Each side of the union reads one player index, already in tournament order.
+     */
+    @Override
+    public List<PlayerSet> getPlayerSets(String playerId, int limit) {
+        List<PlayerSet> sets = new ArrayList<>();
+        String sql = "SELECT m.id, m.tournament_id, t.name, m.player1_id, m.player2_id, m.winner_id, m.score, m.status FROM ("
+                + "SELECT * FROM tournament_matches WHERE player1_id = ? "
+                + "UNION ALL SELECT * FROM tournament_matches WHERE player2_id = ? AND player1_id <> ?"
+                + ") m JOIN tournaments t ON t.id = m.tournament_id "
+                + "ORDER BY m.tournament_id DESC, m.id DESC LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            long id = parseKey(playerId);
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, id);
+            pstmt.setLong(3, id);
+            pstmt.setInt(4, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TournamentMatch match = new TournamentMatch(rs.getString("id"), rs.getString("tournament_id"),
+                            rs.getString("player1_id"), rs.getString("player2_id"), rs.getString("winner_id"),
+                            rs.getString("score"), rs.getString("status"));
+                    sets.add(PlayerSet.of(match, playerId, rs.getString("name")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error retrieving tournament sets for player " + playerId, e);
+        }
+        return sets;
+    }
+
+    @Override
+    public List<TournamentChanges.Tournament> loadOpenTournaments() {
+        List<TournamentChanges.Tournament> open = new ArrayList<>();
+        String sql = "SELECT id, name, status, channel_id, tournament_type FROM tournaments "
+                + "WHERE channel_id IS NOT NULL AND status <> 'COMPLETED' ORDER BY id";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                open.add(new TournamentChanges.Tournament(rs.getString("id"), rs.getString("name"), rs.getString("status"),
+                        rs.getString("channel_id"), rs.getString("tournament_type")));
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading open tournaments", e);
         }
+        return open;
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,8 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
+import org.discord.handlers.storage.RatingEvent;
+import org.discord.utils.CommandRateMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,19 +19,24 @@ import java.awt.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 public class DiscordCommandHandler extends ListenerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(DiscordCommandHandler.class);
     private static final int COOLDOWN_SECONDS = 5;
+    private static final int CORRECTION_RATINGS_SHOWN = 10;
     private final JDA jda;
     private final TournamentManager tournamentManager;
     private final RankedMatchManager rankedMatchManager;
     private final EloManager eloManager;
+    private final CommandRateMonitor commandRate;
     private final Map<String, Map<String, Long>> commandCooldowns = new HashMap<>();
 
-    public DiscordCommandHandler(JDA jda, TournamentManager tournamentManager, RankedMatchManager rankedMatchManager, EloManager eloManager) {
+    public DiscordCommandHandler(JDA jda, TournamentManager tournamentManager, RankedMatchManager rankedMatchManager, EloManager eloManager,
+                                 CommandRateMonitor commandRate) {
         this.jda = jda;
+        this.commandRate = commandRate;
         this.tournamentManager = tournamentManager;
         this.rankedMatchManager = rankedMatchManager;
         this.eloManager = eloManager;
@@ -56,12 +63,25 @@ public class DiscordCommandHandler extends ListenerAdapter {
                                 new SubcommandData("start", "Start the current tournament."),
                                 new SubcommandData("randomize", "Randomize the seeding before starting the tournament.")
                         ),
+                Commands.slash("season", "Ranked season commands.")
+                        .addSubcommands(
+                                new SubcommandData("close", "Close the current season and start a new one (TO only).")
+                                        .addOption(OptionType.STRING, "name", "Name of the new season", true)
+                                        .addOption(OptionType.INTEGER, "carryover", "Percent of rating above/below 1000 kept (0-100, default 50)", false),
+                                new SubcommandData("leaderboard", "Display the final top 5 of a closed season.")
+                                        .addOption(OptionType.INTEGER, "season", "Season number", true)
+                        ),
                 Commands.slash("register", "Register for the current tournament."),
                 Commands.slash("leaderboard", "Display the top 5 players by ELO."),
+                Commands.slash("sets", "Display recent tournament sets.")
+                        .addOption(OptionType.USER, "player", "The player whose sets to show (defaults to you)", false),
                 Commands.slash("rules", "Display the Smash Ultimate rules."),
                 Commands.slash("setelo", "Set a player's ELO (TO only)")
                         .addOption(OptionType.USER, "player", "The player whose ELO to set", true)
                         .addOption(OptionType.INTEGER, "elo", "The new ELO rating", true),
+                Commands.slash("correct", "Correct the winner of a past ranked match (TO only)")
+                        .addOption(OptionType.STRING, "match", "The match ID", true)
+                        .addOption(OptionType.USER, "winner", "The player who actually won", true),
                 Commands.slash("coinflip", "Flip a coin")
                         .addOption(OptionType.STRING, "choice", "Your guess: heads or tails", true)
         ).queue();
@@ -70,6 +90,7 @@ public class DiscordCommandHandler extends ListenerAdapter {
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
         String command = event.getName();
+        commandRate.record();
         if (isOnCooldown(event.getUser().getId(), command)) {
             event.reply("This command is on cooldown. Please wait before using it again.").setEphemeral(true).queue();
             return;
@@ -80,6 +101,9 @@ public class DiscordCommandHandler extends ListenerAdapter {
                 case "setelo":
                     handleSetEloCommand(event);
                     break;
+                case "correct":
+                    handleCorrectCommand(event);
+                    break;
                 case "coinflip":
                     handleCoinFlipCommand(event);
                     break;
@@ -101,12 +125,18 @@ public class DiscordCommandHandler extends ListenerAdapter {
                 case "tournament":
                     handleTournamentCommand(event);
                     break;
+                case "season":
+                    handleSeasonCommand(event);
+                    break;
                 case "register":
                     tournamentManager.handleRegisterCommand(event);
                     break;
                 case "report":
                     tournamentManager.handleReportCommand(event);
                     break;
+                case "sets":
+                    tournamentManager.handleSetsCommand(event);
+                    break;
                 case "rules":
                     handleRulesCommand(event);
                     break;
@@ -135,10 +165,63 @@ public class DiscordCommandHandler extends ListenerAdapter {
             return;
         }
 
-        int oldElo = eloManager.getElo(player);
-        eloManager.setElo(player, newElo);
+        event.deferReply().queue();
+        eloManager.getEloAsync(player)
+                .thenCompose(oldElo -> eloManager.setEloAsync(player, newElo, RatingEvent.Source.ADMIN_SET, null).thenApply(ignored -> oldElo))
+                .whenComplete((oldElo, error) -> {
+                    if (error != null) {
+                        logger.error("Error setting ELO for player " + player.getId(), error);
+                        event.getHook().sendMessage("An error occurred while updating the ELO.").queue();
+                        return;
+                    }
+                    event.getHook().sendMessage("Updated ELO for " + player.getAsMention() + ": " + oldElo + " → " + newElo).queue();
+                });
+    }
+
+    private void handleCorrectCommand(SlashCommandInteractionEvent event) {
+        if (!hasTORole(event.getMember())) {
+            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            return;
+        }
+        if (eloManager.isRatingPeriodic()) {
+            event.reply("Results are rated by period, so past results cannot be corrected.").setEphemeral(true).queue();
+            return;
+        }
+
+        String matchId = event.getOption("match").getAsString().trim();
+        User winner = event.getOption("winner").getAsUser();
 
-        event.reply("Updated ELO for " + player.getAsMention() + ": " + oldElo + " → " + newElo).queue();
+        event.deferReply().queue();
+        eloManager.correctResultAsync(matchId, winner.getId())
+                .whenComplete((correction, error) -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof IllegalArgumentException) {
+                        event.getHook().sendMessage(cause.getMessage() + ".").queue();
+                        return;
+                    }
+                    if (cause != null) {
+                        logger.error("Error correcting match " + matchId, cause);
+                        event.getHook().sendMessage("An error occurred while correcting the match.").queue();
+                        return;
+                    }
+                    if (correction.rewrittenEvents == 0) {
+                        event.getHook().sendMessage(winner.getAsMention() + " is already recorded as the winner of match " + matchId + ".").queue();
+                        return;
+                    }
+                    StringBuilder message = new StringBuilder("Corrected match " + matchId + ": " + winner.getAsMention()
+                            + " won. Recalculated " + correction.recalculatedGames + " game(s)");
+                    if (correction.ratings.isEmpty()) {
+                        message.append("; no current rating changed.");
+                    } else {
+                        message.append("; current ratings:");
+                        correction.ratings.entrySet().stream().limit(CORRECTION_RATINGS_SHOWN)
+                                .forEach(entry -> message.append("\n<@").append(entry.getKey()).append(">: ").append(entry.getValue()));
+                        if (correction.ratings.size() > CORRECTION_RATINGS_SHOWN) {
+                            message.append("\n…and ").append(correction.ratings.size() - CORRECTION_RATINGS_SHOWN).append(" more.");
+                        }
+                    }
+                    event.getHook().sendMessage(message.toString()).queue();
+                });
     }
 
     private void handleCoinFlipCommand(SlashCommandInteractionEvent event) {
@@ -170,6 +253,7 @@ public class DiscordCommandHandler extends ListenerAdapter {
     @Override
     public void onButtonInteraction(ButtonInteractionEvent event) {
         String componentId = event.getComponentId();
+        commandRate.record();
 
         try {
             if (componentId.startsWith("accept_ranked_match_")) {
@@ -232,6 +316,53 @@ public class DiscordCommandHandler extends ListenerAdapter {
         }
     }
 
+    private void handleSeasonCommand(SlashCommandInteractionEvent event) {
+        String subcommand = event.getSubcommandName();
+        if (subcommand == null) {
+            event.reply("Invalid subcommand.").setEphemeral(true).queue();
+            return;
+        }
+
+        switch (subcommand) {
+            case "close":
+                handleCloseSeasonCommand(event);
+                break;
+            case "leaderboard":
+                eloManager.handleSeasonLeaderboardCommand(event, event.getOption("season").getAsInt());
+                break;
+            default:
+                event.reply("Unknown subcommand.").setEphemeral(true).queue();
+                break;
+        }
+    }
+
+    private void handleCloseSeasonCommand(SlashCommandInteractionEvent event) {
+        if (!hasTORole(event.getMember())) {
+            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            return;
+        }
+
+        String name = event.getOption("name").getAsString();
+        int carryOverPercent = event.getOption("carryover") != null ? event.getOption("carryover").getAsInt() : 50;
+        if (carryOverPercent < 0 || carryOverPercent > 100) {
+            event.reply("Invalid carryover. Please enter a percentage between 0 and 100.").setEphemeral(true).queue();
+            return;
+        }
+
+        event.deferReply().queue();
+        eloManager.closeSeasonAsync(name, carryOverPercent / 100.0)
+                .whenComplete((rollover, error) -> {
+                    if (error != null) {
+                        logger.error("Error closing season", error);
+                        event.getHook().sendMessage("An error occurred while closing the season.").queue();
+                        return;
+                    }
+                    event.getHook().sendMessage("Season " + rollover.closedSeasonId + " closed with " + rollover.archivedRatings
+                            + " ranked player(s). " + name + " (season " + rollover.newSeasonId + ") has started with "
+                            + carryOverPercent + "% of ratings carried over.").queue();
+                });
+    }
+
 
     private void handleRulesCommand(SlashCommandInteractionEvent event) {
         EmbedBuilder embed = new EmbedBuilder();
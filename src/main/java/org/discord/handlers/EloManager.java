@@ -3,132 +3,808 @@ package org.discord.handlers;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.discord.handlers.rating.EloRatingEngine;
+import org.discord.handlers.rating.MatchRatingEngine;
+import org.discord.handlers.rating.PeriodicRatingEngine;
+import org.discord.handlers.rating.RatingEngine;
+import org.discord.handlers.rating.RatingTable;
+import org.discord.handlers.storage.HeapRatingStore;
+import org.discord.handlers.storage.LedgerChanges;
+import org.discord.handlers.storage.MatchResult;
+import org.discord.handlers.storage.PlayerElo;
+import org.discord.handlers.storage.RatingCalculator;
+import org.discord.handlers.storage.RatingCorrection;
+import org.discord.handlers.storage.RatingDecay;
+import org.discord.handlers.storage.RatingEvent;
+import org.discord.handlers.storage.RatingPeriod;
+import org.discord.handlers.storage.RatingState;
+import org.discord.handlers.storage.RatingStore;
+import org.discord.handlers.storage.SeasonRollover;
+import org.discord.handlers.storage.StorageBackend;
+import org.discord.utils.StripedLocks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
+/**
+ * Owns player ratings.
+ * <p>
+ * Ratings are loaded into a {@link RatingStore} by {@link #start()} and every read is served from it: on the heap
+ * by default, or from a memory-mapped file for very large ladders.
+ * With a positive flush interval the store is authoritative: changed players are marked dirty and
+ * written back in one batched transaction every flush interval and once more on {@link #shutdown()}.
+ * With a flush interval of zero, match results are written through with
+ * {@link StorageBackend#applyMatchResults} before the store is updated.
+ * <p>
+ * Every change is also recorded as a {@link RatingEvent} in the same transaction as the rating itself,
+ * and startup rebuilds the store from the latest ledger snapshot plus the events after it, unless a persistent
+ * store was checkpointed at the ledger's current position.
+ * <p>
+ * Each rating change locks only the players it touches, on striped per-player locks, so unrelated matches are
+ * applied in parallel while changes to the same player are serialized. Changes also share a read lock that the
+ * flush takes exclusively, only while it drains, so every flushed batch is a consistent cut of ratings and
+ * events. {@link #closeSeason} archives the season and resets ratings in storage, then reloads the store, under
+ * the same exclusive lock, and {@link #correctResult} rewrites a past result and its downstream chain likewise.
+ * <p>
+ * Ratings are calculated by a {@link RatingEngine}, Elo with a K-factor of 32 by default. With a periodic engine
+ * such as Glicko-2, results only queue up; {@link #closeRatingPeriod()} rates each period's results together and
+ * stores every changed rating in one batch. The leader instance closes a period every rating period interval.
+ * <p>
+ * Once {@link #startInactivityDecay} is called, the leader also decays players who stopped playing, with one
+ * set-based update in storage rather than a rating change per player.
+ * <p>
+ * Instances that share a database must write through, and follow each other's changes by reading the ledger every
+ * ledger follow interval: the store takes the latest rating of every player changed since it last looked, or is
+ * reloaded if a correction or season rollover rewrote ratings without appending events.
+ */
 public class EloManager {
     private static final Logger logger = LoggerFactory.getLogger(EloManager.class);
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5_000;
+    public static final long DEFAULT_RATING_PERIOD_MILLIS = 24 * 60 * 60 * 1000;
+    public static final long DEFAULT_LEDGER_FOLLOW_MILLIS = 2_000;
+    private static final long SNAPSHOT_CHECK_INTERVAL_MILLIS = 10 * 60 * 1000;
+    private static final long SNAPSHOT_EVENT_THRESHOLD = 1_000;
     private static final int INITIAL_ELO = 1000;
-    private static final int K_FACTOR = 32;
-    private static final int MIN_ELO = 100;
+    public static final int MIN_ELO = 100;
+    private static final int LEADERBOARD_SIZE = 5;
+    private static final int PLAYER_LOCK_STRIPES = 256;
+    // Tournament sets use the tiered K-factor, so established top players move less per set
+    static final EloRatingEngine SET_RATING = new EloRatingEngine(EloRatingEngine.TIERED_K, MIN_ELO);
 
-    private final DatabaseManager databaseManager;
+    private final StorageBackend storage;
+    private final long flushIntervalMillis;
+    private final boolean writeThrough;
+    private final RatingStore ratingStore;
+    private final RatingEngine engine;
+    // Exactly one of these is the engine, so per-match rating is never asked of a periodic engine
+    private final MatchRatingEngine matchEngine;
+    private final PeriodicRatingEngine periodicEngine;
+    private final long ratingPeriodMillis;
+    private final LeaderElection leaderElection;
+    private final long ledgerFollowMillis;
+    // Ledger position and generation the store reflects while following; only touched under the exclusive state lock
+    private long followedEventId;
+    private long followedGeneration;
+    private final Set<String> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    // Events of one player are appended while holding that player's lock, so the queue keeps each player's order
+    private final ConcurrentLinkedQueue<RatingEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    // Events of a failed flush, written ahead of newer events by the next flush; only touched inside flush()
+    private final List<RatingEvent> unflushedEvents = new ArrayList<>();
+    // Write-behind results for a periodic engine, queued in storage by the next flush
+    private final ConcurrentLinkedQueue<MatchResult> pendingPeriodResults = new ConcurrentLinkedQueue<>();
+    // Period results of a failed flush; only touched inside flush()
+    private final List<MatchResult> unflushedPeriodResults = new ArrayList<>();
+    private final StripedLocks playerLocks = new StripedLocks(PLAYER_LOCK_STRIPES);
+    // Shared by rating changes; exclusive for the flush drain and the season rollover
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "elo-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    public EloManager(DatabaseManager databaseManager) {
-        this.databaseManager = databaseManager;
+    public EloManager(StorageBackend storage) {
+        this(storage, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public EloManager(StorageBackend storage, long flushIntervalMillis) {
+        this(storage, flushIntervalMillis, new HeapRatingStore());
+    }
+
+    public EloManager(StorageBackend storage, long flushIntervalMillis, RatingStore ratingStore) {
+        this(storage, flushIntervalMillis, ratingStore, new EloRatingEngine(EloRatingEngine.LADDER_K, MIN_ELO),
+                DEFAULT_RATING_PERIOD_MILLIS, null, 0);
+    }
+
+    /**
+     * @param ratingPeriodMillis how often a periodic engine's rating period is closed; ignored for other engines
+     * @param leaderElection     only the leader closes rating periods; null closes them on this instance
+     * @param ledgerFollowMillis how often ratings changed by other instances sharing the database are read from the
+     *                           ledger; 0 if this instance is the only one writing ratings
+     * @throws IllegalArgumentException if the ledger is followed with a positive flush interval, since write-behind
+     *                                  ratings would overwrite other instances' changes, or if the engine is not
+     *                                  exactly one of a match or a periodic engine
+     */
+    public EloManager(StorageBackend storage, long flushIntervalMillis, RatingStore ratingStore, RatingEngine engine,
+                      long ratingPeriodMillis, LeaderElection leaderElection, long ledgerFollowMillis) {
+        if (ledgerFollowMillis > 0 && flushIntervalMillis > 0) {
+            throw new IllegalArgumentException("Instances sharing a database must write ratings through (flush interval 0)");
+        }
+        if (engine instanceof MatchRatingEngine == engine instanceof PeriodicRatingEngine) {
+            throw new IllegalArgumentException(engine.getName() + " must rate either each match or whole rating periods");
+        }
+        this.storage = storage;
+        this.ratingStore = ratingStore;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writeThrough = flushIntervalMillis <= 0;
+        this.engine = engine;
+        this.matchEngine = engine instanceof MatchRatingEngine ? (MatchRatingEngine) engine : null;
+        this.periodicEngine = engine instanceof PeriodicRatingEngine ? (PeriodicRatingEngine) engine : null;
+        this.ratingPeriodMillis = ratingPeriodMillis;
+        this.leaderElection = leaderElection;
+        this.ledgerFollowMillis = ledgerFollowMillis;
+    }
+
+    /**
+     * Loads all ratings into the rating store and starts the periodic write-behind flush and ledger snapshots.
+     * Must be called after the storage backend has been initialized.
+     */
+    public void start() {
+        long ledgerEventId = storage.getLatestEventId();
+        if (ledgerFollowMillis > 0) {
+            // Read before loading: changes in between are replayed by the first follow, or trigger a reload
+            followedEventId = ledgerEventId;
+            followedGeneration = storage.getLedgerChanges(ledgerEventId).generation;
+        }
+        if (ledgerEventId >= 0 && ratingStore.isConsistentWith(ledgerEventId)) {
+            logger.info("Rating store is current at ledger event {}; skipping reload.", ledgerEventId);
+        } else {
+            ratingStore.clear();
+            storage.loadRatings().forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+        }
+        logger.info("Serving {} player ratings ({}, {}).", ratingStore.size(), engine.getName(),
+                writeThrough ? "write-through" : "write-behind every " + flushIntervalMillis + " ms");
+        if (!writeThrough) {
+            flushScheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (ledgerFollowMillis > 0) {
+            flushScheduler.scheduleWithFixedDelay(this::followLedger, ledgerFollowMillis, ledgerFollowMillis, TimeUnit.MILLISECONDS);
+        }
+        if (periodicEngine != null) {
+            flushScheduler.scheduleWithFixedDelay(this::closeRatingPeriodIfLeader, ratingPeriodMillis, ratingPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+        flushScheduler.scheduleWithFixedDelay(() -> snapshotIfDue(SNAPSHOT_EVENT_THRESHOLD),
+                SNAPSHOT_CHECK_INTERVAL_MILLIS, SNAPSHOT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Integer> getEloAsync(User player) {
+        return CompletableFuture.completedFuture(getElo(player));
+    }
+
+    public CompletableFuture<Void> setEloAsync(User user, int newElo, RatingEvent.Source source, String referenceId) {
+        if (writeThrough) {
+            return storage.runAsync(() -> setElo(user, newElo, source, referenceId));
+        }
+        setElo(user, newElo, source, referenceId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public CompletableFuture<Void> updateEloAsync(User winner, User loser, String matchId, RatingEvent.Source source) {
+        if (writeThrough) {
+            return storage.runAsync(() -> updateElo(winner, loser, matchId, source));
+        }
+        updateElo(winner, loser, matchId, source);
+        return CompletableFuture.completedFuture(null);
     }
 
     public int getElo(User player) {
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = "SELECT elo FROM elo_ratings WHERE player_id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, player.getId());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt("elo");
-            } else {
-                // Player not found, create a new entry with initial ELO
-                createNewPlayerEntry(player);
-                return INITIAL_ELO;
+        return getElo(player.getId());
+    }
+
+    private int getElo(String playerId) {
+        long id = Long.parseLong(playerId);
+        int elo = ratingStore.getElo(id);
+        if (elo != RatingStore.NOT_FOUND) {
+            return elo;
+        }
+        // New player: seed with the initial rating. Write-behind persists it on the next flush;
+        // write-through inserts the row with the player's first result.
+        if (ratingStore.insertIfAbsent(id, INITIAL_ELO) && !writeThrough) {
+            dirtyPlayers.add(playerId);
+        }
+        return ratingStore.getElo(id);
+    }
+
+    /**
+     * Reads many players' ratings in one pass over the rating store, with no Discord or database lookups. Players
+     * without a rating read as the initial rating but are not seeded.
+     *
+     * @return the ratings in the order of {@code playerIds}
+     */
+    public int[] getElos(List<String> playerIds) {
+        int[] ratings = new int[playerIds.size()];
+        for (int i = 0; i < ratings.length; i++) {
+            int elo = ratingStore.getElo(Long.parseLong(playerIds.get(i)));
+            ratings[i] = elo != RatingStore.NOT_FOUND ? elo : INITIAL_ELO;
+        }
+        return ratings;
+    }
+
+    /**
+     * Sets a player's rating outright, recording the change under {@code source} with an optional reference
+     * such as a tournament id.
+     */
+    public void setElo(User user, int newElo, RatingEvent.Source source, String referenceId) {
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try (StripedLocks.Held held = playerLocks.lock(List.of(user.getId()))) {
+            storeElo(user, newElo, source, referenceId);
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Updated ELO for user {} to {}", user.getId(), newElo);
+    }
+
+    private void storeElo(User user, int newElo, RatingEvent.Source source, String referenceId) {
+        if (writeThrough) {
+            RatingEvent event = new RatingEvent(referenceId, user.getId(), null, getElo(user.getId()), newElo, null, source);
+            if (!storage.saveEloRatings(Map.of(user.getId(), newElo), List.of(event))) {
+                throw new IllegalStateException("Failed to store ELO for user " + user.getId());
             }
-        } catch (SQLException e) {
-            logger.error("Error retrieving ELO for player " + player.getId(), e);
-            return INITIAL_ELO;
+            ratingStore.setElo(Long.parseLong(user.getId()), newElo);
+        } else {
+            pendingEvents.add(new RatingEvent(referenceId, user.getId(), null, getElo(user.getId()), newElo, null, source));
+            putElo(user.getId(), newElo);
         }
     }
 
-    private void createNewPlayerEntry(User player) throws SQLException {
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = "INSERT INTO elo_ratings (player_id, elo) VALUES (?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, player.getId());
-            stmt.setInt(2, INITIAL_ELO);
-            stmt.executeUpdate();
+    public void updateElo(User winner, User loser, String matchId, RatingEvent.Source source) {
+        applyMatchResults(List.of(new MatchResult(winner.getId(), loser.getId(), matchId, source)));
+    }
+
+    /**
+     * Applies match results in order. In write-through mode all of them are committed in one database
+     * transaction; otherwise they are applied in memory and persisted by the next flush.
+     *
+     * @return the new rating of every involved player
+     */
+    public Map<String, Integer> applyMatchResults(List<MatchResult> results) {
+        Set<String> playerIds = new LinkedHashSet<>();
+        for (MatchResult result : results) {
+            playerIds.add(result.winnerId);
+            playerIds.add(result.loserId);
+        }
+
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try (StripedLocks.Held held = playerLocks.lock(playerIds)) {
+            return applyInOrder(results);
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void setElo(User user, int newElo) {
-        String selectSql = "SELECT elo FROM elo_ratings WHERE player_id = ?";
-        String insertSql = "INSERT INTO elo_ratings (player_id, elo) VALUES (?, ?)";
-        String updateSql = "UPDATE elo_ratings SET elo = ? WHERE player_id = ?";
+    private Map<String, Integer> applyInOrder(List<MatchResult> results) {
+        if (periodicEngine != null) {
+            return queueForPeriod(results);
+        }
+        if (writeThrough) {
+            Map<String, Integer> updated = storage.applyMatchResults(results, INITIAL_ELO, matchEngine);
+            long playedAt = System.currentTimeMillis();
+            for (MatchResult result : results) {
+                ratingStore.recordGame(Long.parseLong(result.winnerId), updated.get(result.winnerId), playedAt);
+                ratingStore.recordGame(Long.parseLong(result.loserId), updated.get(result.loserId), playedAt);
+            }
+            return updated;
+        }
+
+        Map<String, Integer> updated = new HashMap<>();
+        long playedAt = System.currentTimeMillis();
+        for (MatchResult result : results) {
+            int winnerElo = getElo(result.winnerId);
+            int loserElo = getElo(result.loserId);
+            int[] newRatings = matchEngine.calculate(winnerElo, loserElo);
+            ratingStore.recordGame(Long.parseLong(result.winnerId), newRatings[0], playedAt);
+            ratingStore.recordGame(Long.parseLong(result.loserId), newRatings[1], playedAt);
+            dirtyPlayers.add(result.winnerId);
+            dirtyPlayers.add(result.loserId);
+            pendingEvents.addAll(result.toEvents(winnerElo, loserElo, newRatings));
+            updated.put(result.winnerId, newRatings[0]);
+            updated.put(result.loserId, newRatings[1]);
+        }
+        return updated;
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement selectStmt = conn.prepareStatement(selectSql);
-             PreparedStatement insertStmt = conn.prepareStatement(insertSql);
-             PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+    /**
+     * Rates a tournament's sets in bracket order as one batch. In write-behind mode every entrant's rating is read
+     * once into a primitive table, each set is rated against the intermediate ratings in that table, and the next
+     * flush stores the final ratings with one event per player and set. In write-through mode storage rates the sets
+     * against the stored ratings in one transaction instead, since another instance sharing the database may have
+     * changed them. Periodic engines queue the sets for the rating period.
+     * <p>
+     * Sets that storage already holds, from an earlier delivery of the same results, are skipped, so a retried
+     * delivery does not rate them twice. Pending ratings are flushed first so that storage holds every earlier set.
+     *
+     * @param results    the tournament's sets in the order they were played
+     * @param calculator rates each set; periodic engines ignore it
+     * @return the rating before and after the sets rated now as {@code {old, new}} for each of their entrants, in
+     * order of first appearance
+     * @throws IllegalStateException if pending ratings could not be flushed or the ratings could not be stored
+     */
+    public synchronized Map<String, int[]> applyTournamentResults(List<MatchResult> results, EloRatingEngine calculator) {
+        flush();
+        if (!unflushedEvents.isEmpty() || !unflushedPeriodResults.isEmpty()) {
+            throw new IllegalStateException("Pending ratings could not be flushed; tournament sets not rated");
+        }
+        List<String> matchIds = results.stream().map(result -> result.matchId).collect(Collectors.toList());
+        Set<String> recorded = storage.findRecordedMatches(matchIds, RatingEvent.Source.TOURNAMENT_MATCH);
+        List<MatchResult> unrated = results;
+        if (!recorded.isEmpty()) {
+            logger.info("Skipping {} tournament set(s) that were already rated.", recorded.size());
+            unrated = results.stream().filter(result -> !recorded.contains(result.matchId)).collect(Collectors.toList());
+        }
 
-            // Check if the player already exists
-            selectStmt.setString(1, user.getId());
-            ResultSet rs = selectStmt.executeQuery();
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        for (MatchResult result : unrated) {
+            slots.putIfAbsent(result.winnerId, slots.size());
+            slots.putIfAbsent(result.loserId, slots.size());
+        }
 
-            if (rs.next()) {
-                // Player exists, update their ELO
-                updateStmt.setInt(1, newElo);
-                updateStmt.setString(2, user.getId());
-                updateStmt.executeUpdate();
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try (StripedLocks.Held held = playerLocks.lock(slots.keySet())) {
+            // Slots number the entrants in order of first appearance, so the snapshot lines up with them
+            int[] before = getElos(new ArrayList<>(slots.keySet()));
+            int[] ratings = before.clone();
+            if (periodicEngine != null) {
+                queueForPeriod(unrated);
             } else {
-                // Player doesn't exist, insert new record
-                insertStmt.setString(1, user.getId());
-                insertStmt.setInt(2, newElo);
-                insertStmt.executeUpdate();
+                rateSets(unrated, slots, ratings, calculator);
             }
 
-            logger.info("Updated ELO for user {} to {}", user.getId(), newElo);
+            Map<String, int[]> changes = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+                changes.put(entry.getKey(), new int[]{before[entry.getValue()], ratings[entry.getValue()]});
+            }
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rateSets(List<MatchResult> results, Map<String, Integer> slots, int[] ratings, EloRatingEngine calculator) {
+        if (writeThrough) {
+            storage.applyMatchResults(results, INITIAL_ELO, calculator)
+                    .forEach((playerId, elo) -> ratings[slots.get(playerId)] = elo);
+        } else {
+            List<RatingEvent> events = new ArrayList<>(2 * results.size());
+            int[] updated = new int[2];
+            for (MatchResult result : results) {
+                int winner = slots.get(result.winnerId);
+                int loser = slots.get(result.loserId);
+                int winnerElo = ratings[winner];
+                int loserElo = ratings[loser];
+                calculator.calculate(winnerElo, loserElo, updated);
+                ratings[winner] = updated[0];
+                ratings[loser] = updated[1];
+                events.addAll(result.toEvents(winnerElo, loserElo, updated));
+            }
+            pendingEvents.addAll(events);
+            dirtyPlayers.addAll(slots.keySet());
+        }
+        long playedAt = System.currentTimeMillis();
+        for (MatchResult result : results) {
+            ratingStore.recordGame(Long.parseLong(result.winnerId), ratings[slots.get(result.winnerId)], playedAt);
+            ratingStore.recordGame(Long.parseLong(result.loserId), ratings[slots.get(result.loserId)], playedAt);
+        }
+    }
 
-        } catch (SQLException e) {
-            logger.error("Error updating ELO for user " + user.getId(), e);
+    /**
+     * Queues results for the next rating period; ratings stay as they are until the period is closed.
+     *
+     * @return the current rating of every involved player
+     */
+    private Map<String, Integer> queueForPeriod(List<MatchResult> results) {
+        if (writeThrough) {
+            storage.queuePeriodResults(results);
+        } else {
+            pendingPeriodResults.addAll(results);
+        }
+        Map<String, Integer> current = new HashMap<>();
+        for (MatchResult result : results) {
+            current.put(result.winnerId, getElo(result.winnerId));
+            current.put(result.loserId, getElo(result.loserId));
         }
+        return current;
     }
 
-    public void updateElo(User winner, User loser) {
-        int winnerElo = getElo(winner);
-        int loserElo = getElo(loser);
+    public boolean isRatingPeriodic() {
+        return periodicEngine != null;
+    }
 
-        double expectedScoreWinner = 1.0 / (1.0 + Math.pow(10, (loserElo - winnerElo) / 400.0));
-        double expectedScoreLoser = 1.0 - expectedScoreWinner;
+    private void putElo(String playerId, int newElo) {
+        ratingStore.setElo(Long.parseLong(playerId), newElo);
+        dirtyPlayers.add(playerId);
+    }
 
-        int newWinnerElo = (int) Math.round(winnerElo + K_FACTOR * (1 - expectedScoreWinner));
-        int newLoserElo = (int) Math.round(loserElo + K_FACTOR * (0 - expectedScoreLoser));
+    /**
+     * Writes all dirty ratings and their pending rating events to the database in a single transaction.
+     * Both are drained under the exclusive state lock, so the ratings written are exactly the result of the events
+     * written. Results waiting for the rating period are queued in storage first.
+     */
+    public synchronized void flush() {
+        if (dirtyPlayers.isEmpty() && pendingPeriodResults.isEmpty() && unflushedPeriodResults.isEmpty()) {
+            return;
+        }
 
-        // Ensure ELO doesn't go below the minimum
-        newWinnerElo = Math.max(newWinnerElo, MIN_ELO);
-        newLoserElo = Math.max(newLoserElo, MIN_ELO);
+        Map<String, Integer> batch = new HashMap<>();
+        List<RatingEvent> events = new ArrayList<>(unflushedEvents);
+        unflushedEvents.clear();
+        List<MatchResult> periodResults = new ArrayList<>(unflushedPeriodResults);
+        unflushedPeriodResults.clear();
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            // Remove through the iterator: a new player seeded by getElo outside the lock stays dirty
+            for (Iterator<String> it = dirtyPlayers.iterator(); it.hasNext(); ) {
+                String playerId = it.next();
+                it.remove();
+                batch.put(playerId, ratingStore.getElo(Long.parseLong(playerId)));
+            }
+            RatingEvent event;
+            while ((event = pendingEvents.poll()) != null) {
+                events.add(event);
+            }
+            MatchResult result;
+            while ((result = pendingPeriodResults.poll()) != null) {
+                periodResults.add(result);
+            }
+        } finally {
+            lock.unlock();
+        }
 
-        updatePlayerElo(winner, newWinnerElo);
-        updatePlayerElo(loser, newLoserElo);
+        if (!periodResults.isEmpty()) {
+            try {
+                storage.queuePeriodResults(periodResults);
+            } catch (IllegalStateException e) {
+                unflushedPeriodResults.addAll(periodResults);
+                logger.warn("Queueing {} result(s) for the rating period failed; will retry on the next flush.", periodResults.size());
+            }
+        }
+        if (batch.isEmpty() && events.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (storage.saveEloRatings(batch, events)) {
+            logger.debug("Flushed {} rating(s) and {} event(s) in {} ms", batch.size(), events.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } else {
+            dirtyPlayers.addAll(batch.keySet());
+            unflushedEvents.addAll(events);
+            logger.warn("Rating flush of {} player(s) failed; will retry on the next flush.", batch.size());
+        }
     }
 
-    private void updatePlayerElo(User player, int newElo) {
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = "UPDATE elo_ratings SET elo = ? WHERE player_id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, newElo);
-            stmt.setString(2, player.getId());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            logger.error("Error updating ELO for player " + player.getId(), e);
+    /**
+     * Ends the current season and starts {@code nextSeasonName}. Pending ratings are flushed first so the archive
+     * holds the final standings; afterwards the store is reloaded with the reset ratings.
+     *
+     * @param carryOver fraction of each rating's distance from the initial rating kept into the new season,
+     *                  0 for a hard reset
+     * @throws IllegalStateException if pending ratings could not be flushed or the rollover failed
+     */
+    public synchronized SeasonRollover closeSeason(String nextSeasonName, double carryOver) {
+        // Same order as flush(): monitor first, then the exclusive state lock
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            flush();
+            if (!dirtyPlayers.isEmpty()) {
+                throw new IllegalStateException("Pending ratings could not be flushed; season not closed");
+            }
+            SeasonRollover rollover = storage.closeSeason(nextSeasonName, carryOver, INITIAL_ELO);
+            ratingStore.clear();
+            storage.loadRatings().forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+            logger.info("Closed season {} ({} rating(s) archived, {} carried over) in {} ms; season {} started.",
+                    rollover.closedSeasonId, rollover.archivedRatings, rollover.liveRatings, rollover.durationMillis, rollover.newSeasonId);
+            return rollover;
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Corrects a recorded match so that {@code winnerId} won it. Pending ratings are flushed first so the ledger
+     * holds every game; storage then recalculates only the affected chain after the match, and the store takes
+     * the changed ratings, all under the exclusive state lock.
+     *
+     * @throws IllegalArgumentException if the match is unknown, {@code winnerId} did not play it, or it belongs to a
+     *                                  closed season
+     * @throws IllegalStateException    if the engine rates by period, pending ratings could not be flushed or the
+     *                                  correction failed
+     */
+    public synchronized RatingCorrection correctResult(String matchId, String winnerId) {
+        if (matchEngine == null) {
+            throw new IllegalStateException(engine.getName() + " rates results by period; past results cannot be corrected");
+        }
+        // Same order as flush(): monitor first, then the exclusive state lock
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            flush();
+            if (!dirtyPlayers.isEmpty()) {
+                throw new IllegalStateException("Pending ratings could not be flushed; result not corrected");
+            }
+            RatingCorrection correction = storage.correctMatchResult(matchId, winnerId, this::calculatorFor, MIN_ELO);
+            correction.ratings.forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+            logger.info("Corrected match {} to a win for {}: {} game(s) recalculated, {} rating(s) changed in {} ms.", matchId,
+                    winnerId, correction.recalculatedGames, correction.ratings.size(), correction.durationMillis);
+            return correction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The calculator a game recorded under {@code source} was rated with, so a correction replays it the same way.
+     */
+    private RatingCalculator calculatorFor(RatingEvent.Source source) {
+        return source == RatingEvent.Source.TOURNAMENT_MATCH ? SET_RATING : matchEngine;
+    }
+
+    /**
+     * Rates every result queued since the last rating period with the periodic engine, then stores the changed
+     * ratings, deviations and volatilities, their events and the dequeue in one batched transaction. Players without
+     * results in the period are included too, since their deviation grows.
+     *
+     * @return the number of players whose rating state changed
+     * @throws IllegalStateException if the engine is not periodic, queued results could not be flushed or the period
+     *                               could not be stored
+     */
+    public synchronized int closeRatingPeriod() {
+        if (periodicEngine == null) {
+            throw new IllegalStateException(engine.getName() + " rates each result as it is reported; there is no rating period to close");
+        }
+        // Same order as flush(): monitor first, then the exclusive state lock
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            flush();
+            if (!dirtyPlayers.isEmpty() || !unflushedPeriodResults.isEmpty()) {
+                throw new IllegalStateException("Pending ratings could not be flushed; rating period not closed");
+            }
+            long start = System.currentTimeMillis();
+            RatingPeriod period = storage.loadRatingPeriod();
+            List<RatingState> states = storage.loadRatingStates();
+            RatingTable table = new RatingTable(states, INITIAL_ELO);
+            periodicEngine.ratePeriod(table, period.results);
+
+            // The table keeps the loaded states in their slots and appends new players after them
+            List<RatingState> changed = new ArrayList<>();
+            List<RatingEvent> events = new ArrayList<>();
+            String referenceId = "period:" + period.lastResultId;
+            for (int slot = 0; slot < table.size(); slot++) {
+                RatingState state = table.state(slot);
+                RatingState before = slot < states.size() ? states.get(slot) : null;
+                if (before != null && state.sameRatingAs(before)) {
+                    continue;
+                }
+                changed.add(state);
+                int oldElo = before != null ? before.elo : INITIAL_ELO;
+                if (before == null || state.elo != oldElo) {
+                    events.add(new RatingEvent(referenceId, state.playerId, null, oldElo, state.elo, null, RatingEvent.Source.RATING_PERIOD));
+                }
+            }
+            if (!storage.saveRatingPeriod(changed, events, period.lastResultId)) {
+                throw new IllegalStateException("Failed to store the rating period ending at result " + period.lastResultId);
+            }
+
+            for (RatingState state : changed) {
+                ratingStore.setElo(Long.parseLong(state.playerId), state.elo);
+            }
+            long playedAt = System.currentTimeMillis();
+            for (MatchResult result : period.results) {
+                ratingStore.recordGame(Long.parseLong(result.winnerId), ratingStore.getElo(Long.parseLong(result.winnerId)), playedAt);
+                ratingStore.recordGame(Long.parseLong(result.loserId), ratingStore.getElo(Long.parseLong(result.loserId)), playedAt);
+            }
+            logger.info("Closed rating period of {} result(s): {} rating(s) changed in {} ms.", period.results.size(), changed.size(),
+                    System.currentTimeMillis() - start);
+            return changed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeRatingPeriodIfLeader() {
+        if (leaderElection != null && !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            closeRatingPeriod();
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Closing the rating period failed", e);
+        }
+    }
+
+    public CompletableFuture<SeasonRollover> closeSeasonAsync(String nextSeasonName, double carryOver) {
+        return storage.supplyAsync(() -> closeSeason(nextSeasonName, carryOver));
+    }
+
+    public CompletableFuture<RatingCorrection> correctResultAsync(String matchId, String winnerId) {
+        return storage.supplyAsync(() -> correctResult(matchId, winnerId));
+    }
+
+    /**
+     * Decays every player who has not played for {@code inactiveMillis} by {@code points}, not below
+     * {@link #MIN_ELO}. Pending ratings are flushed first so storage knows every player's latest game; storage then
+     * decays everyone in one set-based update and the store takes the new ratings, all under the exclusive state
+     * lock.
+     *
+     * @throws IllegalStateException if pending ratings could not be flushed or the decay failed
+     */
+    public synchronized RatingDecay decayInactiveRatings(long inactiveMillis, int points) {
+        // Same order as flush(): monitor first, then the exclusive state lock
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            flush();
+            if (!dirtyPlayers.isEmpty()) {
+                throw new IllegalStateException("Pending ratings could not be flushed; inactive ratings not decayed");
+            }
+            RatingDecay decay = storage.decayInactiveRatings(System.currentTimeMillis() - inactiveMillis, points, MIN_ELO);
+            decay.ratings.forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+            logger.info("Decayed {} inactive rating(s) by up to {} in {} ms.", decay.ratings.size(), points, decay.durationMillis);
+            return decay;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decays inactive players every {@code settings.intervalMillis} on the leader instance. Skipped for periodic
+     * engines such as Glicko-2, which already widen an idle player's deviation.
+     */
+    public void startInactivityDecay(DecaySettings settings) {
+        if (periodicEngine != null) {
+            logger.info("Inactivity decay is not used with {}.", engine.getName());
+            return;
+        }
+        flushScheduler.scheduleWithFixedDelay(() -> decayInactiveRatingsIfLeader(settings),
+                settings.intervalMillis, settings.intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void decayInactiveRatingsIfLeader(DecaySettings settings) {
+        if (leaderElection != null && !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            decayInactiveRatings(settings.inactiveMillis, settings.points);
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Decaying inactive ratings failed", e);
+        }
+    }
+
+    /**
+     * Brings the store in line with ratings written by other instances since the last follow. Runs under the
+     * exclusive state lock, so no local write-through change is half applied while the ledger is read.
+     */
+    private void followLedger() {
+        try {
+            Lock lock = stateLock.writeLock();
+            lock.lock();
+            try {
+                LedgerChanges changes = storage.getLedgerChanges(followedEventId);
+                if (changes.generation != followedGeneration) {
+                    ratingStore.clear();
+                    storage.loadRatings().forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+                    followedGeneration = changes.generation;
+                    logger.info("Ratings were rewritten in storage; reloaded {} player ratings.", ratingStore.size());
+                } else {
+                    changes.ratings.forEach((playerId, elo) -> ratingStore.setElo(Long.parseLong(playerId), elo));
+                }
+                followedEventId = changes.lastEventId;
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Following the rating ledger failed", e);
+        }
+    }
+
+    private void snapshotIfDue(long minimumEvents) {
+        if (storage.countEventsSinceSnapshot() >= minimumEvents) {
+            storage.writeSnapshot();
+        }
+    }
+
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!dirtyPlayers.isEmpty()) {
+            logger.error("{} rating(s) could not be written before shutdown.", dirtyPlayers.size());
+        }
+        // Leave a snapshot covering everything so the next start has no events to replay
+        snapshotIfDue(1);
+        long ledgerEventId = storage.getLatestEventId();
+        // Other instances sharing the database may change ratings after this one stops, so the store is reloaded
+        if (dirtyPlayers.isEmpty() && ledgerEventId >= 0 && ledgerFollowMillis <= 0) {
+            ratingStore.checkpoint(ledgerEventId);
+        }
+        ratingStore.close();
+    }
+
     public void handleLeaderboardCommand(SlashCommandInteractionEvent event) {
-        List<PlayerElo> topPlayers = getTopPlayers();
+        replyWithLeaderboard(event, "Top 5 Players by ELO", getTopPlayers());
+    }
+
+    /**
+     * Replies with the final top ratings of a closed season, read from the season archive.
+     */
+    public void handleSeasonLeaderboardCommand(SlashCommandInteractionEvent event, int seasonId) {
+        event.deferReply().queue();
+        storage.supplyAsync(() -> storage.getSeasonLeaderboard(seasonId, LEADERBOARD_SIZE))
+                .thenAccept(topPlayers -> replyWithLeaderboard(event, "Season " + seasonId + " Top 5 Players by ELO", topPlayers))
+                .exceptionally(throwable -> {
+                    logger.error("Error retrieving leaderboard for season " + seasonId, throwable);
+                    event.getHook().sendMessage("Failed to load the season leaderboard.").queue();
+                    return null;
+                });
+    }
 
+    private void replyWithLeaderboard(SlashCommandInteractionEvent event, String title, List<PlayerElo> topPlayers) {
+        if (topPlayers.isEmpty()) {
+            sendLeaderboard(event, title, topPlayers, List.of());
+            return;
+        }
+
+        List<RestAction<User>> userLookups = topPlayers.stream()
+                .map(playerElo -> event.getJDA().retrieveUserById(playerElo.playerId))
+                .collect(Collectors.toList());
+        RestAction.allOf(userLookups).queue(
+                users -> sendLeaderboard(event, title, topPlayers, users),
+                lookupError -> {
+                    logger.warn("Failed to resolve leaderboard users", lookupError);
+                    sendLeaderboard(event, title, topPlayers, List.of());
+                });
+    }
+
+    private void sendLeaderboard(SlashCommandInteractionEvent event, String title, List<PlayerElo> topPlayers, List<User> users) {
         EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("Top 5 Players by ELO");
+        embed.setTitle(title);
         embed.setColor(Color.YELLOW);
 
         for (int i = 0; i < topPlayers.size(); i++) {
             PlayerElo playerElo = topPlayers.get(i);
-            User user = event.getJDA().retrieveUserById(playerElo.playerId).complete();
+            User user = i < users.size() ? users.get(i) : null;
             String playerName = user != null ? user.getName() : "Unknown Player";
             embed.addField(
                     (i + 1) + ". " + playerName,
@@ -137,35 +813,44 @@ public class EloManager {
             );
         }
 
-        event.replyEmbeds(embed.build()).queue();
+        if (event.isAcknowledged()) {
+            event.getHook().sendMessageEmbeds(embed.build()).queue();
+        } else {
+            event.replyEmbeds(embed.build()).queue();
+        }
     }
 
     private List<PlayerElo> getTopPlayers() {
-        List<PlayerElo> topPlayers = new ArrayList<>();
-        try (Connection conn = databaseManager.getConnection()) {
-            String sql = "SELECT player_id, elo FROM elo_ratings ORDER BY elo DESC LIMIT ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, 5);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                String playerId = rs.getString("player_id");
-                int elo = rs.getInt("elo");
-                topPlayers.add(new PlayerElo(playerId, elo));
+        // Bounded min-heap: O(n log k) over the in-memory ratings instead of an ORDER BY on the table
+        Comparator<PlayerElo> byElo = Comparator.comparingInt(playerElo -> playerElo.elo);
+        PriorityQueue<PlayerElo> top = new PriorityQueue<>(LEADERBOARD_SIZE + 1, byElo);
+        ratingStore.forEach((playerId, elo, games, lastPlayedMillis) -> {
+            if (top.size() < LEADERBOARD_SIZE || elo > top.peek().elo) {
+                top.offer(new PlayerElo(Long.toString(playerId), elo));
+                if (top.size() > LEADERBOARD_SIZE) {
+                    top.poll();
+                }
             }
-        } catch (SQLException e) {
-            logger.error("Error retrieving top players", e);
-        }
+        });
+
+        List<PlayerElo> topPlayers = new ArrayList<>(top);
+        topPlayers.sort(byElo.reversed());
         return topPlayers;
     }
 
-    private static class PlayerElo {
-        String playerId;
-        int elo;
+    public static class DecaySettings {
+        public final long inactiveMillis;
+        public final int points;
+        public final long intervalMillis;
 
-        PlayerElo(String playerId, int elo) {
-            this.playerId = playerId;
-            this.elo = elo;
+        /**
+         * @param inactiveMillis how long a player may go without a game or placement before decaying
+         * @param points         rating lost per run while inactive
+         */
+        public DecaySettings(long inactiveMillis, int points, long intervalMillis) {
+            this.inactiveMillis = inactiveMillis;
+            this.points = points;
+            this.intervalMillis = intervalMillis;
         }
     }
-}
\ No newline at end of file
+}
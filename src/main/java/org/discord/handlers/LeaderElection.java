@@ -0,0 +1,107 @@
+package org.discord.handlers;
+
+import org.discord.handlers.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects one instance among processes sharing a database to run background pollers.
+ * <p>
+ * Every instance tries to take or renew a lease row every third of the lease duration; whoever holds it is the
+ * leader. A leader that cannot renew (database unreachable, long GC pause) steps down on its own once the lease
+ * it last renewed could have expired, measured from before the renewal was sent, so two instances never both
+ * consider themselves leader. On shutdown the lease is released so the other instance takes over on its next
+ * renewal instead of waiting for expiry.
+ */
+public class LeaderElection {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElection.class);
+    public static final String SCHEDULER_LEASE = "scheduler";
+    public static final long DEFAULT_LEASE_MILLIS = 30_000;
+
+    private final StorageBackend storage;
+    private final String leaseName;
+    private final String instanceId;
+    private final long leaseMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "leader-election");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean leader;
+    private volatile long leaseValidUntilNanos;
+
+    public LeaderElection(StorageBackend storage, String leaseName, String instanceId, long leaseMillis) {
+        this.storage = storage;
+        this.leaseName = leaseName;
+        this.instanceId = instanceId;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * @return an id unique to this process, e.g. {@code 4711@host-1f3a9c2e}
+     */
+    public static String defaultInstanceId() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Tries to take the lease right away, then keeps renewing it in the background. Call after the storage is
+     * initialized.
+     */
+    public void start() {
+        renew();
+        scheduler.scheduleWithFixedDelay(this::renew, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+        logger.info("Instance {} {} lease '{}' ({} ms).", instanceId, leader ? "holds" : "is waiting for", leaseName, leaseMillis);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (leader) {
+            leader = false;
+            storage.releaseLease(leaseName, instanceId);
+            logger.info("Instance {} released lease '{}'.", instanceId, leaseName);
+        }
+    }
+
+    /**
+     * @return true while this instance holds an unexpired lease
+     */
+    public boolean isLeader() {
+        return leader && System.nanoTime() - leaseValidUntilNanos < 0;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private void renew() {
+        long sentNanos = System.nanoTime();
+        boolean held;
+        try {
+            held = storage.tryAcquireLease(leaseName, instanceId, leaseMillis);
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task; isLeader() turns false once the lease runs out
+            logger.error("Renewing lease '" + leaseName + "' failed", e);
+            return;
+        }
+        if (held) {
+            leaseValidUntilNanos = sentNanos + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        }
+        if (held != leader) {
+            leader = held;
+            logger.info("Instance {} {} leader for '{}'.", instanceId, held ? "became" : "is no longer", leaseName);
+        }
+    }
+}
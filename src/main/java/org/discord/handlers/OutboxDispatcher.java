@@ -0,0 +1,206 @@
+package org.discord.handlers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.discord.handlers.storage.OutboxEntry;
+import org.discord.handlers.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers queued outbox entries in the background.
+ * <p>
+ * Interactions record their Challonge writes and Discord notifications with {@link #enqueue} and acknowledge the
+ * user straight away. A single dispatcher thread then hands each entry to the {@link Handler} registered for its
+ * kind. Within a partition only the oldest pending entry is attempted, so a tournament's entries are delivered
+ * in the order they were queued. Transient failures are retried with exponential backoff; an entry that fails
+ * for good, or keeps failing, is marked failed so the rest of its partition can proceed. Entries are stored with
+ * the other data, so anything still pending is picked up again after a restart. Delivery is at least once:
+ * handlers must tolerate seeing an entry again after a crash between delivering and recording it.
+ * <p>
+ * When several instances share the database, only the {@link LeaderElection leader} delivers; the others just
+ * queue.
+ */
+public class OutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 2_000;
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_RETRY_DELAY_MILLIS = 2_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 10 * 60 * 1000;
+    private static final long DELIVERED_RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Performs the side effect of one kind of outbox entry.
+     */
+    public interface Handler {
+        /**
+         * @throws IOException if the attempt failed but a later one may succeed; any other exception gives up
+         */
+        void deliver(JsonObject payload) throws IOException;
+
+        /**
+         * Called once when the dispatcher gives up on an entry, e.g. to tell the channel about it.
+         */
+        default void onFailure(JsonObject payload, String error) {
+        }
+    }
+
+    private final StorageBackend storage;
+    private final LeaderElection leaderElection;
+    private final long pollIntervalMillis;
+    private final Map<OutboxEntry.Kind, Handler> handlers = new EnumMap<>(OutboxEntry.Kind.class);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private long lastPurgeMillis;
+
+    public OutboxDispatcher(StorageBackend storage, LeaderElection leaderElection, long pollIntervalMillis) {
+        this.storage = storage;
+        this.leaderElection = leaderElection;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Registers the handler for a kind of entry. Register every handler before {@link #start()}.
+     */
+    public void register(OutboxEntry.Kind kind, Handler handler) {
+        handlers.put(kind, handler);
+    }
+
+    /**
+     * Queues entries atomically and wakes the dispatcher.
+     *
+     * @return how many entries were newly queued; duplicates of pending or delivered entries are skipped
+     * @throws IllegalStateException if the entries could not be stored
+     */
+    public int enqueue(OutboxEntry... entries) {
+        int queued = storage.enqueueOutbox(Arrays.asList(entries));
+        if (queued > 0) {
+            wakeUp();
+        }
+        return queued;
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::dispatchDue, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Outbox dispatcher polling every {} ms.", pollIntervalMillis);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    wakeUpPending.set(false);
+                    dispatchDue();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the entry stays queued for the next start
+                wakeUpPending.set(false);
+            }
+        }
+    }
+
+    private void dispatchDue() {
+        if (!leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            List<OutboxEntry> due = storage.getDueOutboxEntries(BATCH_SIZE);
+            int delivered = 0;
+            for (OutboxEntry entry : due) {
+                if (!leaderElection.isLeader()) {
+                    return;
+                }
+                if (deliver(entry)) {
+                    delivered++;
+                }
+            }
+            if (delivered > 0) {
+                // The next entry of each partition just became due
+                wakeUp();
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastPurgeMillis >= PURGE_INTERVAL_MILLIS) {
+                lastPurgeMillis = now;
+                int purged = storage.purgeDeliveredOutbox(DELIVERED_RETENTION_MILLIS);
+                if (purged > 0) {
+                    logger.info("Purged {} delivered outbox entries.", purged);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Outbox dispatch failed", e);
+        }
+    }
+
+    /**
+     * @return true if the entry was delivered
+     */
+    private boolean deliver(OutboxEntry entry) {
+        JsonObject payload = JsonParser.parseString(entry.payload).getAsJsonObject();
+        Handler handler = handlers.get(entry.kind);
+        if (handler == null) {
+            logger.error("No outbox handler for {} entry {}", entry.kind, entry.id);
+            storage.markOutboxFailed(entry.id, "No handler registered for " + entry.kind);
+            return false;
+        }
+
+        int attempt = entry.attempts + 1;
+        try {
+            handler.deliver(payload);
+            storage.markOutboxDelivered(entry.id);
+            logger.debug("Delivered outbox entry {} ({}) on attempt {}", entry.id, entry.dedupKey, attempt);
+            return true;
+        } catch (IOException e) {
+            if (attempt < MAX_ATTEMPTS) {
+                long delay = Math.min(MAX_RETRY_DELAY_MILLIS, BASE_RETRY_DELAY_MILLIS << (attempt - 1));
+                logger.warn("Outbox entry {} ({}) failed on attempt {}; retrying in {} ms: {}", entry.id, entry.dedupKey, attempt, delay, e.toString());
+                storage.rescheduleOutboxEntry(entry.id, delay, e.toString());
+                return false;
+            }
+            giveUp(entry, handler, payload, e);
+        } catch (RuntimeException e) {
+            giveUp(entry, handler, payload, e);
+        }
+        return false;
+    }
+
+    private void giveUp(OutboxEntry entry, Handler handler, JsonObject payload, Exception e) {
+        logger.error("Giving up on outbox entry " + entry.id + " (" + entry.dedupKey + ") after " + (entry.attempts + 1) + " attempt(s)", e);
+        storage.markOutboxFailed(entry.id, e.toString());
+        try {
+            handler.onFailure(payload, e.getMessage() != null ? e.getMessage() : e.toString());
+        } catch (RuntimeException failureError) {
+            logger.error("Outbox failure callback for entry " + entry.id + " failed", failureError);
+        }
+    }
+}
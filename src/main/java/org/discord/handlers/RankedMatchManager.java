@@ -10,23 +10,26 @@ import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
 import net.dv8tion.jda.api.interactions.components.text.TextInputStyle;
 import net.dv8tion.jda.api.interactions.modals.Modal;
+import org.discord.handlers.storage.RatingEvent;
 import org.discord.obj.Match;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
 
 public class RankedMatchManager {private final ConcurrentMap<String, Match> activeRankedMatchesById = new ConcurrentHashMap<>();
 
-    static {
-        LoggerFactory.getLogger(RankedMatchManager.class);
-    }
+    private static final Logger logger = LoggerFactory.getLogger(RankedMatchManager.class);
 
     private final EloManager eloManager;
     private final ConcurrentMap<String, Match> pendingRankedMatches = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Match> activeRankedMatches = new ConcurrentHashMap<>();
+    // Matches whose confirmation is being applied; they stay active until the rating update succeeds
+    private final Set<String> confirmingMatches = ConcurrentHashMap.newKeySet();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
     public RankedMatchManager(EloManager eloManager) {
@@ -45,7 +48,6 @@ public class RankedMatchManager {private final ConcurrentMap<String, Match> acti
             return;
         }
 
-        int playerElo = eloManager.getElo(player);
         String matchId = UUID.randomUUID().toString();
         Match match = new Match(matchId, player, null, Match.MatchType.RANKED);
 
@@ -54,8 +56,17 @@ public class RankedMatchManager {private final ConcurrentMap<String, Match> acti
             return;
         }
 
-        scheduleMatchExpiration(matchId);
-        sendMatchRequestEmbed(event, player, playerElo, matchId);
+        event.deferReply().queue();
+        eloManager.getEloAsync(player).whenComplete((playerElo, error) -> {
+            if (error != null) {
+                logger.error("Failed to load ELO for seeking player {}", player.getId(), error);
+                pendingRankedMatches.remove(matchId);
+                event.getHook().sendMessage("An error occurred while creating the match. Please try again.").queue();
+                return;
+            }
+            scheduleMatchExpiration(matchId);
+            sendMatchRequestEmbed(event, player, playerElo, matchId);
+        });
     }
 
     public void handleAcceptMatch(ButtonInteractionEvent event) {
@@ -275,27 +286,50 @@ public class RankedMatchManager {private final ConcurrentMap<String, Match> acti
 
     public void handleConfirmMatch(ButtonInteractionEvent event) {
         String matchId = event.getComponentId().split("_")[2]; // Extract matchId from componentId
-        Match match = activeRankedMatchesById.get(matchId);
 
+        // Claim the match before any asynchronous work so a second click cannot apply the result twice
+        Match match = activeRankedMatchesById.get(matchId);
         if (match == null) {
             event.reply("This match is no longer active.").setEphemeral(true).queue();
             return;
         }
+        if (!confirmingMatches.add(matchId)) {
+            event.reply("This match is already being confirmed.").setEphemeral(true).queue();
+            return;
+        }
 
-        // Update ELO ratings
-        eloManager.updateElo(match.getWinner(), match.getLoser());
-
-        // Remove from both maps
-        activeRankedMatches.remove(match.getRequester().getId());
-        activeRankedMatches.remove(match.getOpponent().getId());
-        activeRankedMatchesById.remove(matchId);
-
-        // Notify players
-        String message = String.format("Match confirmed. %s's new ELO: %d, %s's new ELO: %d",
-                match.getWinner().getName(), eloManager.getElo(match.getWinner()),
-                match.getLoser().getName(), eloManager.getElo(match.getLoser()));
-
-        event.reply(message).queue();
+        User winner = match.getWinner();
+        User loser = match.getLoser();
+        // A periodic engine only rates the result when the rating period closes
+        String format = eloManager.isRatingPeriodic()
+                ? "Match confirmed. Ratings update when the rating period closes; %s: %d, %s: %d"
+                : "Match confirmed. %s's new ELO: %d, %s's new ELO: %d";
+        event.deferReply().queue();
+        eloManager.updateEloAsync(winner, loser, matchId, RatingEvent.Source.RANKED_MATCH).whenComplete((ignored, error) -> {
+            if (error != null) {
+                // The match stays active so the result can be confirmed again
+                confirmingMatches.remove(matchId);
+                logger.error("Failed to apply ELO update for ranked match {}", matchId, error);
+                event.getHook().sendMessage("Updating ELO failed, so the match is still active. Please confirm again or contact staff.").queue();
+                return;
+            }
+            activeRankedMatchesById.remove(matchId);
+            activeRankedMatches.remove(match.getRequester().getId());
+            activeRankedMatches.remove(match.getOpponent().getId());
+            confirmingMatches.remove(matchId);
+
+            eloManager.getEloAsync(winner)
+                    .thenCombine(eloManager.getEloAsync(loser), (winnerElo, loserElo) -> String.format(
+                            format, winner.getName(), winnerElo, loser.getName(), loserElo))
+                    .whenComplete((message, readError) -> {
+                        if (readError != null) {
+                            logger.error("Failed to load ratings after ranked match {}", matchId, readError);
+                            event.getHook().sendMessage("Match confirmed, but the new ratings could not be loaded.").queue();
+                            return;
+                        }
+                        event.getHook().sendMessage(message).queue();
+                    });
+        });
     }
 
 
@@ -323,7 +357,7 @@ public class RankedMatchManager {private final ConcurrentMap<String, Match> acti
 
         Button acceptButton = Button.primary("accept_ranked_match_" + matchId, "Accept Match");
 
-        event.replyEmbeds(embed.build())
+        event.getHook().sendMessageEmbeds(embed.build())
                 .addActionRow(acceptButton)
                 .queue(
                         success -> {
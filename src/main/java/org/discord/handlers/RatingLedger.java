@@ -0,0 +1,563 @@
+package org.discord.handlers;
+
+import org.discord.handlers.storage.LedgerChanges;
+import org.discord.handlers.storage.RatingCalculator;
+import org.discord.handlers.storage.RatingCorrection;
+import org.discord.handlers.storage.RatingEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Append-only history of rating changes.
+ * <p>
+ * Every change to a player's rating is recorded in {@code rating_events} in the same transaction that writes
+ * {@code elo_ratings}, so the ledger and the current ratings never disagree about committed changes.
+ * {@code rating_snapshots} periodically stores every rating as of one event id in a packed blob; startup loads
+ * the latest snapshot and replays only the events after it.
+ * <p>
+ * Event ids are handed out in insert order but commit in any order, so {@code MAX(id)} alone is not a safe snapshot
+ * watermark: an event numbered below it could still be in flight and commit after the snapshot. Appenders therefore
+ * hold the ledger lock ({@link #lock}) from their insert to their commit, and every watermark is read under it.
+ * <p>
+ * The one exception to append-only is {@link #correctResult}, which rewrites a corrected match and the chain of
+ * events downstream of it in place, dropping decay that would not have happened, so the ledger keeps describing the
+ * history that produced the current ratings.
+ */
+public class RatingLedger {
+    private static final Logger logger = LoggerFactory.getLogger(RatingLedger.class);
+    private static final int SNAPSHOTS_TO_KEEP = 3;
+    private static final int SNAPSHOT_RECORD_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int REPLAY_FETCH_SIZE = 1_000;
+    private static final String ROW_COLUMNS = "id, match_id, player_id, opponent_id, old_elo, new_elo, result, source";
+    private static final String DECAY_REFERENCE_PREFIX = "decay:";
+
+    private final DatabaseManager databaseManager;
+
+    public RatingLedger(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Appends events on the caller's connection and transaction with one batched insert. Takes the ledger lock for
+     * the rest of the transaction, so callers append after their other writes and commit right after.
+     */
+    static void appendEvents(Connection conn, List<RatingEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        lock(conn);
+        String sql = "INSERT INTO rating_events (match_id, player_id, opponent_id, old_elo, new_elo, delta, result, source, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (RatingEvent event : events) {
+                pstmt.setString(1, event.matchId);
+                pstmt.setLong(2, DatabaseManager.parseKey(event.playerId));
+                if (event.opponentId != null) {
+                    pstmt.setLong(3, DatabaseManager.parseKey(event.opponentId));
+                } else {
+                    pstmt.setNull(3, Types.BIGINT);
+                }
+                pstmt.setInt(4, event.oldElo);
+                pstmt.setInt(5, event.newElo);
+                pstmt.setInt(6, event.newElo - event.oldElo);
+                if (event.result != null) {
+                    pstmt.setInt(7, event.result);
+                } else {
+                    pstmt.setNull(7, Types.TINYINT);
+                }
+                pstmt.setString(8, event.source.name());
+                pstmt.setTimestamp(9, new Timestamp(event.createdAtMillis));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Rebuilds the current ratings from the latest snapshot plus the events recorded after it.
+     */
+    public Map<String, Integer> loadRatings() throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            Map<String, Integer> ratings = new HashMap<>();
+            long snapshotEventId = readLatestSnapshot(conn, ratings);
+            int replayed = replayEvents(conn, snapshotEventId, Long.MAX_VALUE, ratings);
+            logger.info("Loaded {} ratings from snapshot at event {} plus {} newer event(s).", ratings.size(), snapshotEventId, replayed);
+            return ratings;
+        }
+    }
+
+    /**
+     * Takes the ledger lock until the caller's transaction ends. Every appender holds it from its insert to its
+     * commit, so while it is held no event id is in flight. Appenders take it last, after their
+     * {@code elo_ratings} rows, so writers cannot deadlock on it.
+     */
+    static void lock(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM rating_ledger_lock FOR UPDATE")) {
+            if (!rs.next()) {
+                throw new SQLException("The rating_ledger_lock row is missing");
+            }
+        }
+    }
+
+    /**
+     * Takes the ledger lock and returns the highest event id, which every event up to it has committed by.
+     */
+    static long lockLatestEventId(Connection conn) throws SQLException {
+        lock(conn);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM rating_events")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Highest event id such that every event up to it has committed; only briefly waits out in-flight appends.
+     */
+    public long getLatestEventId() throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long latestEventId = lockLatestEventId(conn);
+                conn.commit();
+                return latestEventId;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Marks that ratings changed without new events, on the caller's connection and transaction, so instances
+     * following the ledger reload instead of replaying. The caller must already hold the ledger lock.
+     */
+    static void advanceGeneration(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE rating_ledger_lock SET generation = generation + 1");
+        }
+    }
+
+    /**
+     * Reads the latest rating of every player changed after {@code afterEventId}, up to a watermark and generation
+     * read together under the ledger lock.
+     */
+    public LedgerChanges getChangesSince(long afterEventId) throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                long lastEventId = lockLatestEventId(conn);
+                long generation;
+                try (ResultSet rs = stmt.executeQuery("SELECT generation FROM rating_ledger_lock")) {
+                    rs.next();
+                    generation = rs.getLong(1);
+                }
+                Map<String, Integer> ratings = new HashMap<>();
+                replayEvents(conn, afterEventId, lastEventId, ratings);
+                conn.commit();
+                return new LedgerChanges(lastEventId, generation, ratings);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Counts the events recorded since the latest snapshot.
+     */
+    public long countEventsSinceSnapshot() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM rating_events WHERE id > "
+                + "(SELECT COALESCE(MAX(last_event_id), 0) FROM rating_snapshots)";
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Writes a new snapshot by rolling the latest one forward over the newer events, then drops the oldest
+     * snapshots. The snapshot is derived from the ledger alone, so it is consistent with the event id it names
+     * even while new events are being appended. The ledger lock is held throughout, so a correction cannot rewrite
+     * the events being rolled forward until this snapshot has committed and can be replaced.
+     */
+    public void writeSnapshot() throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long upToEventId = lockLatestEventId(conn);
+
+                Map<String, Integer> ratings = new HashMap<>();
+                long snapshotEventId = readLatestSnapshot(conn, ratings);
+                if (upToEventId <= snapshotEventId) {
+                    conn.rollback();
+                    return;
+                }
+                int replayed = replayEvents(conn, snapshotEventId, upToEventId, ratings);
+                insertSnapshot(conn, upToEventId, ratings);
+
+                try (PreparedStatement prune = conn.prepareStatement("DELETE FROM rating_snapshots WHERE id NOT IN "
+                        + "(SELECT id FROM rating_snapshots ORDER BY id DESC LIMIT ?)")) {
+                    prune.setInt(1, SNAPSHOTS_TO_KEEP);
+                    prune.executeUpdate();
+                }
+                conn.commit();
+                logger.info("Wrote rating snapshot of {} players at event {} ({} event(s) since the previous one).", ratings.size(), upToEventId, replayed);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stores the given ratings as a snapshot covering every event up to {@code lastEventId}.
+     */
+    static void insertSnapshot(Connection conn, long lastEventId, Map<String, Integer> ratings) throws SQLException {
+        ByteBuffer buffer = ByteBuffer.allocate(ratings.size() * SNAPSHOT_RECORD_BYTES);
+        for (Map.Entry<String, Integer> entry : ratings.entrySet()) {
+            buffer.putLong(DatabaseManager.parseKey(entry.getKey()));
+            buffer.putInt(entry.getValue());
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO rating_snapshots (last_event_id, player_count, ratings) VALUES (?, ?, ?)")) {
+            pstmt.setLong(1, lastEventId);
+            pstmt.setInt(2, ratings.size());
+            pstmt.setBytes(3, buffer.array());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Corrects a recorded match so that {@code winnerId} won it, on the caller's connection and transaction.
+     * <p>
+     * Every event keeps the player's rating before it, so the ledger is its own checkpoint: the two players enter
+     * the match with the ratings recorded on its rows, and a player who later joins the affected chain enters it
+     * with the rating recorded on that game's row. The events after the match are then streamed once in order. A
+     * game is recalculated only if one of its players is affected, which makes the opponent affected too; a player
+     * leaves the chain once their recalculated rating meets the recorded one again, for example after an
+     * administrator set it, and the stream stops when nobody is left. Each game is recalculated with the calculator
+     * of the source it was recorded under. Outright sets keep their value, inactivity decay takes its points again
+     * down to {@code minElo} and is dropped for a player already at it, and other non-game changes such as
+     * tournament placements keep their delta. The rewritten rows are written back with one batched update.
+     *
+     * @param calculators rates a game recorded under the given source
+     * @param seasonStart start of the current season; earlier results were reset by a rollover and cannot be
+     *                    corrected. Null if there are no seasons.
+     * @return the corrected match and the current rating of every player whose rating changed
+     * @throws IllegalArgumentException if no single result is recorded under {@code matchId}, {@code winnerId} did
+     *                                  not play it, or it was played in a closed season
+     */
+    static RatingCorrection correctResult(Connection conn, String matchId, String winnerId,
+                                          Function<RatingEvent.Source, RatingCalculator> calculators, int minElo,
+                                          Timestamp seasonStart) throws SQLException {
+        long start = System.currentTimeMillis();
+        List<LedgerRow> matchRows = new ArrayList<>(2);
+        Timestamp playedAt = null;
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT " + ROW_COLUMNS + ", created_at FROM rating_events "
+                + "WHERE match_id = ? AND result IS NOT NULL ORDER BY id")) {
+            pstmt.setString(1, matchId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    matchRows.add(new LedgerRow(rs));
+                    playedAt = rs.getTimestamp("created_at");
+                }
+            }
+        }
+        if (matchRows.size() != 2 || !matchRows.get(0).pairsWith(matchRows.get(1))) {
+            throw new IllegalArgumentException("No single recorded result for match " + matchId);
+        }
+        LedgerRow winnerRow = matchRows.get(0).result == 1 ? matchRows.get(0) : matchRows.get(1);
+        LedgerRow loserRow = winnerRow == matchRows.get(0) ? matchRows.get(1) : matchRows.get(0);
+        long firstEventId = matchRows.get(0).id;
+        long newWinner = DatabaseManager.parseKey(winnerId);
+        if (newWinner == winnerRow.playerId) {
+            return new RatingCorrection(matchId, winnerId, Long.toString(loserRow.playerId), firstEventId, Map.of(), 0, 0,
+                    System.currentTimeMillis() - start);
+        }
+        if (newWinner != loserRow.playerId) {
+            throw new IllegalArgumentException("Player " + winnerId + " did not play match " + matchId);
+        }
+        if (seasonStart != null && playedAt.before(seasonStart)) {
+            throw new IllegalArgumentException("Match " + matchId + " was played in a closed season");
+        }
+
+        // Corrected rating of every player in the affected chain
+        Map<Long, Integer> affected = new HashMap<>();
+        List<LedgerRow> rewritten = new ArrayList<>();
+        List<LedgerRow> dropped = new ArrayList<>();
+        int[] updated = calculators.apply(RatingEvent.Source.valueOf(winnerRow.source)).calculate(loserRow.oldElo, winnerRow.oldElo);
+        loserRow.correct(loserRow.oldElo, updated[0], 1, affected, rewritten);
+        winnerRow.correct(winnerRow.oldElo, updated[1], 0, affected, rewritten);
+        int recalculated = 1;
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT " + ROW_COLUMNS + " FROM rating_events WHERE id > ? ORDER BY id")) {
+            pstmt.setFetchSize(REPLAY_FETCH_SIZE);
+            pstmt.setLong(1, Math.max(winnerRow.id, loserRow.id));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // A game's two rows are appended together; hold the first until its pair arrives
+                LedgerRow pending = null;
+                while (!affected.isEmpty() && rs.next()) {
+                    LedgerRow row = new LedgerRow(rs);
+                    if (pending != null && pending.pairsWith(row)) {
+                        if (replayGame(pending, row, calculators, affected, rewritten)) {
+                            recalculated++;
+                        }
+                        pending = null;
+                        continue;
+                    }
+                    if (pending != null) {
+                        replayChange(pending, minElo, affected, rewritten, dropped);
+                    }
+                    if (row.result != null) {
+                        pending = row;
+                    } else {
+                        pending = null;
+                        replayChange(row, minElo, affected, rewritten, dropped);
+                    }
+                }
+                if (pending != null) {
+                    replayChange(pending, minElo, affected, rewritten, dropped);
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE rating_events SET old_elo = ?, new_elo = ?, delta = ?, result = ? WHERE id = ?")) {
+            for (LedgerRow row : rewritten) {
+                pstmt.setInt(1, row.oldElo);
+                pstmt.setInt(2, row.newElo);
+                pstmt.setInt(3, row.newElo - row.oldElo);
+                if (row.result != null) {
+                    pstmt.setInt(4, row.result);
+                } else {
+                    pstmt.setNull(4, Types.TINYINT);
+                }
+                pstmt.setLong(5, row.id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM rating_events WHERE id = ?")) {
+            for (LedgerRow row : dropped) {
+                pstmt.setLong(1, row.id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        Map<String, Integer> ratings = new HashMap<>();
+        affected.forEach((playerId, elo) -> ratings.put(Long.toString(playerId), elo));
+        logger.info("Corrected match {}: {} game(s) recalculated, {} event(s) rewritten, {} dropped, {} rating(s) changed.", matchId,
+                recalculated, rewritten.size(), dropped.size(), ratings.size());
+        return new RatingCorrection(matchId, winnerId, Long.toString(winnerRow.playerId), firstEventId, ratings,
+                recalculated, rewritten.size() + dropped.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Recalculates a game if either player is in the affected chain; the other player enters the chain with the
+     * rating recorded on their row.
+     *
+     * @return true if the game was recalculated
+     */
+    private static boolean replayGame(LedgerRow first, LedgerRow second, Function<RatingEvent.Source, RatingCalculator> calculators,
+                                      Map<Long, Integer> affected, List<LedgerRow> rewritten) {
+        LedgerRow winner = first.result == 1 ? first : second;
+        LedgerRow loser = winner == first ? second : first;
+        if (!affected.containsKey(winner.playerId) && !affected.containsKey(loser.playerId)) {
+            return false;
+        }
+        int winnerElo = affected.getOrDefault(winner.playerId, winner.oldElo);
+        int loserElo = affected.getOrDefault(loser.playerId, loser.oldElo);
+        int[] updated = calculators.apply(RatingEvent.Source.valueOf(winner.source)).calculate(winnerElo, loserElo);
+        winner.correct(winnerElo, updated[0], winner.result, affected, rewritten);
+        loser.correct(loserElo, updated[1], loser.result, affected, rewritten);
+        return true;
+    }
+
+    /**
+     * Replays a change that is not a game: outright sets keep their value, inactivity decay is applied again like
+     * the decay job would and dropped for a player already at {@code minElo}, anything else keeps its delta.
+     */
+    private static void replayChange(LedgerRow row, int minElo, Map<Long, Integer> affected, List<LedgerRow> rewritten,
+                                     List<LedgerRow> dropped) {
+        Integer before = affected.get(row.playerId);
+        if (before == null) {
+            return;
+        }
+        if (RatingEvent.Source.INACTIVITY_DECAY.name().equals(row.source)) {
+            if (before <= minElo) {
+                row.drop(before, affected, dropped);
+            } else {
+                row.correct(before, Math.max(minElo, before - row.decayPoints()), row.result, affected, rewritten);
+            }
+            return;
+        }
+        boolean outright = RatingEvent.Source.ADMIN_SET.name().equals(row.source) || RatingEvent.Source.IMPORT.name().equals(row.source);
+        int after = outright ? row.newElo : before + row.newElo - row.oldElo;
+        row.correct(before, after, row.result, affected, rewritten);
+    }
+
+    /**
+     * Reference recorded on inactivity decay events, so a correction can apply the same points again.
+     */
+    static String decayReference(int points) {
+        return DECAY_REFERENCE_PREFIX + points;
+    }
+
+    /**
+     * Replaces the snapshots taken at or after {@code fromEventId} with one snapshot of the current
+     * {@code elo_ratings} at the latest event, on the caller's connection and transaction. The caller must have
+     * brought {@code elo_ratings} in line with the rewritten ledger first.
+     */
+    static void replaceSnapshotsFrom(Connection conn, long fromEventId) throws SQLException {
+        long lastEventId = lockLatestEventId(conn);
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM rating_snapshots WHERE last_event_id >= ?")) {
+            delete.setLong(1, fromEventId);
+            if (delete.executeUpdate() == 0) {
+                return;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            Map<String, Integer> ratings = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT player_id, elo FROM elo_ratings")) {
+                while (rs.next()) {
+                    ratings.put(rs.getString("player_id"), rs.getInt("elo"));
+                }
+            }
+            insertSnapshot(conn, lastEventId, ratings);
+        }
+    }
+
+    private static long readLatestSnapshot(Connection conn, Map<String, Integer> ratings) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_event_id, ratings FROM rating_snapshots ORDER BY id DESC LIMIT 1")) {
+            if (!rs.next()) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(rs.getBytes("ratings"));
+            while (buffer.remaining() >= SNAPSHOT_RECORD_BYTES) {
+                ratings.put(Long.toString(buffer.getLong()), buffer.getInt());
+            }
+            return rs.getLong("last_event_id");
+        }
+    }
+
+    private static int replayEvents(Connection conn, long afterEventId, long upToEventId, Map<String, Integer> ratings) throws SQLException {
+        String sql = "SELECT player_id, new_elo FROM rating_events WHERE id > ? AND id <= ? ORDER BY id";
+
+        int replayed = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterEventId);
+            pstmt.setLong(2, upToEventId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ratings.put(rs.getString("player_id"), rs.getInt("new_elo"));
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * One {@code rating_events} row as read for a correction; the ratings and result are overwritten when the row
+     * is recalculated.
+     */
+    private static final class LedgerRow {
+        final long id;
+        final String matchId;
+        final long playerId;
+        final long opponentId;
+        final String source;
+        final int recordedOldElo;
+        final int recordedNewElo;
+        int oldElo;
+        int newElo;
+        Integer result;
+
+        LedgerRow(ResultSet rs) throws SQLException {
+            id = rs.getLong("id");
+            matchId = rs.getString("match_id");
+            playerId = rs.getLong("player_id");
+            opponentId = rs.getLong("opponent_id");
+            oldElo = rs.getInt("old_elo");
+            newElo = rs.getInt("new_elo");
+            int storedResult = rs.getInt("result");
+            result = rs.wasNull() ? null : storedResult;
+            source = rs.getString("source");
+            recordedOldElo = oldElo;
+            recordedNewElo = newElo;
+        }
+
+        /**
+         * Points an inactivity decay event took. Events recorded before decay carried its points only show the
+         * recorded drop, which is short of the points if the decay stopped at the floor.
+         */
+        int decayPoints() {
+            if (matchId != null && matchId.startsWith(DECAY_REFERENCE_PREFIX)) {
+                return Integer.parseInt(matchId.substring(DECAY_REFERENCE_PREFIX.length()));
+            }
+            return recordedOldElo - recordedNewElo;
+        }
+
+        /**
+         * True if both rows are the two sides of one game.
+         */
+        boolean pairsWith(LedgerRow other) {
+            return result != null && other.result != null && !result.equals(other.result)
+                    && Objects.equals(matchId, other.matchId) && playerId == other.opponentId && opponentId == other.playerId;
+        }
+
+        /**
+         * Records the recalculated values and moves the player into or out of the affected chain.
+         */
+        void correct(int correctedOldElo, int correctedNewElo, Integer correctedResult, Map<Long, Integer> affected,
+                     List<LedgerRow> rewritten) {
+            if (correctedOldElo != oldElo || correctedNewElo != newElo || !Objects.equals(correctedResult, result)) {
+                oldElo = correctedOldElo;
+                newElo = correctedNewElo;
+                result = correctedResult;
+                rewritten.add(this);
+            }
+            if (newElo == recordedNewElo) {
+                affected.remove(playerId);
+            } else {
+                affected.put(playerId, newElo);
+            }
+        }
+
+        /**
+         * Removes a change that would not have happened; the player keeps {@code rating} past it.
+         */
+        void drop(int rating, Map<Long, Integer> affected, List<LedgerRow> dropped) {
+            dropped.add(this);
+            if (rating == recordedNewElo) {
+                affected.remove(playerId);
+            } else {
+                affected.put(playerId, rating);
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package org.discord.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned schema migrations.
+ * <p>
+ * Every migration has a version number and is recorded in {@code schema_version} once applied, so startup only
+ * runs what the database has not seen yet. Migrations are written to be safe to re-run: H2 commits DDL
+ * implicitly, so a migration interrupted halfway is simply repeated on the next start.
+ */
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private final DatabaseManager databaseManager;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+
+        migrations.add(new Migration(1, "Baseline ELO and tournament tables", SchemaMigrator::createBaselineTables));
+        migrations.add(new Migration(2, "BIGINT snowflake keys and secondary indexes", SchemaMigrator::convertKeysAndAddIndexes));
+        migrations.add(new Migration(3, "Rating event ledger and snapshots", SchemaMigrator::createRatingLedger));
+        migrations.add(new Migration(4, "Ranked seasons and season rating archive", SchemaMigrator::createSeasons));
+        migrations.add(new Migration(5, "Row version for optimistic rating updates", SchemaMigrator::addRatingVersion));
+        migrations.add(new Migration(6, "Outbox for Challonge writes and Discord notifications", SchemaMigrator::createOutbox));
+        migrations.add(new Migration(7, "Leases for leader election between instances", SchemaMigrator::createLeases));
+        migrations.add(new Migration(8, "Player indexes for mirrored tournament sets", SchemaMigrator::indexTournamentPlayers));
+        migrations.add(new Migration(9, "Glicko-2 rating state and rating period queue", SchemaMigrator::addRatingPeriods));
+        migrations.add(new Migration(10, "Last-played time for inactivity decay", SchemaMigrator::addLastPlayed));
+        migrations.add(new Migration(11, "Ledger lock row for snapshot watermarks", SchemaMigrator::createLedgerLock));
+        migrations.add(new Migration(12, "Ledger generation for instances sharing a database", SchemaMigrator::addLedgerGeneration));
+        migrations.add(new Migration(13, "Channel and type of mirrored tournaments", SchemaMigrator::addTournamentChannels));
+        migrations.add(new Migration(14, "Match ids of rated rating periods", SchemaMigrator::createRatingPeriodMatches));
+    }
+
+    /**
+     * Applies all pending migrations in version order.
+     *
+     * @return the schema version after migrating.
+     */
+    public int migrate() throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + "version INT PRIMARY KEY,"
+                        + "description VARCHAR(255) NOT NULL,"
+                        + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                        + ")");
+            }
+
+            int currentVersion = getCurrentVersion(conn);
+            List<Migration> pending = new ArrayList<>();
+            for (Migration migration : migrations) {
+                if (migration.version > currentVersion) {
+                    pending.add(migration);
+                }
+            }
+            if (pending.isEmpty()) {
+                logger.info("Database schema is up to date at version {}.", currentVersion);
+                return currentVersion;
+            }
+
+            if (hasExistingData(conn)) {
+                backupBeforeMigration(conn, currentVersion);
+            }
+
+            for (Migration migration : pending) {
+                long start = System.currentTimeMillis();
+                logger.info("Applying schema migration {}: {}", migration.version, migration.description);
+                try (Statement stmt = conn.createStatement()) {
+                    migration.body.apply(conn, stmt);
+                }
+                try (PreparedStatement record = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    record.setInt(1, migration.version);
+                    record.setString(2, migration.description);
+                    record.executeUpdate();
+                }
+                currentVersion = migration.version;
+                logger.info("Schema migration {} applied in {} ms.", migration.version, System.currentTimeMillis() - start);
+            }
+            return currentVersion;
+        }
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private boolean hasExistingData(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                     + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'ELO_RATINGS'")) {
+            rs.next();
+            return rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Takes an online backup next to the database file before an existing database is changed.
+     * In-memory and remote databases are not backed up here.
+     */
+    private void backupBeforeMigration(Connection conn, int currentVersion) throws SQLException {
+        String databaseFile = databaseManager.getDatabaseFilePath();
+        if (databaseFile == null) {
+            return;
+        }
+        String backupFile = databaseFile + "-schema-v" + currentVersion + "-" + System.currentTimeMillis() + ".zip";
+        try (PreparedStatement backup = conn.prepareStatement("BACKUP TO ?")) {
+            backup.setString(1, backupFile);
+            backup.execute();
+        }
+        logger.info("Backed up database to {} before migrating from schema version {}.", backupFile, currentVersion);
+    }
+
+    private static void createBaselineTables(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS elo_ratings ("
+                + "player_id VARCHAR(255) PRIMARY KEY,"
+                + "elo INT NOT NULL"
+                + ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS tournaments ("
+                + "id VARCHAR(255) PRIMARY KEY,"
+                + "name VARCHAR(255) NOT NULL,"
+                + "status VARCHAR(50) NOT NULL,"
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS tournament_participants ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                + "tournament_id VARCHAR(255) NOT NULL,"
+                + "player_id VARCHAR(255) NOT NULL,"
+                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id),"
+                + "FOREIGN KEY (player_id) REFERENCES elo_ratings(player_id)"
+                + ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS tournament_matches ("
+                + "id VARCHAR(255) PRIMARY KEY,"
+                + "tournament_id VARCHAR(255) NOT NULL,"
+                + "player1_id VARCHAR(255) NOT NULL,"
+                + "player2_id VARCHAR(255) NOT NULL,"
+                + "winner_id VARCHAR(255),"
+                + "score VARCHAR(10),"
+                + "status VARCHAR(50) NOT NULL,"
+                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id),"
+                + "FOREIGN KEY (player1_id) REFERENCES elo_ratings(player_id),"
+                + "FOREIGN KEY (player2_id) REFERENCES elo_ratings(player_id),"
+                + "FOREIGN KEY (winner_id) REFERENCES elo_ratings(player_id)"
+                + ")");
+    }
+
+    /**
+     * Discord snowflakes and Challonge ids are 64-bit integers; storing them as BIGINT halves the key size and
+     * makes comparisons numeric. The original foreign keys were created without names, so they are looked up and
+     * dropped before the referenced columns change type. The keys into {@code elo_ratings} are not recreated:
+     * ratings are written behind, so a participant or match can legitimately reach the database before the
+     * player's rating row does.
+     */
+    private static void convertKeysAndAddIndexes(Connection conn, Statement stmt) throws SQLException {
+        List<String[]> foreignKeys = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME, CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS "
+                + "WHERE TABLE_SCHEMA = 'PUBLIC' AND CONSTRAINT_TYPE = 'FOREIGN KEY' "
+                + "AND TABLE_NAME IN ('TOURNAMENT_PARTICIPANTS', 'TOURNAMENT_MATCHES')")) {
+            while (rs.next()) {
+                foreignKeys.add(new String[]{rs.getString(1), rs.getString(2)});
+            }
+        }
+        for (String[] foreignKey : foreignKeys) {
+            stmt.execute("ALTER TABLE " + foreignKey[0] + " DROP CONSTRAINT IF EXISTS " + foreignKey[1]);
+        }
+
+        stmt.execute("ALTER TABLE elo_ratings ALTER COLUMN player_id BIGINT");
+        stmt.execute("ALTER TABLE tournaments ALTER COLUMN id BIGINT");
+        stmt.execute("ALTER TABLE tournament_participants ALTER COLUMN tournament_id BIGINT NOT NULL");
+        stmt.execute("ALTER TABLE tournament_participants ALTER COLUMN player_id BIGINT NOT NULL");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN id BIGINT");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN tournament_id BIGINT NOT NULL");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN player1_id BIGINT NOT NULL");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN player2_id BIGINT NOT NULL");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN winner_id BIGINT");
+
+        stmt.execute("ALTER TABLE tournament_participants ADD CONSTRAINT IF NOT EXISTS fk_participants_tournament "
+                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id)");
+        stmt.execute("ALTER TABLE tournament_matches ADD CONSTRAINT IF NOT EXISTS fk_matches_tournament "
+                + "FOREIGN KEY (tournament_id) REFERENCES tournaments(id)");
+
+        // Descending, so ORDER BY elo DESC LIMIT n reads the first n index entries instead of sorting a full scan
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_elo_ratings_elo ON elo_ratings(elo DESC)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_participants_tournament_player ON tournament_participants(tournament_id, player_id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_matches_tournament_status ON tournament_matches(tournament_id, status)");
+    }
+
+    /**
+     * Existing ratings have no history, so the current table becomes the first snapshot at event 0.
+     */
+    private static void createRatingLedger(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS rating_events ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + "match_id VARCHAR(64),"
+                + "player_id BIGINT NOT NULL,"
+                + "opponent_id BIGINT,"
+                + "old_elo INT NOT NULL,"
+                + "new_elo INT NOT NULL,"
+                + "delta INT NOT NULL,"
+                + "result TINYINT,"
+                + "source VARCHAR(32) NOT NULL,"
+                + "created_at TIMESTAMP NOT NULL"
+                + ")");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_rating_events_player ON rating_events(player_id, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_rating_events_match ON rating_events(match_id)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS rating_snapshots ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + "last_event_id BIGINT NOT NULL,"
+                + "player_count INT NOT NULL,"
+                + "ratings VARBINARY NOT NULL,"
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ")");
+
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM rating_snapshots")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                return;
+            }
+        }
+        Map<String, Integer> ratings = new HashMap<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT player_id, elo FROM elo_ratings")) {
+            while (rs.next()) {
+                ratings.put(rs.getString("player_id"), rs.getInt("elo"));
+            }
+        }
+        RatingLedger.insertSnapshot(conn, 0, ratings);
+    }
+
+    /**
+     * Closed seasons are archived in {@code season_ratings}, keyed by season first so each season's rows sit
+     * together like a partition and {@code elo_ratings} only holds the live season.
+     */
+    private static void createSeasons(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS seasons ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                + "name VARCHAR(100) NOT NULL,"
+                + "started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                + "ended_at TIMESTAMP"
+                + ")");
+        stmt.execute("CREATE TABLE IF NOT EXISTS season_ratings ("
+                + "season_id INT NOT NULL,"
+                + "player_id BIGINT NOT NULL,"
+                + "elo INT NOT NULL,"
+                + "PRIMARY KEY (season_id, player_id),"
+                + "CONSTRAINT fk_season_ratings_season FOREIGN KEY (season_id) REFERENCES seasons(id)"
+                + ")");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_season_ratings_elo ON season_ratings(season_id, elo DESC)");
+
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM seasons")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                return;
+            }
+        }
+        stmt.execute("INSERT INTO seasons (name) VALUES ('Season 1')");
+    }
+
+    private static void addRatingVersion(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE elo_ratings ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL");
+    }
+
+    private static void createOutbox(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS outbox ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + "dedup_key VARCHAR(255) NOT NULL,"
+                + "partition_key VARCHAR(100) NOT NULL,"
+                + "kind VARCHAR(32) NOT NULL,"
+                + "payload VARCHAR NOT NULL,"
+                + "status VARCHAR(16) DEFAULT 'PENDING' NOT NULL,"
+                + "attempts INT DEFAULT 0 NOT NULL,"
+                + "next_attempt_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,"
+                + "last_error VARCHAR(1000),"
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                + "delivered_at TIMESTAMP,"
+                + "CONSTRAINT uq_outbox_dedup_key UNIQUE (dedup_key)"
+                + ")");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_outbox_pending ON outbox(status, partition_key, id)");
+    }
+
+    private static void createLeases(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS leases ("
+                + "name VARCHAR(64) PRIMARY KEY,"
+                + "holder VARCHAR(128) NOT NULL,"
+                + "acquired_at TIMESTAMP NOT NULL,"
+                + "expires_at TIMESTAMP NOT NULL"
+                + ")");
+    }
+
+    /**
+     * Registrations are now upserted, so duplicates are removed before a player becomes unique per tournament.
+     * Scores are Challonge's {@code scores_csv}, one entry per game, which outgrows the original ten characters.
+     */
+    private static void indexTournamentPlayers(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("DELETE FROM tournament_participants p WHERE EXISTS (SELECT 1 FROM tournament_participants q "
+                + "WHERE q.tournament_id = p.tournament_id AND q.player_id = p.player_id AND q.id < p.id)");
+        stmt.execute("ALTER TABLE tournament_participants ADD CONSTRAINT IF NOT EXISTS uq_participants_tournament_player "
+                + "UNIQUE (tournament_id, player_id)");
+        stmt.execute("ALTER TABLE tournament_matches ALTER COLUMN score VARCHAR(255)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_participants_player ON tournament_participants(player_id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_matches_player1 ON tournament_matches(player1_id, tournament_id DESC)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_matches_player2 ON tournament_matches(player2_id, tournament_id DESC)");
+    }
+
+    /**
+     * Deviation and volatility default to Glicko-2's starting values, so a ladder switched from Elo starts every
+     * player as uncertain. Results wait in {@code rating_period_results} until their period is rated.
+     */
+    private static void addRatingPeriods(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE elo_ratings ADD COLUMN IF NOT EXISTS rd DOUBLE PRECISION DEFAULT 350.0 NOT NULL");
+        stmt.execute("ALTER TABLE elo_ratings ADD COLUMN IF NOT EXISTS volatility DOUBLE PRECISION DEFAULT 0.06 NOT NULL");
+        stmt.execute("CREATE TABLE IF NOT EXISTS rating_period_results ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + "match_id VARCHAR(64),"
+                + "winner_id BIGINT NOT NULL,"
+                + "loser_id BIGINT NOT NULL,"
+                + "source VARCHAR(32) NOT NULL,"
+                + "queued_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ")");
+    }
+
+    /**
+     * Existing players are backfilled from their latest game or placement in the ledger; players without one get a
+     * full grace period from now. The decay job scans the table once per run, so {@code last_played} is left
+     * unindexed rather than adding an index write to every game.
+     */
+    private static void addLastPlayed(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE elo_ratings ADD COLUMN IF NOT EXISTS last_played TIMESTAMP");
+        stmt.execute("UPDATE elo_ratings e SET last_played = COALESCE("
+                + "(SELECT MAX(r.created_at) FROM rating_events r WHERE r.player_id = e.player_id "
+                + "AND (r.result IS NOT NULL OR r.source = 'TOURNAMENT_PLACEMENT')), CURRENT_TIMESTAMP) "
+                + "WHERE last_played IS NULL");
+    }
+
+    /**
+     * A single row that ledger appenders and snapshot writers lock with {@code SELECT ... FOR UPDATE}; see
+     * {@link RatingLedger#lock}.
+     */
+    private static void createLedgerLock(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS rating_ledger_lock (id TINYINT PRIMARY KEY)");
+        stmt.execute("MERGE INTO rating_ledger_lock KEY (id) VALUES (1)");
+    }
+
+    /**
+     * Counts rating changes that bypass the ledger's append order, so instances following it know to reload.
+     */
+    private static void addLedgerGeneration(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE rating_ledger_lock ADD COLUMN IF NOT EXISTS generation BIGINT DEFAULT 0 NOT NULL");
+    }
+
+    /**
+     * Lets the leader instance take over tournaments created on another instance.
+     */
+    private static void addTournamentChannels(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE tournaments ADD COLUMN IF NOT EXISTS channel_id BIGINT");
+        stmt.execute("ALTER TABLE tournaments ADD COLUMN IF NOT EXISTS tournament_type VARCHAR(64)");
+    }
+
+    /**
+     * Keeps the match ids of a rated period once its queued results are removed, since its ledger events only name
+     * the period. A redelivered tournament is then recognised as rated rather than queued again.
+     */
+    private static void createRatingPeriodMatches(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS rating_period_matches ("
+                + "match_id VARCHAR(64) NOT NULL,"
+                + "source VARCHAR(32) NOT NULL,"
+                + "period_end BIGINT NOT NULL,"
+                + "rated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ")");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_period_matches_match ON rating_period_matches(match_id)");
+    }
+
+    @FunctionalInterface
+    private interface MigrationBody {
+        void apply(Connection conn, Statement stmt) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final MigrationBody body;
+
+        Migration(int version, String description, MigrationBody body) {
+            this.version = version;
+            this.description = description;
+            this.body = body;
+        }
+    }
+}
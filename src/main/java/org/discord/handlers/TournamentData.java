@@ -21,6 +21,7 @@ public class TournamentData {
     private final Map<Long, Long> matchToTournamentMap; // Maps matchId to tournamentId
     private final ConcurrentHashMap<String, ChallongeDataClasses.Participant> participants;
     private final Set<Long> notifiedMatches; // Tracks matches that have been notified
+    private final Map<Long, String> reportedOutcomes; // Maps matchId to the first outcome reported for it
     private boolean roundNotified;
     private ScheduledFuture<?> scheduler; // Mutable to allow assignment upon starting
     private boolean started; // Flag to indicate if the tournament has been started
@@ -34,6 +35,7 @@ public class TournamentData {
         this.participants = new ConcurrentHashMap<>();
         this.started = false;
         this.notifiedMatches = ConcurrentHashMap.newKeySet();
+        this.reportedOutcomes = new ConcurrentHashMap<>();
         this.tournament = tournament;
         this.roundNotified = false;
     }
@@ -94,4 +96,8 @@ public class TournamentData {
     public Set<Long> getNotifiedMatches() {
         return notifiedMatches;
     }
+
+    public Map<Long, String> getReportedOutcomes() {
+        return reportedOutcomes;
+    }
 }
@@ -1,11 +1,18 @@
 package org.discord.handlers;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
 import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 
 import java.io.IOException;
 
@@ -16,6 +23,13 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import org.discord.ChallongeDataClasses;
 import org.discord.SmashEloBot;
+import org.discord.handlers.rating.BracketSimulator;
+import org.discord.handlers.storage.MatchResult;
+import org.discord.handlers.storage.OutboxEntry;
+import org.discord.handlers.storage.PlayerSet;
+import org.discord.handlers.storage.RatingEvent;
+import org.discord.handlers.storage.TournamentChanges;
+import org.discord.handlers.storage.TournamentMatch;
 import org.discord.handlers.strategies.DoubleEliminationCompletionStrategy;
 import org.discord.handlers.strategies.RoundRobinCompletionStrategy;
 import org.discord.handlers.strategies.SingleEliminationCompletionStrategy;
@@ -36,6 +50,9 @@ import java.util.stream.Collectors;
 
 public class TournamentManager {
     private static final Logger logger = LoggerFactory.getLogger(TournamentManager.class);
+    private static final int RECENT_SETS_LIMIT = 10;
+    private static final int PREDICTION_SIMULATIONS = 100_000;
+    private static final int PREDICTION_LIST_SIZE = 16;
     private final Map<Long, ScheduledFuture<?>> tournamentSchedulers = new ConcurrentHashMap<>();
 
     private final ChallongeService challongeService;
@@ -45,15 +62,24 @@ public class TournamentManager {
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private final ConcurrentHashMap<Long, TournamentData> activeTournaments = new ConcurrentHashMap<>();
     private final List<String> tournamentOrganizerRoleNames;
+    private final OutboxDispatcher outbox;
+    private final LeaderElection leaderElection;
+    private final TournamentMirror mirror;
+    private final Gson gson = new Gson();
     private String guildId; // The ID of your Discord server
     private ChallongeDataClasses.Tournament currentTournament;
     private MessageChannelUnion tournamentChannel;
 
-    public TournamentManager(ChallongeService challongeService, EloManager eloManager, String guildId, List<String> tournamentOrganizerRoleNames) {
+    public TournamentManager(ChallongeService challongeService, EloManager eloManager, String guildId, List<String> tournamentOrganizerRoleNames,
+                             OutboxDispatcher outbox, LeaderElection leaderElection, TournamentMirror mirror) {
         this.challongeService = challongeService;
         this.eloManager = eloManager;
         this.guildId = guildId;
         this.tournamentOrganizerRoleNames = tournamentOrganizerRoleNames;
+        this.outbox = outbox;
+        this.leaderElection = leaderElection;
+        this.mirror = mirror;
+        registerOutboxHandlers();
     }
 
     public static String generateUniqueUrl() {
@@ -69,6 +95,10 @@ public class TournamentManager {
         };
     }
 
+    /**
+     * Queues finalizing the tournament on Challonge and, after it, announcing the standings and rating its sets.
+     * Both are idempotent per tournament, so repeated completion checks queue them only once.
+     */
     private void finalizeTournament(Long tournamentId) {
         TournamentData tournamentData = activeTournaments.get(tournamentId);
         if (tournamentData == null) {
@@ -77,139 +107,131 @@ public class TournamentManager {
         }
 
         MessageChannelUnion channel = tournamentData.getChannel();
+        JsonObject payload = new JsonObject();
+        payload.addProperty("tournamentId", tournamentId);
+        payload.addProperty("channelId", channel.getIdLong());
+        payload.addProperty("tournamentType", tournamentData.getTournamentType());
 
         try {
-            // Finalize the tournament if it's not already finalized
-            if (!"complete".equalsIgnoreCase(tournamentData.getTournament().state)) {
-                Call<ChallongeDataClasses.TournamentWrapper> finalizeCall = challongeService.finalizeTournament(tournamentId, new HashMap<>());
-                Response<ChallongeDataClasses.TournamentWrapper> finalizeResponse = finalizeCall.execute();
-
-                if (!finalizeResponse.isSuccessful()) {
-                    logger.error("Failed to finalize tournament: {}", finalizeResponse.errorBody() != null ? finalizeResponse.errorBody().string() : "Unknown error");
-                    channel.sendMessage("⚠️ Failed to finalize the tournament. Please contact an administrator.").queue();
-                    return;
-                }
-            }
-
-            Call<List<ChallongeDataClasses.ParticipantWrapper>> participantsCall = challongeService.getParticipants(tournamentId, new HashMap<>());
-            Response<List<ChallongeDataClasses.ParticipantWrapper>> participantsResponse = participantsCall.execute();
-
-            if (participantsResponse.isSuccessful() && participantsResponse.body() != null) {
-                List<ChallongeDataClasses.ParticipantWrapper> participantWrappers = participantsResponse.body();
-                participantWrappers.sort(Comparator.comparingInt(pw -> pw.participant.finalRank));
-
-                EmbedBuilder embed = new EmbedBuilder();
-                embed.setTitle("🏆 Tournament Concluded!");
-                embed.setDescription("The " + tournamentData.getTournamentType() + " tournament has ended. Here are the final results:");
-                embed.setColor(Color.YELLOW);
-
-                for (int i = 0; i < Math.min(3, participantWrappers.size()); i++) {
-                    ChallongeDataClasses.Participant participant = participantWrappers.get(i).participant;
-                    User user = channel.getJDA().retrieveUserById(participant.misc).complete();
-                    String medal = i == 0 ? "🥇" : i == 1 ? "🥈" : "🥉";
-                    embed.addField(medal + " " + getOrdinal(i + 1) + " Place", user.getName(), false);
-                }
-
-                // Calculate and apply ELO changes
-                Map<String, Integer> eloChanges = calculateEloChanges(participantWrappers, tournamentData.getTournamentType());
-                for (Map.Entry<String, Integer> entry : eloChanges.entrySet()) {
-                    User user = channel.getJDA().retrieveUserById(entry.getKey()).complete();
-                    int oldElo = eloManager.getElo(user);
-                    int newElo = oldElo + entry.getValue();
-                    eloManager.setElo(user, newElo);
-                    embed.addField(user.getName() + " ELO Change", oldElo + " → " + newElo + " (" + (entry.getValue() >= 0 ? "+" : "") + entry.getValue() + ")", true);
-                }
-
-                channel.sendMessageEmbeds(embed.build()).queue();
-
-                logger.info("Tournament ID {} concluded successfully.", tournamentId);
-
-                tournamentData.getScheduler().cancel(false);
-                activeTournaments.remove(tournamentId);
-            } else {
-                String errorBody = participantsResponse.errorBody() != null ? participantsResponse.errorBody().string() : "Unknown error";
-                logger.error("Failed to retrieve participant standings for tournament ID {}: {} {}", tournamentId, participantsResponse.code(), participantsResponse.message());
-                channel.sendMessage("❌ Tournament concluded, but failed to retrieve participant standings.").queue();
-            }
-        } catch (IOException e) {
-            logger.error("IOException while finalizing tournament ID {}", tournamentId, e);
+            outbox.enqueue(
+                    new OutboxEntry("challonge-finalize:" + tournamentId, outboxPartition(tournamentId), OutboxEntry.Kind.CHALLONGE_FINALIZE, payload.toString()),
+                    new OutboxEntry("tournament-results:" + tournamentId, outboxPartition(tournamentId), OutboxEntry.Kind.TOURNAMENT_RESULTS, payload.toString()));
+        } catch (IllegalStateException e) {
+            logger.error("Failed to queue finalization of tournament ID {}", tournamentId, e);
             channel.sendMessage("❌ An error occurred while finalizing the tournament. Please contact an administrator.").queue();
+            return;
         }
+
+        tournamentData.getScheduler().cancel(false);
+        activeTournaments.remove(tournamentId);
     }
 
-    private Map<String, Integer> calculateEloChanges(List<ChallongeDataClasses.ParticipantWrapper> participants, String tournamentType) {
-        Map<String, Integer> eloChanges = new HashMap<>();
-        int participantCount = participants.size();
+    private void deliverFinalize(JsonObject payload) throws IOException {
+        Long tournamentId = payload.get("tournamentId").getAsLong();
 
-        for (int i = 0; i < participantCount; i++) {
-            ChallongeDataClasses.Participant participant = participants.get(i).participant;
-            int eloChange = calculateIndividualEloChange(i + 1, participantCount, tournamentType);
-            eloChanges.put(participant.misc, eloChange);
+        // A redelivered entry finds the tournament already complete
+        Response<ChallongeDataClasses.TournamentWrapper> tournamentResponse = challongeService.getTournament(tournamentId, new HashMap<>()).execute();
+        checkChallongeResponse("fetch tournament " + tournamentId, tournamentResponse);
+        ChallongeDataClasses.Tournament tournament = tournamentResponse.body().tournament;
+        if (!"complete".equalsIgnoreCase(tournament.state)) {
+            Response<ChallongeDataClasses.TournamentWrapper> finalizeResponse = challongeService.finalizeTournament(tournamentId, new HashMap<>()).execute();
+            checkChallongeResponse("finalize tournament " + tournamentId, finalizeResponse);
+            logger.info("Tournament ID {} finalized on Challonge.", tournamentId);
         }
-
-        return eloChanges;
+        mirror.recordTournament(String.valueOf(tournamentId), tournament.name, mirrorStatus("complete"));
     }
 
-    private Map<String, Integer> calculateEloChanges(List<ChallongeDataClasses.ParticipantWrapper> participants) {
-        Map<String, Integer> eloChanges = new HashMap<>();
-        int participantCount = participants.size();
-
-        // Calculate expected scores for each participant
-        Map<String, Double> expectedScores = calculateExpectedScores(participants);
+    /**
+     * Rates the tournament's sets, then announces the standings. A rating failure is retried by the outbox; sets
+     * rated by an earlier attempt are skipped, so a retry only rates what is missing.
+     */
+    private void deliverTournamentResults(JsonObject payload) throws IOException {
+        Long tournamentId = payload.get("tournamentId").getAsLong();
+        String tournamentType = payload.get("tournamentType").getAsString();
 
-        for (int i = 0; i < participantCount; i++) {
-            ChallongeDataClasses.Participant participant = participants.get(i).participant;
-            int currentElo = eloManager.getElo(retrieveDiscordUser(participant.misc)); // Assuming misc stores the Discord user ID
-            double actualScore = calculateActualScore(i + 1, participantCount);
-            double expectedScore = expectedScores.get(participant.misc);
+        Response<List<ChallongeDataClasses.ParticipantWrapper>> participantsResponse = challongeService.getParticipants(tournamentId, new HashMap<>()).execute();
+        checkChallongeResponse("retrieve participant standings for tournament " + tournamentId, participantsResponse);
 
-            int eloChange = calculateEloChange(currentElo, actualScore, expectedScore);
-            eloChanges.put(participant.misc, eloChange);
+        List<ChallongeDataClasses.ParticipantWrapper> participantWrappers = participantsResponse.body();
+        if (participantWrappers.stream().anyMatch(pw -> pw.participant.finalRank == null)) {
+            throw new IllegalStateException("Standings of tournament " + tournamentId + " are not final");
         }
+        participantWrappers.sort(Comparator.comparingInt(pw -> pw.participant.finalRank));
 
-        return eloChanges;
-    }
+        // Rate every completed set in bracket order as one batch before anything can fail on Discord
+        List<MatchResult> sets = bracketResults(tournamentId, participantWrappers);
+        Map<String, int[]> ratingChanges;
+        try {
+            ratingChanges = eloManager.applyTournamentResults(sets, EloManager.SET_RATING);
+        } catch (IllegalStateException e) {
+            throw new IOException("Failed to apply ELO changes for tournament " + tournamentId, e);
+        }
 
-    private Map<String, Double> calculateExpectedScores(List<ChallongeDataClasses.ParticipantWrapper> participants) {
-        Map<String, Double> expectedScores = new HashMap<>();
-        int participantCount = participants.size();
+        MessageChannel channel = getOutboxChannel(payload);
+        EmbedBuilder embed = new EmbedBuilder();
+        embed.setTitle("🏆 Tournament Concluded!");
+        embed.setDescription("The " + tournamentType + " tournament has ended. Here are the final results:");
+        embed.setColor(Color.YELLOW);
 
-        for (ChallongeDataClasses.ParticipantWrapper wrapper1 : participants) {
-            String id1 = wrapper1.participant.misc;
-            int elo1 = eloManager.getElo(retrieveDiscordUser(id1));
-            double totalExpectedScore = 0;
+        for (int i = 0; i < Math.min(3, participantWrappers.size()); i++) {
+            ChallongeDataClasses.Participant participant = participantWrappers.get(i).participant;
+            String medal = i == 0 ? "🥇" : i == 1 ? "🥈" : "🥉";
+            embed.addField(medal + " " + getOrdinal(i + 1) + " Place", participant.name, false);
+        }
 
-            for (ChallongeDataClasses.ParticipantWrapper wrapper2 : participants) {
-                if (!wrapper1.equals(wrapper2)) {
-                    String id2 = wrapper2.participant.misc;
-                    int elo2 = eloManager.getElo(retrieveDiscordUser(id2));
-                    totalExpectedScore += 1 / (1 + Math.pow(10, (elo2 - elo1) / 400.0));
-                }
+        // List the changes in standings order
+        for (ChallongeDataClasses.ParticipantWrapper wrapper : participantWrappers) {
+            int[] change = ratingChanges.get(wrapper.participant.misc);
+            if (change == null) {
+                continue;
             }
-
-            expectedScores.put(id1, totalExpectedScore / (participantCount - 1));
+            if (embed.getFields().size() == MessageEmbed.MAX_FIELD_AMOUNT) {
+                break;
+            }
+            int delta = change[1] - change[0];
+            embed.addField(wrapper.participant.name + " ELO Change", change[0] + " → " + change[1] + " (" + (delta >= 0 ? "+" : "") + delta + ")", true);
         }
-
-        return expectedScores;
+        channel.sendMessageEmbeds(embed.build()).queue();
+        logger.info("Tournament ID {} concluded successfully; {} completed set(s), rating changes for {} player(s).", tournamentId, sets.size(), ratingChanges.size());
     }
 
-    private double calculateActualScore(int rank, int totalParticipants) {
-        return (double) (totalParticipants - rank) / (totalParticipants - 1);
-    }
+    /**
+     * Fetches every completed match of the tournament in one call and turns the decided ones into results in the
+     * order they were played. Challonge participant ids are mapped to Discord ids through the standings, so no
+     * participant is looked up per match.
+     */
+    private List<MatchResult> bracketResults(Long tournamentId, List<ChallongeDataClasses.ParticipantWrapper> participants) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        options.put("state", "complete");
+        Response<List<ChallongeDataClasses.MatchWrapper>> matchesResponse = challongeService.getMatches(tournamentId, options).execute();
+        checkChallongeResponse("retrieve completed matches for tournament " + tournamentId, matchesResponse);
+
+        Map<Long, String> discordIds = new HashMap<>();
+        for (ChallongeDataClasses.ParticipantWrapper wrapper : participants) {
+            if (wrapper.participant.misc != null && !wrapper.participant.misc.isEmpty()) {
+                discordIds.put(wrapper.participant.id, wrapper.participant.misc);
+            }
+        }
 
-    private int calculateEloChange(int currentElo, double actualScore, double expectedScore) {
-        int kFactor = getKFactor(currentElo);
-        return (int) Math.round(kFactor * (actualScore - expectedScore));
-    }
+        List<ChallongeDataClasses.MatchData> matches = new ArrayList<>();
+        for (ChallongeDataClasses.MatchWrapper wrapper : matchesResponse.body()) {
+            ChallongeDataClasses.MatchData match = wrapper.match;
+            // Forfeits were never played, so they say nothing about either player's strength
+            if (match.winnerId != null && match.loserId != null && !Boolean.TRUE.equals(match.forfeited)
+                    && discordIds.containsKey(match.winnerId) && discordIds.containsKey(match.loserId)) {
+                matches.add(match);
+            }
+        }
+        matches.sort(Comparator.comparing((ChallongeDataClasses.MatchData match) -> match.suggestedPlayOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(match -> match.completedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(match -> match.id));
 
-    private int getKFactor(int elo) {
-        if (elo < 2000) {
-            return 32;
-        } else if (elo < 2400) {
-            return 24;
-        } else {
-            return 16;
+        List<MatchResult> results = new ArrayList<>(matches.size());
+        for (ChallongeDataClasses.MatchData match : matches) {
+            results.add(new MatchResult(discordIds.get(match.winnerId), discordIds.get(match.loserId), String.valueOf(match.id),
+                    RatingEvent.Source.TOURNAMENT_MATCH));
         }
+        return results;
     }
 
     private String determineMatchId(SlashCommandInteractionEvent event, User opponent) {
@@ -461,33 +483,32 @@ public class TournamentManager {
             Map<String, Object> params = new HashMap<>();
             params.put("match", matchParams);
 
-            logger.info("Sending match update request with params: {}", params);
+            // Both players reporting the same result must share a key, so the score is keyed winner-first
+            String outcome = winnerId + ":" + Math.max(yourWins, opponentWins) + "-" + Math.min(yourWins, opponentWins);
+            String reportedOutcome = getTournamentById(tournamentId).getReportedOutcomes().putIfAbsent(Long.valueOf(matchId), outcome);
+            if (reportedOutcome != null && !reportedOutcome.equals(outcome)) {
+                logger.warn("Conflicting report for match ID {}: {} after {}", matchId, outcome, reportedOutcome);
+                event.reply("⚠️ " + reporter.getAsMention() + " reported " + yourWins + "-" + opponentWins + " against "
+                                + opponent.getAsMention() + ", which conflicts with the result already reported for this match. "
+                                + organizerMentions(event.getGuild()) + " please confirm the correct score.")
+                        .queue();
+                return;
+            }
 
-            Call<ChallongeDataClasses.MatchWrapper> call = challongeService.updateMatch(tournamentId, Long.valueOf(matchId), new HashMap<>(), params);
-            Response<ChallongeDataClasses.MatchWrapper> response = call.execute();
+            logger.info("Queueing match update with params: {}", params);
 
-            if (response.isSuccessful() && response.body() != null) {
-                logger.info("Match report successful for match ID: {}", matchId);
-                event.reply("✅ Match reported successfully!").queue();
-                TournamentData tournamentData = getTournamentById(tournamentId);
-                if (tournamentData != null) {
-                    if ("round robin".equalsIgnoreCase(tournamentData.getTournamentType())) {
-                        checkRoundCompletion(tournamentData);
-                    } else {
-                        checkTournamentCompletion(tournamentId);
-                    }
-                }
+            OutboxEntry update = matchUpdateEntry("challonge-match:" + tournamentId + ":" + matchId + ":" + outcome, tournamentId,
+                    Long.valueOf(matchId), new HashMap<>(), params, event.getChannel().getIdLong());
+            if (outbox.enqueue(update) > 0) {
+                logger.info("Match report queued for match ID: {}", matchId);
+                event.reply("✅ Match reported successfully! The bracket will update shortly.").queue();
             } else {
-                String errorBody = response.errorBody() != null ? response.errorBody().string() : "No error body";
-                logger.error("Failed to report match. Response Code: {}, Message: {}, Body: {}",
-                        response.code(), response.message(), errorBody);
-                event.reply("❌ Failed to report the match. Error code: " + response.code() +
-                                ". Please ensure the scores are correct and try again. If the issue persists, contact a tournament organizer.")
+                event.reply("⚠️ This result has already been reported and will appear in the bracket shortly.")
                         .setEphemeral(true)
                         .queue();
             }
-        } catch (IOException e) {
-            logger.error("IOException while reporting match", e);
+        } catch (IOException | IllegalStateException e) {
+            logger.error("Error while reporting match", e);
             event.reply("❌ An error occurred while reporting the match. Please try again later or contact a tournament organizer if the issue persists.")
                     .setEphemeral(true)
                     .queue();
@@ -503,6 +524,7 @@ public class TournamentManager {
 
             if (response.isSuccessful() && response.body() != null) {
                 List<ChallongeDataClasses.MatchWrapper> matches = response.body();
+                mirrorMatches(tournamentId, matches);
 
                 if (areAllMatchesCompleted(matches)) {
                     logger.info("All matches completed for tournament ID: {}. Finalizing tournament.", tournamentId);
@@ -542,25 +564,6 @@ public class TournamentManager {
         return null;
     }
 
-    private int calculateIndividualEloChange(int rank, int totalParticipants, String tournamentType) {
-        int baseChange = 32; // Maximum ELO change
-        double rankPercentile = (double) rank / totalParticipants;
-
-        // Adjust the ELO change based on tournament type
-        switch (tournamentType.toLowerCase()) {
-            case "single elimination":
-                return (int) Math.round(baseChange * (1 - rankPercentile)) - (baseChange / 2);
-            case "double elimination":
-                // Slightly higher ELO changes for double elimination
-                return (int) Math.round(1.2 * baseChange * (1 - rankPercentile)) - (baseChange / 2);
-            case "round robin":
-                // More conservative ELO changes for round robin
-                return (int) Math.round(0.8 * baseChange * (1 - rankPercentile)) - (baseChange / 2);
-            default:
-                return (int) Math.round(baseChange * (1 - rankPercentile)) - (baseChange / 2);
-        }
-    }
-
     /**
      * Retrieves the Discord User ID associated with a Challonge Participant ID.
      *
@@ -597,8 +600,9 @@ public class TournamentManager {
 
     public void startPeriodicChecks(Long tournamentId) {
         Runnable checkTask = () -> {
+            // With several instances on one database only the leader polls Challonge
             TournamentData tournament = getTournamentById(tournamentId);
-            if (tournament != null) {
+            if (tournament != null && leaderElection.isLeader()) {
                 checkTournamentCompletion(tournamentId);
             }
         };
@@ -685,23 +689,17 @@ public class TournamentManager {
             winnerData.put("winner_id", winnerId);
             matchParams.put("match", winnerData.toString());
 
-            // Update the match with the resolved winner
-            Call<ChallongeDataClasses.MatchWrapper> updateMatchCall = challongeService.updateMatch(tournamentId, matchId, matchParams, winnerData);
-            Response<ChallongeDataClasses.MatchWrapper> updateMatchResponse = updateMatchCall.execute();
-
-            if (updateMatchResponse.isSuccessful() && updateMatchResponse.body() != null) {
-                event.reply("✅ The match has been resolved successfully!").queue();
+            // Queue the update with the resolved winner
+            String dedupKey = "challonge-match-resolve:" + tournamentId + ":" + matchId + ":" + winnerId + ":" + score1 + "-" + score2;
+            OutboxEntry update = matchUpdateEntry(dedupKey, tournamentId, matchId, matchParams, winnerData, event.getChannel().getIdLong());
+            if (outbox.enqueue(update) > 0) {
+                event.reply("✅ The match has been resolved successfully! The bracket will update shortly.").queue();
                 logger.info("Match ID {} in Tournament ID {} resolved with winner '{}'.", matchId, tournamentId, winnerId);
-
-                // Optionally, trigger an immediate tournament completion check
-                checkTournamentCompletion(tournamentId);
             } else {
-                String errorBody = updateMatchResponse.errorBody() != null ? updateMatchResponse.errorBody().string() : "Unknown error";
-                logger.error("Failed to update match ID {}: {} {}", matchId, updateMatchResponse.code(), updateMatchResponse.message());
-                event.reply("❌ Failed to resolve the match. Please try again.").setEphemeral(true).queue();
+                event.reply("⚠️ This match has already been resolved with this score.").setEphemeral(true).queue();
             }
-        } catch (IOException e) {
-            logger.error("IOException while resolving discrepancy for match ID {}", matchId, e);
+        } catch (IOException | IllegalStateException e) {
+            logger.error("Error while resolving discrepancy for match ID {}", matchId, e);
             event.reply("❌ An error occurred while resolving the discrepancy. Please try again later.").setEphemeral(true).queue();
         }
     }
@@ -748,13 +746,154 @@ public class TournamentManager {
     }
 
 
-    private void notifyParticipants(User winner, User loser, String message) {
-        winner.openPrivateChannel().queue(channel ->
-                channel.sendMessage(message + " You won!").queue()
-        );
-        loser.openPrivateChannel().queue(channel ->
-                channel.sendMessage(message + " You lost.").queue()
-        );
+    private static String outboxPartition(Long tournamentId) {
+        return "tournament:" + tournamentId;
+    }
+
+    private OutboxEntry matchUpdateEntry(String dedupKey, Long tournamentId, Long matchId, Map<String, String> options,
+                                         Map<String, Object> body, long channelId) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("tournamentId", tournamentId);
+        payload.addProperty("matchId", matchId);
+        payload.addProperty("channelId", channelId);
+        payload.add("options", gson.toJsonTree(options));
+        payload.add("body", gson.toJsonTree(body));
+        return new OutboxEntry(dedupKey, outboxPartition(tournamentId), OutboxEntry.Kind.CHALLONGE_UPDATE_MATCH, payload.toString());
+    }
+
+    private OutboxEntry directMessageEntry(String dedupKey, Long tournamentId, String userId, String message) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("userId", userId);
+        payload.addProperty("message", message);
+        return new OutboxEntry(dedupKey, outboxPartition(tournamentId), OutboxEntry.Kind.DISCORD_DIRECT_MESSAGE, payload.toString());
+    }
+
+    private void registerOutboxHandlers() {
+        outbox.register(OutboxEntry.Kind.CHALLONGE_UPDATE_MATCH, new OutboxDispatcher.Handler() {
+            @Override
+            public void deliver(JsonObject payload) throws IOException {
+                deliverMatchUpdate(payload);
+            }
+
+            @Override
+            public void onFailure(JsonObject payload, String error) {
+                notifyOutboxChannel(payload, "❌ Failed to update match " + payload.get("matchId").getAsString()
+                        + " on Challonge: " + error + ". Please contact a tournament organizer.");
+            }
+        });
+        outbox.register(OutboxEntry.Kind.CHALLONGE_FINALIZE, new OutboxDispatcher.Handler() {
+            @Override
+            public void deliver(JsonObject payload) throws IOException {
+                deliverFinalize(payload);
+            }
+
+            @Override
+            public void onFailure(JsonObject payload, String error) {
+                notifyOutboxChannel(payload, "⚠️ Failed to finalize the tournament. Please contact an administrator.");
+            }
+        });
+        outbox.register(OutboxEntry.Kind.TOURNAMENT_RESULTS, new OutboxDispatcher.Handler() {
+            @Override
+            public void deliver(JsonObject payload) throws IOException {
+                deliverTournamentResults(payload);
+            }
+
+            @Override
+            public void onFailure(JsonObject payload, String error) {
+                notifyOutboxChannel(payload, "❌ Tournament concluded, but its results could not be rated and posted: " + error
+                        + ". Please contact an administrator.");
+            }
+        });
+        outbox.register(OutboxEntry.Kind.DISCORD_DIRECT_MESSAGE, this::deliverDirectMessage);
+    }
+
+    private void deliverMatchUpdate(JsonObject payload) throws IOException {
+        Long tournamentId = payload.get("tournamentId").getAsLong();
+        Long matchId = payload.get("matchId").getAsLong();
+        Map<String, String> options = new HashMap<>();
+        toMap(payload.getAsJsonObject("options")).forEach((key, value) -> options.put(key, String.valueOf(value)));
+
+        Response<ChallongeDataClasses.MatchWrapper> response = challongeService.updateMatch(tournamentId, matchId, options,
+                toMap(payload.getAsJsonObject("body"))).execute();
+        checkChallongeResponse("update match " + matchId, response);
+        logger.info("Match update delivered for match ID: {}", matchId);
+        mirrorMatch(tournamentId, response.body().match);
+
+        // Challonge has the result now; the completion check is best effort and runs periodically anyway
+        try {
+            TournamentData tournamentData = getTournamentById(tournamentId);
+            if (tournamentData != null) {
+                if ("round robin".equalsIgnoreCase(tournamentData.getTournamentType())) {
+                    checkRoundCompletion(tournamentData);
+                } else {
+                    checkTournamentCompletion(tournamentId);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Completion check after match {} in tournament {} failed", matchId, tournamentId, e);
+        }
+    }
+
+    private void deliverDirectMessage(JsonObject payload) throws IOException {
+        try {
+            User user = SmashEloBot.jda.retrieveUserById(payload.get("userId").getAsString()).complete();
+            user.openPrivateChannel().complete().sendMessage(payload.get("message").getAsString()).complete();
+        } catch (ErrorResponseException e) {
+            if (e.isServerError()) {
+                throw new IOException("Discord returned " + e.getErrorCode(), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns normally if the call succeeded with a body. Rate limiting and server errors throw
+     * {@link IOException} so the outbox retries; any other rejection will not improve and throws
+     * {@link IllegalStateException}.
+     */
+    private static void checkChallongeResponse(String action, Response<?> response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            return;
+        }
+        String errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
+        String message = "Failed to " + action + ": " + response.code() + " " + response.message() + " " + errorBody;
+        if (response.code() == 429 || response.code() >= 500) {
+            throw new IOException(message);
+        }
+        throw new IllegalStateException(message);
+    }
+
+    private static MessageChannel getOutboxChannel(JsonObject payload) {
+        long channelId = payload.get("channelId").getAsLong();
+        MessageChannel channel = SmashEloBot.jda.getChannelById(MessageChannel.class, channelId);
+        if (channel == null) {
+            throw new IllegalStateException("Channel " + channelId + " no longer exists");
+        }
+        return channel;
+    }
+
+    private static void notifyOutboxChannel(JsonObject payload, String message) {
+        MessageChannel channel = SmashEloBot.jda.getChannelById(MessageChannel.class, payload.get("channelId").getAsLong());
+        if (channel != null) {
+            channel.sendMessage(message).queue();
+        }
+    }
+
+    /**
+     * Converts a stored request body back into maps for Retrofit. Values are kept as strings, which Challonge
+     * accepts, so participant ids do not turn into floating-point numbers.
+     */
+    private static Map<String, Object> toMap(JsonObject object) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            JsonElement value = entry.getValue();
+            if (value.isJsonObject()) {
+                map.put(entry.getKey(), toMap(value.getAsJsonObject()));
+            } else if (!value.isJsonNull()) {
+                map.put(entry.getKey(), value.getAsString());
+            }
+        }
+        return map;
     }
 
     public void handleCreateTournament(SlashCommandInteractionEvent event) {
@@ -791,6 +930,8 @@ public class TournamentManager {
                 String mappedType = createdTournament.tournamentType.toLowerCase();
 
                 logger.info("Tournament '{}' created with ID: {}", createdTournament.name, tournamentId);
+                mirror.recordTournament(String.valueOf(tournamentId), createdTournament.name, mirrorStatus(createdTournament.state),
+                        event.getChannel().getId(), mappedType);
 
 
                 // Store tournament data
@@ -894,13 +1035,10 @@ public class TournamentManager {
                 // Update the tournament as started
                 tournamentData.setStarted(true);
                 tournamentData.setTournament(response.body().tournament);
+                mirror.recordTournament(String.valueOf(tournamentId), response.body().tournament.name, mirrorStatus(response.body().tournament.state));
 
                 // Schedule periodic checks for the tournament
-                ScheduledFuture<?> scheduledTask = scheduler.scheduleAtFixedRate(() -> {
-                    checkTournamentCompletion(tournamentId);
-                }, 0, 5, TimeUnit.MINUTES); // Adjust interval as needed
-
-                tournamentData.setScheduler(scheduledTask);
+                tournamentData.setScheduler(scheduleCompletionChecks(tournamentId));
                 EmbedBuilder embed = new EmbedBuilder();
                 embed.setTitle("✅ Tournament Started!");
                 embed.setDescription("The tournament has officially begun. Here's how to participate:");
@@ -916,6 +1054,8 @@ public class TournamentManager {
                 event.reply("✅ Tournament has been started!").setEphemeral(false).queue();
                 logger.info("Tournament ID {} has been started.", tournamentId);
                 notifyNextMatches(tournamentData);
+                // Off the interaction thread; the simulation uses every core for up to a second
+                scheduler.execute(() -> postPredictions(tournamentData));
             } else {
                 String errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
                 logger.error("Failed to start tournament ID {}: " + response.code() + " " + response.message() + "\n" + errorBody);
@@ -931,6 +1071,91 @@ public class TournamentManager {
         }
     }
 
+    private ScheduledFuture<?> scheduleCompletionChecks(Long tournamentId) {
+        return scheduler.scheduleAtFixedRate(() -> {
+            if (leaderElection.isLeader()) {
+                checkTournamentCompletion(tournamentId);
+            }
+        }, 0, 5, TimeUnit.MINUTES); // Adjust interval as needed
+    }
+
+    /**
+     * Starts taking over tournaments from the mirrored tables on the leader. Must be called once JDA is ready, since
+     * a tournament is bound to its channel.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::adoptOpenTournamentsIfLeader, 0, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * A tournament only lives in the memory of the instance it was created on, but only the leader polls and
+     * finalizes tournaments. The leader therefore tracks every open tournament in the mirrored tables that it does
+     * not know yet, and starts checking tournaments that another instance started.
+     */
+    private void adoptOpenTournamentsIfLeader() {
+        if (!leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            for (TournamentChanges.Tournament open : mirror.loadOpenTournaments()) {
+                try {
+                    adoptTournament(open);
+                } catch (IOException e) {
+                    logger.warn("Could not take over tournament ID {}; retrying on the next run.", open.id, e);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled task
+            logger.error("Taking over open tournaments failed", e);
+        }
+    }
+
+    private void adoptTournament(TournamentChanges.Tournament open) throws IOException {
+        Long tournamentId = Long.valueOf(open.id);
+        boolean started = "UNDERWAY".equals(open.status) || "AWAITING_REVIEW".equals(open.status);
+        TournamentData tournamentData = activeTournaments.get(tournamentId);
+        if (tournamentData != null && (tournamentData.isStarted() || !started)) {
+            return;
+        }
+
+        if (tournamentData == null) {
+            MessageChannelUnion channel = SmashEloBot.jda.getChannelById(MessageChannelUnion.class, Long.parseLong(open.channelId));
+            if (channel == null) {
+                logger.warn("Channel {} of tournament ID {} no longer exists; not taking it over.", open.channelId, tournamentId);
+                return;
+            }
+            Response<ChallongeDataClasses.TournamentWrapper> response = challongeService.getTournament(tournamentId, new HashMap<>()).execute();
+            checkChallongeResponse("fetch tournament " + tournamentId, response);
+            TournamentData adopted = new TournamentData(tournamentId, open.tournamentType, channel, response.body().tournament);
+            loadParticipants(adopted);
+            if (activeTournaments.putIfAbsent(tournamentId, adopted) != null) {
+                return;
+            }
+            tournamentData = adopted;
+            logger.info("Took over tournament ID {} ('{}') from the mirrored tables.", tournamentId, open.name);
+        } else {
+            // Registrations taken on other instances since this one created the tournament
+            loadParticipants(tournamentData);
+        }
+
+        if (started) {
+            tournamentData.setStarted(true);
+            tournamentData.setScheduler(scheduleCompletionChecks(tournamentId));
+            logger.info("Checking tournament ID {}, started on another instance.", tournamentId);
+        }
+    }
+
+    private void loadParticipants(TournamentData tournamentData) throws IOException {
+        Long tournamentId = tournamentData.getTournamentId();
+        Response<List<ChallongeDataClasses.ParticipantWrapper>> response = challongeService.getParticipants(tournamentId, new HashMap<>()).execute();
+        checkChallongeResponse("retrieve participants of tournament " + tournamentId, response);
+        for (ChallongeDataClasses.ParticipantWrapper participantWrapper : response.body()) {
+            if (participantWrapper.participant.misc != null) {
+                tournamentData.getParticipants().put(participantWrapper.participant.misc, participantWrapper.participant);
+            }
+        }
+    }
+
     private void updateTournamentData(Long tournamentId, ChallongeDataClasses.Tournament updatedTournament) {
         TournamentData tournamentData = activeTournaments.get(tournamentId);
         if (tournamentData != null) {
@@ -1018,6 +1243,73 @@ public class TournamentManager {
             return false;
         }
     }
+    /**
+     * Simulates the bracket from current ratings and posts each favourite's chance to win and to make top 8.
+     * Entrants are seeded by their Challonge seed as registered.
+     */
+    private void postPredictions(TournamentData tournamentData) {
+        BracketSimulator.Format format = simulatorFormat(tournamentData.getTournamentType());
+        List<ChallongeDataClasses.Participant> entrants = new ArrayList<>(tournamentData.getParticipants().values());
+        if (format == null || entrants.size() < 2) {
+            return;
+        }
+        try {
+            entrants.sort(Comparator.comparingInt(participant -> parseSeed(participant.seed)));
+            List<String> playerIds = new ArrayList<>(entrants.size());
+            for (ChallongeDataClasses.Participant participant : entrants) {
+                playerIds.add(participant.misc);
+            }
+            long start = System.currentTimeMillis();
+            BracketSimulator.Prediction prediction = new BracketSimulator(format, eloManager.getElos(playerIds))
+                    .simulate(PREDICTION_SIMULATIONS, System.nanoTime());
+            logger.info("Simulated tournament ID {} {} times in {} ms.", tournamentData.getTournamentId(), PREDICTION_SIMULATIONS,
+                    System.currentTimeMillis() - start);
+
+            Integer[] order = new Integer[entrants.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> prediction.winProbability[i])
+                    .thenComparingDouble(i -> prediction.topPlacementProbability[i]).reversed());
+
+            StringBuilder description = new StringBuilder();
+            for (int rank = 0; rank < Math.min(PREDICTION_LIST_SIZE, order.length); rank++) {
+                int i = order[rank];
+                description.append(String.format("**%d.** %s — %.1f%% to win, %.1f%% top %d%n", rank + 1, entrants.get(i).name,
+                        100 * prediction.winProbability[i], 100 * prediction.topPlacementProbability[i], BracketSimulator.TOP_PLACEMENTS));
+            }
+            EmbedBuilder embed = new EmbedBuilder();
+            embed.setTitle("🔮 Bracket Predictions");
+            embed.setDescription(description.toString());
+            embed.setFooter("From " + PREDICTION_SIMULATIONS + " simulated brackets at current ELO ratings");
+            embed.setColor(Color.MAGENTA);
+            tournamentData.getChannel().sendMessageEmbeds(embed.build()).queue();
+        } catch (RuntimeException e) {
+            logger.error("Error predicting tournament ID " + tournamentData.getTournamentId(), e);
+        }
+    }
+
+    private BracketSimulator.Format simulatorFormat(String tournamentType) {
+        switch (tournamentType.toLowerCase()) {
+            case "single elimination":
+                return BracketSimulator.Format.SINGLE_ELIMINATION;
+            case "double elimination":
+                return BracketSimulator.Format.DOUBLE_ELIMINATION;
+            case "round robin":
+                return BracketSimulator.Format.ROUND_ROBIN;
+            default:
+                return null;
+        }
+    }
+
+    private int parseSeed(String seed) {
+        try {
+            return seed != null ? Integer.parseInt(seed.trim()) : Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
     private void notifyNextMatches(TournamentData tournamentData) {
         MessageChannelUnion channel = tournamentData.getChannel();
         Long tournamentId = tournamentData.getTournamentId();
@@ -1031,6 +1323,7 @@ public class TournamentManager {
 
             if (response.isSuccessful() && response.body() != null) {
                 List<ChallongeDataClasses.MatchWrapper> matches = response.body();
+                mirrorMatches(tournamentId, matches);
 
                 if ("round robin".equalsIgnoreCase(tournamentData.getTournamentType())) {
                     if (!tournamentData.isRoundNotified()) {
@@ -1140,6 +1433,20 @@ public class TournamentManager {
     }
 
 
+    /**
+     * Builds mentions for the organizer roles present in the guild, falling back to a plain reference if none exist.
+     *
+     * @param guild The guild the interaction came from.
+     * @return The role mentions, separated by spaces.
+     */
+    private String organizerMentions(Guild guild) {
+        String mentions = guild == null ? "" : tournamentOrganizerRoleNames.stream()
+                .flatMap(name -> guild.getRolesByName(name, true).stream())
+                .map(Role::getAsMention)
+                .collect(Collectors.joining(" "));
+        return mentions.isEmpty() ? "Tournament organizers," : mentions + ",";
+    }
+
     /**
      * Checks if the member has any of the organizer roles.
      *
@@ -1199,6 +1506,37 @@ public class TournamentManager {
         }
     }
 
+    /**
+     * Lists a player's most recent tournament sets from the mirrored tables, without calling Challonge.
+     */
+    public void handleSetsCommand(SlashCommandInteractionEvent event) {
+        User player = event.getOption("player") != null ? event.getOption("player").getAsUser() : event.getUser();
+        event.deferReply().queue();
+        mirror.getPlayerSetsAsync(player.getId(), RECENT_SETS_LIMIT)
+                .thenAccept(sets -> {
+                    EmbedBuilder embed = new EmbedBuilder();
+                    embed.setTitle("🎮 Recent Tournament Sets");
+                    embed.setColor(Color.BLUE);
+                    if (sets.isEmpty()) {
+                        embed.setDescription(player.getAsMention() + " has no recorded tournament sets yet.");
+                    } else {
+                        embed.setDescription("Most recent sets for " + player.getAsMention() + ":");
+                        for (PlayerSet set : sets) {
+                            String result = set.won == null ? "⏳" : set.won ? "✅ Won" : "❌ Lost";
+                            String score = set.score != null && !set.score.isEmpty() ? " " + set.score : "";
+                            embed.addField(set.tournamentName != null ? set.tournamentName : "Tournament " + set.tournamentId,
+                                    result + score + " vs <@" + set.opponentId + ">", false);
+                        }
+                    }
+                    event.getHook().sendMessageEmbeds(embed.build()).queue();
+                })
+                .exceptionally(throwable -> {
+                    logger.error("Error retrieving tournament sets for player " + player.getId(), throwable);
+                    event.getHook().sendMessage("Failed to load tournament sets.").queue();
+                    return null;
+                });
+    }
+
     public void handleRegisterCommand(GenericInteractionCreateEvent event) {
         Long tournamentId = identifyTournamentId(event);
         if (tournamentId == null) {
@@ -1234,6 +1572,7 @@ public class TournamentManager {
             if (response.isSuccessful() && response.body() != null) {
                 ChallongeDataClasses.Participant participant = response.body().participant;
                 tournamentData.getParticipants().put(player.getId(), participant);
+                mirror.recordParticipant(String.valueOf(tournamentId), player.getId());
                 replyToEvent(event, "✅ You have been registered for the tournament!", true);
                 logger.info("User '{}' registered for Tournament ID {}.", player.getAsTag(), tournamentId);
             } else {
@@ -1274,6 +1613,7 @@ public class TournamentManager {
             if (response.isSuccessful() && response.body() != null) {
                 ChallongeDataClasses.Tournament updatedTournament = response.body().tournament;
                 tournamentData.setTournament(updatedTournament);
+                mirror.recordTournament(String.valueOf(tournamentId), updatedTournament.name, mirrorStatus(updatedTournament.state));
 
                 TournamentCompletionStrategy strategy = getCompletionStrategy(updatedTournament.tournamentType);
 
@@ -1543,6 +1883,47 @@ public class TournamentManager {
         return null;
     }
 
+    private void mirrorMatches(Long tournamentId, List<ChallongeDataClasses.MatchWrapper> matches) {
+        for (ChallongeDataClasses.MatchWrapper matchWrapper : matches) {
+            mirrorMatch(tournamentId, matchWrapper.match);
+        }
+    }
+
+    /**
+     * Records a Challonge match in the mirrored tables under the players' Discord ids. Matches whose players are
+     * not decided yet are skipped until a later poll sees them filled in.
+     */
+    private void mirrorMatch(Long tournamentId, ChallongeDataClasses.MatchData match) {
+        if (match == null || match.player1Id == null || match.player2Id == null) {
+            return;
+        }
+        ChallongeDataClasses.Participant participant1 = getParticipantById(tournamentId, String.valueOf(match.player1Id));
+        ChallongeDataClasses.Participant participant2 = getParticipantById(tournamentId, String.valueOf(match.player2Id));
+        if (participant1 == null || participant2 == null) {
+            logger.debug("Not mirroring match {}: participant data missing", match.id);
+            return;
+        }
+
+        String winnerId = null;
+        if (participant1.id.equals(match.winnerId)) {
+            winnerId = participant1.misc;
+        } else if (participant2.id.equals(match.winnerId)) {
+            winnerId = participant2.misc;
+        }
+        mirror.recordMatch(new TournamentMatch(String.valueOf(match.id), String.valueOf(tournamentId), participant1.misc,
+                participant2.misc, winnerId, match.scoresCsv, mirrorStatus(match.state)));
+    }
+
+    /**
+     * Maps a Challonge tournament or match state to the status stored in the mirrored tables.
+     */
+    private static String mirrorStatus(String challongeState) {
+        if (challongeState == null) {
+            return "PENDING";
+        }
+        return "complete".equalsIgnoreCase(challongeState) ? "COMPLETED" : challongeState.toUpperCase(Locale.ROOT);
+    }
+
 
     public void handleResolveDiscrepancy(ButtonInteractionEvent event, String matchId) {
         // Step 1: Identify the tournament associated with the matchId
@@ -1575,15 +1956,12 @@ public class TournamentManager {
                 return;
             }
 
-            User user1 = event.getJDA().retrieveUserById(participant1.misc).complete();
-            User user2 = event.getJDA().retrieveUserById(participant2.misc).complete();
-
             // Step 4: Create an embed message prompting for correct scores
             EmbedBuilder embed = new EmbedBuilder()
                     .setTitle("⚠️ Resolve Match Discrepancy")
                     .setDescription("There is a discrepancy in the reported scores for this match. Please select the correct score below.")
                     .addField("Match ID", String.valueOf(match.id), false)
-                    .addField("Players", user1.getAsMention() + " vs " + user2.getAsMention(), false)
+                    .addField("Players", "<@" + participant1.misc + "> vs <@" + participant2.misc + ">", false)
                     .addField("How to Resolve", "Choose the correct score from the options below or cancel the resolution.", false)
                     .setColor(Color.YELLOW)
                     .setTimestamp(Instant.now());
@@ -1645,51 +2023,32 @@ public class TournamentManager {
             Map<String, Object> params = new HashMap<>();
             params.put("match", matchParams);
 
-            // Step 6: Update the match result via Challonge API
-            Call<ChallongeDataClasses.MatchWrapper> call = challongeService.updateMatch(tournamentId, match.id, options, params);
-            Response<ChallongeDataClasses.MatchWrapper> response = call.execute();
-
-            if (response.isSuccessful() && response.body() != null) {
-                // Step 7: Retrieve winner and loser participants
-                ChallongeDataClasses.Participant winner = getParticipantById(tournamentId, String.valueOf(match.winnerId));
-                String loserParticipantId = String.valueOf(match.winnerId.equals(match.player1Id) ? match.player2Id : match.player1Id);
-                ChallongeDataClasses.Participant loser = getParticipantById(tournamentId, loserParticipantId);
-
-                if (winner == null || loser == null) {
-                    event.reply("❌ Unable to retrieve match participants.").setEphemeral(true).queue();
-                    return;
-                }
-
-                // Step 8: Fetch Discord User objects for ELO updates and notifications
-                User winnerUser = event.getJDA().retrieveUserById(winner.misc).complete();
-                User loserUser = event.getJDA().retrieveUserById(loser.misc).complete();
-
-                // Step 9: Update ELO ratings
-                eloManager.updateElo(winnerUser, loserUser);
+            // Step 6: Retrieve winner and loser participants
+            ChallongeDataClasses.Participant winner = getParticipantById(tournamentId, String.valueOf(match.winnerId));
+            String loserParticipantId = String.valueOf(match.winnerId.equals(match.player1Id) ? match.player2Id : match.player1Id);
+            ChallongeDataClasses.Participant loser = getParticipantById(tournamentId, loserParticipantId);
 
-                // Step 10: Notify participants about the approved match result
-                event.reply("✅ Match result has been approved and updated successfully.")
-                        .setEphemeral(false)
-                        .queue();
-
-                notifyParticipants(winnerUser, loserUser, match.scoresCsv);
+            if (winner == null || loser == null) {
+                event.reply("❌ Unable to retrieve match participants.").setEphemeral(true).queue();
+                return;
+            }
 
-                // Step 11: Check if the tournament has concluded
-                checkTournamentCompletion(tournamentId);
-            } else {
-                // Handle unsuccessful API responses
-                String errorBody = "";
-                try {
-                    errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
-                } catch (IOException ioe) {
-                    logger.error("Error reading error body from response", ioe);
-                }
-                logger.error("Failed to approve match: {} {} \n{}", response.code(), response.message(), errorBody);
-                event.reply("❌ Failed to approve match result. Please try again later.")
-                        .setEphemeral(true)
-                        .queue();
+            // Step 7: Queue the Challonge update and, after it, the participant notifications
+            String dedupKey = "challonge-match-approve:" + tournamentId + ":" + match.id + ":" + match.winnerId + ":" + match.scoresCsv;
+            int queued = outbox.enqueue(
+                    matchUpdateEntry(dedupKey, tournamentId, match.id, options, params, event.getChannel().getIdLong()),
+                    directMessageEntry(dedupKey + ":" + winner.misc, tournamentId, winner.misc, match.scoresCsv + " You won!"),
+                    directMessageEntry(dedupKey + ":" + loser.misc, tournamentId, loser.misc, match.scoresCsv + " You lost."));
+            if (queued == 0) {
+                event.reply("⚠️ This match has already been processed.").setEphemeral(true).queue();
+                return;
             }
-        } catch (IOException e) {
+
+            // Step 8: Confirm; the set is rated with the rest of the bracket once the tournament completes
+            event.reply("✅ Match result has been approved and will be posted to the bracket shortly.")
+                    .setEphemeral(false)
+                    .queue();
+        } catch (IOException | IllegalStateException e) {
             // Handle IO exceptions during API calls
             logger.error("Error approving match result for matchId {} in tournamentId {}", matchId, tournamentId, e);
             event.reply("❌ An error occurred while approving the match result. Please try again later.")
@@ -1748,13 +2107,10 @@ public class TournamentManager {
                     return;
                 }
 
-                User user1 = event.getJDA().retrieveUserById(participant1.misc).complete();
-                User user2 = event.getJDA().retrieveUserById(participant2.misc).complete();
-
                 event.reply("✅ Match result has been rejected. The participants will be notified to report the result again.")
                         .queue();
 
-                notifyParticipantsOfRejection(user1, user2, matchIdStr);
+                notifyParticipantsOfRejection(event.getJDA(), participant1.misc, participant2.misc, matchIdStr);
             } else {
                 String errorBody = response.errorBody() != null ? response.errorBody().string() : "Unknown error";
                 logger.error("❌ Failed to reject match ID {}: " + response.code() + " " + response.message() + "\n" + errorBody, matchIdStr);
@@ -1785,9 +2141,13 @@ public class TournamentManager {
     }
 
 
-    private void notifyParticipantsOfRejection(User user1, User user2, String matchId) {
+    private void notifyParticipantsOfRejection(JDA jda, String userId1, String userId2, String matchId) {
         String message = String.format("Your reported match result for match ID %s has been rejected. Please report the correct result using the /report command.", matchId);
-        user1.openPrivateChannel().queue(channel -> channel.sendMessage(message).queue());
-        user2.openPrivateChannel().queue(channel -> channel.sendMessage(message).queue());
+        for (String userId : List.of(userId1, userId2)) {
+            jda.retrieveUserById(userId)
+                    .flatMap(User::openPrivateChannel)
+                    .flatMap(channel -> channel.sendMessage(message))
+                    .queue(null, error -> logger.warn("Failed to notify user {} of rejected match ID {}", userId, matchId, error));
+        }
     }
 }
\ No newline at end of file
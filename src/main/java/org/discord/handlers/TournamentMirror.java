@@ -0,0 +1,158 @@
+package org.discord.handlers;
+
+import org.discord.handlers.storage.PlayerSet;
+import org.discord.handlers.storage.StorageBackend;
+import org.discord.handlers.storage.TournamentChanges;
+import org.discord.handlers.storage.TournamentMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the tournament tables in step with what the bot learns from Challonge, so tournament history can be
+ * queried locally.
+ * <p>
+ * Recording a tournament, registration or match only updates a pending map; a background task writes the
+ * pending rows in one batch. Rows are keyed by id, so a match seen on every poll costs nothing until it changes,
+ * and a match that changes several times between flushes is written once in its latest state. A failed batch is
+ * kept for the next flush, behind any newer state recorded meanwhile.
+ */
+public class TournamentMirror {
+    private static final Logger logger = LoggerFactory.getLogger(TournamentMirror.class);
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2_000;
+
+    private final StorageBackend storage;
+    private final long flushIntervalMillis;
+    // All guarded by this
+    private final Map<String, TournamentChanges.Tournament> pendingTournaments = new LinkedHashMap<>();
+    private final Set<TournamentChanges.Participant> pendingParticipants = new LinkedHashSet<>();
+    private final Map<String, TournamentMatch> pendingMatches = new LinkedHashMap<>();
+    private final Map<String, TournamentChanges.Tournament> writtenTournaments = new HashMap<>();
+    private final Set<TournamentChanges.Participant> writtenParticipants = new HashSet<>();
+    private final Map<String, TournamentMatch> writtenMatches = new HashMap<>();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "tournament-mirror");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TournamentMirror(StorageBackend storage, long flushIntervalMillis) {
+        this.storage = storage;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public void start() {
+        flushScheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Records a status change, keeping the channel and type already recorded for the tournament.
+     */
+    public synchronized void recordTournament(String tournamentId, String name, String status) {
+        TournamentChanges.Tournament known = pendingTournaments.getOrDefault(tournamentId, writtenTournaments.get(tournamentId));
+        recordTournament(tournamentId, name, status, known != null ? known.channelId : null, known != null ? known.tournamentType : null);
+    }
+
+    /**
+     * Records a tournament with the channel it is run from, so the leader instance can take it over.
+     */
+    public synchronized void recordTournament(String tournamentId, String name, String status, String channelId,
+                                              String tournamentType) {
+        TournamentChanges.Tournament tournament = new TournamentChanges.Tournament(tournamentId, name, status, channelId, tournamentType);
+        if (!tournament.equals(writtenTournaments.get(tournamentId))) {
+            pendingTournaments.put(tournamentId, tournament);
+        }
+    }
+
+    public synchronized void recordParticipant(String tournamentId, String playerId) {
+        TournamentChanges.Participant participant = new TournamentChanges.Participant(tournamentId, playerId);
+        if (!writtenParticipants.contains(participant)) {
+            pendingParticipants.add(participant);
+        }
+    }
+
+    public synchronized void recordMatch(TournamentMatch match) {
+        if (match.equals(writtenMatches.get(match.id))) {
+            pendingMatches.remove(match.id);
+        } else {
+            pendingMatches.put(match.id, match);
+        }
+    }
+
+    /**
+     * Reads the player's sets from the mirrored tables off the caller's thread. Only sets the bot has seen are
+     * included.
+     */
+    public CompletableFuture<List<PlayerSet>> getPlayerSetsAsync(String playerId, int limit) {
+        return storage.supplyAsync(() -> storage.getPlayerSets(playerId, limit));
+    }
+
+    /**
+     * Reads the mirrored tournaments that were created with a channel and are not completed yet.
+     */
+    public List<TournamentChanges.Tournament> loadOpenTournaments() {
+        return storage.loadOpenTournaments();
+    }
+
+    /**
+     * Writes everything pending in one batch.
+     */
+    public void flush() {
+        TournamentChanges changes;
+        synchronized (this) {
+            changes = new TournamentChanges(new ArrayList<>(pendingTournaments.values()),
+                    new ArrayList<>(pendingParticipants), new ArrayList<>(pendingMatches.values()));
+            pendingTournaments.clear();
+            pendingParticipants.clear();
+            pendingMatches.clear();
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        boolean saved;
+        try {
+            saved = storage.saveTournamentChanges(changes);
+        } catch (RuntimeException e) {
+            logger.error("Mirroring tournament changes failed", e);
+            saved = false;
+        }
+
+        synchronized (this) {
+            if (saved) {
+                changes.tournaments.forEach(tournament -> writtenTournaments.put(tournament.id, tournament));
+                writtenParticipants.addAll(changes.participants);
+                changes.matches.forEach(match -> writtenMatches.put(match.id, match));
+                logger.debug("Mirrored {} tournament change(s).", changes.size());
+            } else {
+                // Retry with the next flush unless newer state has been recorded since
+                changes.tournaments.forEach(tournament -> pendingTournaments.putIfAbsent(tournament.id, tournament));
+                pendingParticipants.addAll(changes.participants);
+                changes.matches.forEach(match -> pendingMatches.putIfAbsent(match.id, match));
+                logger.warn("Could not mirror {} tournament change(s); retrying with the next flush.", changes.size());
+            }
+        }
+    }
+}
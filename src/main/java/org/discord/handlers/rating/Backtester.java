@@ -0,0 +1,141 @@
+package org.discord.handlers.rating;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Replays the recorded match history under alternative Elo configurations and scores how well each one predicts
+ * the results: before every match the configuration's current ratings give the winner's expected score, which is
+ * scored by log-loss and by whether the eventual winner was the favourite.
+ * <p>
+ * The history is read once into parallel {@code int[]} arrays of dense player indexes. Each replay keeps its ratings
+ * in its own {@code int[]}, so configurations run independently, one per core.
+ */
+public class Backtester {
+    // Keeps a certain prediction that turned out wrong from scoring infinite log-loss
+    private static final double MIN_PROBABILITY = 1e-15;
+
+    public static class Configuration {
+        public final String kSchedule;
+        public final IntUnaryOperator kFactor;
+        public final int minElo;
+        public final int initialElo;
+
+        public Configuration(String kSchedule, IntUnaryOperator kFactor, int minElo, int initialElo) {
+            this.kSchedule = kSchedule;
+            this.kFactor = kFactor;
+            this.minElo = minElo;
+            this.initialElo = initialElo;
+        }
+    }
+
+    public static class Score {
+        public final Configuration configuration;
+        public final double logLoss;
+        public final double accuracy;
+        public final long durationMillis;
+
+        Score(Configuration configuration, double logLoss, double accuracy, long durationMillis) {
+            this.configuration = configuration;
+            this.logLoss = logLoss;
+            this.accuracy = accuracy;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    /**
+     * Match results in the order they were played, as indexes into the player table.
+     */
+    public static class MatchHistory {
+        public final int[] winners;
+        public final int[] losers;
+        public final int matches;
+        public final int players;
+
+        MatchHistory(int[] winners, int[] losers, int matches, int players) {
+            this.winners = winners;
+            this.losers = losers;
+            this.matches = matches;
+            this.players = players;
+        }
+    }
+
+    /**
+     * Streams every recorded game from the rating ledger, one row per game: the winner's event, which names the
+     * loser as the opponent.
+     */
+    public static MatchHistory loadHistory(Connection conn, int fetchSize) throws SQLException {
+        String sql = "SELECT player_id, opponent_id FROM rating_events WHERE result = 1 AND opponent_id IS NOT NULL ORDER BY id";
+        Map<Long, Integer> indexes = new HashMap<>();
+        int[] winners = new int[1024];
+        int[] losers = new int[1024];
+        int matches = 0;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (matches == winners.length) {
+                        winners = Arrays.copyOf(winners, matches * 2);
+                        losers = Arrays.copyOf(losers, matches * 2);
+                    }
+                    winners[matches] = indexes.computeIfAbsent(rs.getLong(1), id -> indexes.size());
+                    losers[matches] = indexes.computeIfAbsent(rs.getLong(2), id -> indexes.size());
+                    matches++;
+                }
+            }
+        }
+        return new MatchHistory(winners, losers, matches, indexes.size());
+    }
+
+    /**
+     * Replays {@code history} under every configuration, in parallel.
+     *
+     * @return the scores, best (lowest log-loss) first
+     */
+    public static List<Score> sweep(MatchHistory history, List<Configuration> configurations) {
+        List<Score> scores = new ArrayList<>(configurations.parallelStream()
+                .map(configuration -> replay(history, configuration))
+                .collect(Collectors.toList()));
+        scores.sort(Comparator.comparingDouble((Score score) -> score.logLoss));
+        return scores;
+    }
+
+    public static Score replay(MatchHistory history, Configuration configuration) {
+        long start = System.currentTimeMillis();
+        int[] ratings = new int[history.players];
+        Arrays.fill(ratings, configuration.initialElo);
+        int[] updated = new int[2];
+        double logLoss = 0;
+        double correct = 0;
+
+        for (int m = 0; m < history.matches; m++) {
+            int winner = history.winners[m];
+            int loser = history.losers[m];
+            int winnerElo = ratings[winner];
+            int loserElo = ratings[loser];
+            double expected = EloMath.expectedScore(winnerElo, loserElo);
+            logLoss -= Math.log(Math.max(expected, MIN_PROBABILITY));
+            // An even prediction counts as half right
+            correct += expected > 0.5 ? 1 : expected == 0.5 ? 0.5 : 0;
+
+            EloMath.update(winnerElo, loserElo, configuration.kFactor.applyAsInt(winnerElo),
+                    configuration.kFactor.applyAsInt(loserElo), configuration.minElo, updated, 0);
+            ratings[winner] = updated[0];
+            ratings[loser] = updated[1];
+        }
+
+        int matches = Math.max(history.matches, 1);
+        return new Score(configuration, logLoss / matches, correct / matches, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,314 @@
+package org.discord.handlers.rating;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo prediction of a bracket's outcome from Elo ratings: plays the bracket many times, deciding each set by
+ * the players' expected scores, and counts how often each entrant wins and finishes in the top 8.
+ * <p>
+ * Entrants are placed in standard seeded order, with byes going to the top seeds when the field is not a power of
+ * two. Double elimination follows the usual layout: losers of each winners round drop into the losers bracket
+ * against its survivors, and a losers-bracket champion who wins the grand final forces a reset. Round robin ranks
+ * by sets won with ties broken at random.
+ * <p>
+ * Simulations are split across the common fork/join pool, each leaf with its own {@link SplittableRandom} and
+ * preallocated bracket arrays, so a run is reproducible for a given seed.
+ */
+public class BracketSimulator {
+    public enum Format {
+        SINGLE_ELIMINATION,
+        DOUBLE_ELIMINATION,
+        ROUND_ROBIN
+    }
+
+    public static final int TOP_PLACEMENTS = 8;
+    // Simulations per fork/join leaf
+    private static final int LEAF_SIMULATIONS = 2_000;
+    private static final int BYE = -1;
+
+    public static class Prediction {
+        public final double[] winProbability;
+        public final double[] topPlacementProbability;
+
+        Prediction(double[] winProbability, double[] topPlacementProbability) {
+            this.winProbability = winProbability;
+            this.topPlacementProbability = topPlacementProbability;
+        }
+    }
+
+    private final Format format;
+    private final int entrants;
+    // winProbability[i * entrants + j]: chance that entrant i beats entrant j in a set
+    private final double[] winProbability;
+    // slots[k]: entrant in bracket slot k, or BYE; sized to the next power of two
+    private final int[] slots;
+
+    /**
+     * @param seededRatings ratings of the entrants, best seed first
+     */
+    public BracketSimulator(Format format, int[] seededRatings) {
+        this.format = format;
+        this.entrants = seededRatings.length;
+        this.winProbability = new double[entrants * entrants];
+        for (int i = 0; i < entrants; i++) {
+            for (int j = 0; j < entrants; j++) {
+                winProbability[i * entrants + j] = EloMath.expectedScore(seededRatings[i], seededRatings[j]);
+            }
+        }
+        this.slots = seededSlots(entrants);
+    }
+
+    /**
+     * @return per entrant, by seed, the fraction of simulations won and finished in the top {@value #TOP_PLACEMENTS}
+     */
+    public Prediction simulate(int simulations, long seed) {
+        if (entrants == 0) {
+            return new Prediction(new double[0], new double[0]);
+        }
+        long[][] counts = ForkJoinPool.commonPool().invoke(new Simulations(simulations, new SplittableRandom(seed)));
+        double[] wins = new double[entrants];
+        double[] topPlacements = new double[entrants];
+        for (int i = 0; i < entrants; i++) {
+            wins[i] = (double) counts[0][i] / simulations;
+            topPlacements[i] = (double) counts[1][i] / simulations;
+        }
+        return new Prediction(wins, topPlacements);
+    }
+
+    private class Simulations extends RecursiveTask<long[][]> {
+        private final int simulations;
+        private final SplittableRandom random;
+
+        Simulations(int simulations, SplittableRandom random) {
+            this.simulations = simulations;
+            this.random = random;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (simulations <= LEAF_SIMULATIONS) {
+                return new Run(random).play(simulations);
+            }
+            // Split before forking so the streams do not depend on scheduling
+            Simulations first = new Simulations(simulations / 2, random.split());
+            Simulations second = new Simulations(simulations - simulations / 2, random);
+            first.fork();
+            long[][] counts = second.compute();
+            long[][] other = first.join();
+            for (int i = 0; i < entrants; i++) {
+                counts[0][i] += other[0][i];
+                counts[1][i] += other[1][i];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * One leaf's bracket state, reused for every simulation it plays.
+     */
+    private class Run {
+        private final SplittableRandom random;
+        private final long[] wins = new long[entrants];
+        private final long[] topPlacements = new long[entrants];
+        private final int[] winners = new int[slots.length];
+        private final int[] losers = new int[slots.length];
+        private final int[] losersBracket = new int[slots.length];
+        private final int[] merged = new int[slots.length];
+        private final int[] setsWon = new int[entrants];
+        private final double[] tiebreak = new double[entrants];
+        private final boolean[] inTop = new boolean[entrants];
+        private int alive;
+        private int winnersSize;
+
+        Run(SplittableRandom random) {
+            this.random = random;
+        }
+
+        long[][] play(int simulations) {
+            for (int s = 0; s < simulations; s++) {
+                int champion;
+                if (format == Format.ROUND_ROBIN) {
+                    champion = playRoundRobin();
+                } else {
+                    Arrays.fill(inTop, false);
+                    alive = entrants;
+                    markTopIfReached(slots, slots.length, null, 0);
+                    champion = format == Format.DOUBLE_ELIMINATION ? playDoubleElimination() : playSingleElimination();
+                    for (int i = 0; i < entrants; i++) {
+                        if (inTop[i]) {
+                            topPlacements[i]++;
+                        }
+                    }
+                }
+                wins[champion]++;
+            }
+            return new long[][]{wins, topPlacements};
+        }
+
+        private int playSingleElimination() {
+            int size = slots.length;
+            System.arraycopy(slots, 0, winners, 0, size);
+            while (size > 1) {
+                size = playRound(winners, size, winners, losers);
+                alive -= countPlayers(losers, size);
+                markTopIfReached(winners, size, null, 0);
+            }
+            return winners[0];
+        }
+
+        private int playDoubleElimination() {
+            winnersSize = slots.length;
+            System.arraycopy(slots, 0, winners, 0, winnersSize);
+            int losersSize = -1;
+            while (winnersSize > 1) {
+                int dropped = playRound(winners, winnersSize, winners, losers);
+                winnersSize = dropped;
+                if (losersSize < 0) {
+                    // Losers round 1: the first round's losers play each other
+                    System.arraycopy(losers, 0, losersBracket, 0, dropped);
+                    losersSize = dropped > 1 ? playLosersRound(losersBracket, dropped) : dropped;
+                    continue;
+                }
+                // Survivors meet the dropped players in reverse order, which keeps early rematches rare
+                for (int k = 0; k < dropped; k++) {
+                    merged[2 * k] = losersBracket[k];
+                    merged[2 * k + 1] = losers[dropped - 1 - k];
+                }
+                losersSize = playLosersRound(merged, 2 * dropped);
+                System.arraycopy(merged, 0, losersBracket, 0, losersSize);
+                if (losersSize > 1) {
+                    losersSize = playLosersRound(losersBracket, losersSize);
+                }
+            }
+
+            int winnersChampion = winners[0];
+            int losersChampion = losersSize > 0 ? losersBracket[0] : BYE;
+            if (losersChampion == BYE || beats(winnersChampion, losersChampion)) {
+                return winnersChampion;
+            }
+            // Bracket reset: the winners champion has one loss now too
+            return beats(winnersChampion, losersChampion) ? winnersChampion : losersChampion;
+        }
+
+        /**
+         * Plays a losers round in place; its losers are eliminated.
+         *
+         * @return the number of survivors, in {@code bracket[0..]}
+         */
+        private int playLosersRound(int[] bracket, int size) {
+            int survivors = playRound(bracket, size, bracket, losers);
+            alive -= countPlayers(losers, survivors);
+            markTopIfReached(winners, winnersSize, bracket, survivors);
+            return survivors;
+        }
+
+        /**
+         * Plays pairs {@code (0,1), (2,3), ...} of {@code bracket}; byes advance the other side without a set.
+         *
+         * @return the number of pairs, with their winners and losers in order
+         */
+        private int playRound(int[] bracket, int size, int[] roundWinners, int[] roundLosers) {
+            int pairs = size / 2;
+            for (int k = 0; k < pairs; k++) {
+                int a = bracket[2 * k];
+                int b = bracket[2 * k + 1];
+                if (b == BYE || (a != BYE && beats(a, b))) {
+                    roundWinners[k] = a;
+                    roundLosers[k] = b;
+                } else {
+                    roundWinners[k] = b;
+                    roundLosers[k] = a;
+                }
+            }
+            return pairs;
+        }
+
+        private boolean beats(int a, int b) {
+            return random.nextDouble() < winProbability[a * entrants + b];
+        }
+
+        private int countPlayers(int[] players, int size) {
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                if (players[k] != BYE) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Everyone still in the bracket once at most {@value #TOP_PLACEMENTS} remain has placed in the top.
+         */
+        private void markTopIfReached(int[] bracket, int size, int[] losersBracket, int losersSize) {
+            if (alive > TOP_PLACEMENTS) {
+                return;
+            }
+            for (int k = 0; k < size; k++) {
+                if (bracket[k] != BYE) {
+                    inTop[bracket[k]] = true;
+                }
+            }
+            for (int k = 0; k < losersSize; k++) {
+                if (losersBracket[k] != BYE) {
+                    inTop[losersBracket[k]] = true;
+                }
+            }
+        }
+
+        private int playRoundRobin() {
+            Arrays.fill(setsWon, 0);
+            for (int i = 0; i < entrants; i++) {
+                for (int j = i + 1; j < entrants; j++) {
+                    setsWon[beats(i, j) ? i : j]++;
+                }
+                tiebreak[i] = random.nextDouble();
+            }
+            // Rank by sets won, ties broken by the random draw: entrant i's place is 1 + everyone ranked above
+            int champion = 0;
+            for (int i = 0; i < entrants; i++) {
+                int above = 0;
+                for (int j = 0; j < entrants; j++) {
+                    if (setsWon[j] > setsWon[i] || (setsWon[j] == setsWon[i] && tiebreak[j] > tiebreak[i])) {
+                        above++;
+                    }
+                }
+                if (above < TOP_PLACEMENTS) {
+                    topPlacements[i]++;
+                }
+                if (above == 0) {
+                    champion = i;
+                }
+            }
+            return champion;
+        }
+    }
+
+    /**
+     * Standard seeding for the next power of two: seed 1 meets the last seed, and seeds 1 and 2 can only meet in the
+     * final. Seeds beyond the field are byes.
+     */
+    private static int[] seededSlots(int entrants) {
+        int size = 1;
+        while (size < Math.max(entrants, 2)) {
+            size *= 2;
+        }
+        int[] order = {0};
+        for (int length = 1; length < size; length *= 2) {
+            int[] next = new int[length * 2];
+            for (int k = 0; k < length; k++) {
+                next[2 * k] = order[k];
+                next[2 * k + 1] = 2 * length - 1 - order[k];
+            }
+            order = next;
+        }
+        int[] slots = new int[size];
+        for (int k = 0; k < size; k++) {
+            slots[k] = order[k] < entrants ? order[k] : BYE;
+        }
+        return slots;
+    }
+}
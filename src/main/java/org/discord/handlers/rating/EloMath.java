@@ -0,0 +1,81 @@
+package org.discord.handlers.rating;
+
+/**
+ * Table-driven Elo arithmetic that gives exactly the results of the textbook formula
+ * {@code round(elo + K * (score - 1 / (1 + 10^((opponent - elo) / 400))))} without calling {@link Math#pow} or
+ * allocating.
+ * <p>
+ * The expected score is precomputed for every whole rating difference up to {@link #MAX_DIFF}. Beyond that it is
+ * within 10^-10 of 0 or 1, which never changes a rounded rating. For the K-factors the ladder and tournaments use,
+ * the rounded rating change is precomputed as well. A change whose unrounded value lies within {@link #TIE_MARGIN}
+ * of a half point is marked and recomputed with the exact formula, so the rounding still matches it.
+ */
+public final class EloMath {
+    public static final int MAX_DIFF = 4096;
+    private static final int[] TABULATED_K = {16, 24, 32};
+    private static final int MAX_TABULATED_K = 32;
+    private static final double TIE_MARGIN = 1e-6;
+    private static final int UNTABULATED = Integer.MIN_VALUE;
+    // Above this the addition to the rating could round differently from the tabulated change
+    private static final int MAX_TABULATED_RATING = 1 << 20;
+
+    // EXPECTED[d + MAX_DIFF]: expected score of a player whose opponent is rated d points higher
+    private static final double[] EXPECTED = new double[2 * MAX_DIFF + 1];
+    // WIN_DELTAS[K][d + MAX_DIFF]: rounded K * (1 - expected score), or UNTABULATED near a half point
+    private static final int[][] WIN_DELTAS = new int[MAX_TABULATED_K + 1][];
+
+    static {
+        for (int d = -MAX_DIFF; d <= MAX_DIFF; d++) {
+            EXPECTED[d + MAX_DIFF] = 1.0 / (1.0 + Math.pow(10, d / 400.0));
+        }
+        for (int k : TABULATED_K) {
+            int[] deltas = new int[EXPECTED.length];
+            for (int i = 0; i < EXPECTED.length; i++) {
+                double change = k * (1 - EXPECTED[i]);
+                double fraction = change - Math.floor(change);
+                deltas[i] = Math.abs(fraction - 0.5) < TIE_MARGIN ? UNTABULATED : (int) Math.round(change);
+            }
+            WIN_DELTAS[k] = deltas;
+        }
+    }
+
+    private EloMath() {
+    }
+
+    /**
+     * @return the probability that a player rated {@code elo} beats one rated {@code opponentElo}
+     */
+    public static double expectedScore(int elo, int opponentElo) {
+        return EXPECTED[index(opponentElo - elo)];
+    }
+
+    /**
+     * Writes the ratings after {@code winnerElo} beat {@code loserElo} into {@code updated}: the winner's at
+     * {@code offset}, the loser's at {@code offset + 1}. Neither drops below {@code minElo}.
+     */
+    public static void update(int winnerElo, int loserElo, int winnerK, int loserK, int minElo, int[] updated, int offset) {
+        int i = index(loserElo - winnerElo);
+        int winnerDelta = tabulatedDelta(winnerK, i);
+        int loserDelta = tabulatedDelta(loserK, i);
+        if (winnerDelta == UNTABULATED || loserDelta == UNTABULATED
+                || winnerElo > MAX_TABULATED_RATING || loserElo > MAX_TABULATED_RATING
+                || winnerElo < -MAX_TABULATED_RATING || loserElo < -MAX_TABULATED_RATING) {
+            double expectedScoreWinner = EXPECTED[i];
+            double expectedScoreLoser = 1.0 - expectedScoreWinner;
+            updated[offset] = Math.max((int) Math.round(winnerElo + winnerK * (1 - expectedScoreWinner)), minElo);
+            updated[offset + 1] = Math.max((int) Math.round(loserElo + loserK * (0 - expectedScoreLoser)), minElo);
+            return;
+        }
+        // The loser's expected score is exactly 1 - the winner's, so both move by the same tabulated surplus
+        updated[offset] = Math.max(winnerElo + winnerDelta, minElo);
+        updated[offset + 1] = Math.max(loserElo - loserDelta, minElo);
+    }
+
+    private static int tabulatedDelta(int k, int index) {
+        return k >= 0 && k <= MAX_TABULATED_K && WIN_DELTAS[k] != null ? WIN_DELTAS[k][index] : UNTABULATED;
+    }
+
+    private static int index(int diff) {
+        return Math.max(-MAX_DIFF, Math.min(MAX_DIFF, diff)) + MAX_DIFF;
+    }
+}
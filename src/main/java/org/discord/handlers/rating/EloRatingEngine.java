@@ -0,0 +1,49 @@
+package org.discord.handlers.rating;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Classic Elo: each result moves both players by their K-factor times the difference between the actual and the
+ * expected score. Ratings are whole numbers and never drop below the minimum.
+ */
+public class EloRatingEngine implements MatchRatingEngine {
+    /**
+     * The ranked ladder's K-factor: 32 for everyone.
+     */
+    public static final IntUnaryOperator LADDER_K = elo -> 32;
+    /**
+     * FIDE-style K-factor that settles as players climb: 32 below 2000, 24 below 2400, 16 above.
+     */
+    public static final IntUnaryOperator TIERED_K = elo -> elo < 2000 ? 32 : elo < 2400 ? 24 : 16;
+
+    private final IntUnaryOperator kFactor;
+    private final int minElo;
+
+    public EloRatingEngine(IntUnaryOperator kFactor, int minElo) {
+        this.kFactor = kFactor;
+        this.minElo = minElo;
+    }
+
+    @Override
+    public String getName() {
+        return "elo";
+    }
+
+    public int kFactor(int elo) {
+        return kFactor.applyAsInt(elo);
+    }
+
+    @Override
+    public int[] calculate(int winnerElo, int loserElo) {
+        int[] updated = new int[2];
+        calculate(winnerElo, loserElo, updated);
+        return updated;
+    }
+
+    /**
+     * Allocation-free {@link #calculate(int, int)}: writes {@code {newWinnerElo, newLoserElo}} into {@code updated}.
+     */
+    public void calculate(int winnerElo, int loserElo, int[] updated) {
+        EloMath.update(winnerElo, loserElo, kFactor(winnerElo), kFactor(loserElo), minElo, updated, 0);
+    }
+}
@@ -0,0 +1,133 @@
+package org.discord.handlers.rating;
+
+import org.discord.handlers.storage.MatchResult;
+import org.discord.handlers.storage.RatingState;
+
+import java.util.List;
+
+/**
+ * Glickman's Glicko-2. Every player carries a rating deviation (how uncertain the rating is) and a volatility (how
+ * erratic their results are), and all of a rating period's results are rated together against the ratings at the
+ * start of the period.
+ * <p>
+ * The period is rated in two flat passes over the {@link RatingTable}: one over the results accumulating each
+ * player's estimated variance and score surplus, one over the players updating their state. Players without
+ * results only grow more uncertain, up to the deviation of an unrated player.
+ */
+public class Glicko2RatingEngine implements PeriodicRatingEngine {
+    public static final double DEFAULT_TAU = 0.5;
+    // Glicko-2 works on this scale; only rating differences matter, so no offset is needed
+    private static final double SCALE = 173.7178;
+    private static final double MAX_PHI = RatingState.DEFAULT_DEVIATION / SCALE;
+    private static final double CONVERGENCE_TOLERANCE = 0.000001;
+
+    private final double tau;
+    private final int minRating;
+
+    /**
+     * @param tau system constant limiting how fast volatility changes; Glickman suggests 0.3 to 1.2
+     */
+    public Glicko2RatingEngine(double tau, int minRating) {
+        this.tau = tau;
+        this.minRating = minRating;
+    }
+
+    @Override
+    public String getName() {
+        return "glicko2";
+    }
+
+    @Override
+    public void ratePeriod(RatingTable table, List<MatchResult> results) {
+        int[] winners = new int[results.size()];
+        int[] losers = new int[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            winners[i] = table.slotOrAdd(results.get(i).winnerId);
+            losers[i] = table.slotOrAdd(results.get(i).loserId);
+        }
+
+        int size = table.size();
+        double[] mu = new double[size];
+        double[] phi = new double[size];
+        double[] g = new double[size];
+        for (int slot = 0; slot < size; slot++) {
+            mu[slot] = table.ratings[slot] / SCALE;
+            phi[slot] = table.deviations[slot] / SCALE;
+            g[slot] = 1.0 / Math.sqrt(1.0 + 3.0 * phi[slot] * phi[slot] / (Math.PI * Math.PI));
+        }
+
+        // Inverse estimated variance and g-weighted score surplus, both against the pre-period ratings
+        double[] inverseVariance = new double[size];
+        double[] surplus = new double[size];
+        for (int i = 0; i < winners.length; i++) {
+            int winner = winners[i];
+            int loser = losers[i];
+            double winnerExpected = 1.0 / (1.0 + Math.exp(-g[loser] * (mu[winner] - mu[loser])));
+            double loserExpected = 1.0 / (1.0 + Math.exp(-g[winner] * (mu[loser] - mu[winner])));
+            inverseVariance[winner] += g[loser] * g[loser] * winnerExpected * (1.0 - winnerExpected);
+            surplus[winner] += g[loser] * (1.0 - winnerExpected);
+            inverseVariance[loser] += g[winner] * g[winner] * loserExpected * (1.0 - loserExpected);
+            surplus[loser] -= g[winner] * loserExpected;
+        }
+
+        for (int slot = 0; slot < size; slot++) {
+            if (inverseVariance[slot] == 0) {
+                double sigma = table.volatilities[slot];
+                table.deviations[slot] = Math.min(Math.sqrt(phi[slot] * phi[slot] + sigma * sigma), MAX_PHI) * SCALE;
+                continue;
+            }
+            double variance = 1.0 / inverseVariance[slot];
+            double delta = variance * surplus[slot];
+            double sigma = newVolatility(phi[slot], table.volatilities[slot], variance, delta);
+            double phiStar = Math.sqrt(phi[slot] * phi[slot] + sigma * sigma);
+            double newPhi = 1.0 / Math.sqrt(1.0 / (phiStar * phiStar) + inverseVariance[slot]);
+            double newMu = mu[slot] + newPhi * newPhi * surplus[slot];
+            table.ratings[slot] = Math.max(newMu * SCALE, minRating);
+            table.deviations[slot] = newPhi * SCALE;
+            table.volatilities[slot] = sigma;
+        }
+    }
+
+    /**
+     * Solves for the new volatility with the Illinois variant of regula falsi, as in step 5 of Glickman's paper.
+     */
+    private double newVolatility(double phi, double sigma, double variance, double delta) {
+        double a = Math.log(sigma * sigma);
+        double phiSquared = phi * phi;
+        double deltaSquared = delta * delta;
+
+        double lower = a;
+        double upper;
+        if (deltaSquared > phiSquared + variance) {
+            upper = Math.log(deltaSquared - phiSquared - variance);
+        } else {
+            int k = 1;
+            while (volatilityObjective(a - k * tau, a, phiSquared, variance, deltaSquared) < 0) {
+                k++;
+            }
+            upper = a - k * tau;
+        }
+
+        double fLower = volatilityObjective(lower, a, phiSquared, variance, deltaSquared);
+        double fUpper = volatilityObjective(upper, a, phiSquared, variance, deltaSquared);
+        while (Math.abs(upper - lower) > CONVERGENCE_TOLERANCE) {
+            double next = lower + (lower - upper) * fLower / (fUpper - fLower);
+            double fNext = volatilityObjective(next, a, phiSquared, variance, deltaSquared);
+            if (fNext * fUpper <= 0) {
+                lower = upper;
+                fLower = fUpper;
+            } else {
+                fLower /= 2;
+            }
+            upper = next;
+            fUpper = fNext;
+        }
+        return Math.exp(lower / 2);
+    }
+
+    private double volatilityObjective(double x, double a, double phiSquared, double variance, double deltaSquared) {
+        double ex = Math.exp(x);
+        double denominator = phiSquared + variance + ex;
+        return ex * (deltaSquared - phiSquared - variance - ex) / (2 * denominator * denominator) - (x - a) / (tau * tau);
+    }
+}
@@ -0,0 +1,9 @@
+package org.discord.handlers.rating;
+
+import org.discord.handlers.storage.RatingCalculator;
+
+/**
+ * A rating system that rates each result as it is reported through {@link #calculate}.
+ */
+public interface MatchRatingEngine extends RatingEngine, RatingCalculator {
+}
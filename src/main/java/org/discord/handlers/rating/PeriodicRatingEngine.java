@@ -0,0 +1,16 @@
+package org.discord.handlers.rating;
+
+import org.discord.handlers.storage.MatchResult;
+
+import java.util.List;
+
+/**
+ * A rating system whose results are queued and rated together when the rating period closes.
+ */
+public interface PeriodicRatingEngine extends RatingEngine {
+    /**
+     * Rates a period's results, in the order they were played, updating {@code table} in place. Players in
+     * {@code results} but not yet in the table are added with its initial rating.
+     */
+    void ratePeriod(RatingTable table, List<MatchResult> results);
+}
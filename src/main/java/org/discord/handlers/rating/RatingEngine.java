@@ -0,0 +1,9 @@
+package org.discord.handlers.rating;
+
+/**
+ * A rating system: either a {@link MatchRatingEngine} such as Elo, which rates each result as it is reported, or a
+ * {@link PeriodicRatingEngine} such as Glicko-2, which only rates whole rating periods.
+ */
+public interface RatingEngine {
+    String getName();
+}
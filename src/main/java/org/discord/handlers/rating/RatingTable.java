@@ -0,0 +1,75 @@
+package org.discord.handlers.rating;
+
+import org.discord.handlers.storage.RatingState;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rating states laid out as parallel arrays indexed by slot, so a rating period is rated in flat passes over
+ * primitive arrays instead of per-player objects.
+ */
+public class RatingTable {
+    private final int initialRating;
+    private final Map<String, Integer> slots;
+    private String[] playerIds;
+    double[] ratings;
+    double[] deviations;
+    double[] volatilities;
+    private int size;
+
+    public RatingTable(List<RatingState> states, int initialRating) {
+        this.initialRating = initialRating;
+        int capacity = Math.max(16, states.size());
+        this.slots = new HashMap<>(capacity * 2);
+        this.playerIds = new String[capacity];
+        this.ratings = new double[capacity];
+        this.deviations = new double[capacity];
+        this.volatilities = new double[capacity];
+        for (RatingState state : states) {
+            add(state.playerId, state.elo, state.deviation, state.volatility);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the player's slot, or -1 if the player is not in the table
+     */
+    public int slotOf(String playerId) {
+        return slots.getOrDefault(playerId, -1);
+    }
+
+    /**
+     * @return the player's slot, adding an unrated player with the initial rating if needed
+     */
+    public int slotOrAdd(String playerId) {
+        int slot = slotOf(playerId);
+        return slot >= 0 ? slot : add(playerId, initialRating, RatingState.DEFAULT_DEVIATION, RatingState.DEFAULT_VOLATILITY);
+    }
+
+    public RatingState state(int slot) {
+        return new RatingState(playerIds[slot], (int) Math.round(ratings[slot]), deviations[slot], volatilities[slot]);
+    }
+
+    private int add(String playerId, double rating, double deviation, double volatility) {
+        if (size == playerIds.length) {
+            int capacity = size * 2;
+            playerIds = Arrays.copyOf(playerIds, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            deviations = Arrays.copyOf(deviations, capacity);
+            volatilities = Arrays.copyOf(volatilities, capacity);
+        }
+        int slot = size++;
+        slots.put(playerId, slot);
+        playerIds[slot] = playerId;
+        ratings[slot] = rating;
+        deviations[slot] = deviation;
+        volatilities[slot] = volatility;
+        return slot;
+    }
+}
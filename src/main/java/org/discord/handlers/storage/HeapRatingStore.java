@@ -0,0 +1,81 @@
+package org.discord.handlers.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default on-heap store. Nothing is persisted, so it is always rebuilt from the rating ledger on startup.
+ */
+public class HeapRatingStore implements RatingStore {
+    private final ConcurrentHashMap<Long, Record> records = new ConcurrentHashMap<>();
+
+    @Override
+    public int getElo(long playerId) {
+        Record record = records.get(playerId);
+        return record != null ? record.elo : NOT_FOUND;
+    }
+
+    @Override
+    public boolean insertIfAbsent(long playerId, int elo) {
+        return records.putIfAbsent(playerId, new Record(elo)) == null;
+    }
+
+    @Override
+    public void setElo(long playerId, int elo) {
+        records.compute(playerId, (id, record) -> {
+            if (record == null) {
+                return new Record(elo);
+            }
+            record.elo = elo;
+            return record;
+        });
+    }
+
+    @Override
+    public void recordGame(long playerId, int elo, long playedAtMillis) {
+        records.compute(playerId, (id, record) -> {
+            Record updated = record != null ? record : new Record(elo);
+            updated.elo = elo;
+            updated.games++;
+            updated.lastPlayedMillis = playedAtMillis;
+            return updated;
+        });
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void forEach(RecordVisitor visitor) {
+        records.forEach((playerId, record) -> visitor.visit(playerId, record.elo, record.games, record.lastPlayedMillis));
+    }
+
+    @Override
+    public void clear() {
+        records.clear();
+    }
+
+    @Override
+    public boolean isConsistentWith(long ledgerEventId) {
+        return false;
+    }
+
+    @Override
+    public void checkpoint(long ledgerEventId) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static class Record {
+        volatile int elo;
+        volatile int games;
+        volatile long lastPlayedMillis;
+
+        Record(int elo) {
+            this.elo = elo;
+        }
+    }
+}
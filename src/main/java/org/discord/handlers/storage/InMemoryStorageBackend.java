@@ -0,0 +1,604 @@
+package org.discord.handlers.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Storage backend that keeps everything in concurrent maps and never touches a database.
+ * <p>
+ * Reads and single-player writes go straight to {@link ConcurrentHashMap}s without locking. Applying match
+ * results has to read and write several players atomically, so those calls are serialized, which is what the H2
+ * backend achieves with row locks. Blocking work runs on the calling thread.
+ * <p>
+ * When a snapshot file is configured, {@link #writeSnapshot()} writes all ratings to it (temporary file, fsync,
+ * atomic rename) and {@link #initialize()} restores from it. Only ratings are persisted, so anything after the
+ * last snapshot is lost on a crash. Rating events are counted but not kept, so past results cannot be corrected,
+ * and rated match ids are forgotten along with the delivered outbox entries that could redeliver them.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryStorageBackend.class);
+    private static final int SNAPSHOT_MAGIC = 0x534E4150; // "SNAP"
+    private static final int SNAPSHOT_FORMAT_VERSION = 1;
+
+    private final Path snapshotFile;
+    private final ConcurrentHashMap<String, Integer> ratings = new ConcurrentHashMap<>();
+    // Time of each player's latest game or placement, for inactivity decay
+    private final ConcurrentHashMap<String, Long> lastPlayed = new ConcurrentHashMap<>();
+    private final AtomicLong latestEventId = new AtomicLong();
+    private volatile long snapshotEventId;
+    private final Object applyLock = new Object();
+    // Glicko-2 {deviation, volatility} by player, for players a rating period has rated; guarded by applyLock
+    private final Map<String, double[]> deviations = new HashMap<>();
+    // Time each "source:matchId" was rated, so a redelivered tournament is not rated twice; pruned with the outbox
+    private final ConcurrentHashMap<String, Long> recordedMatches = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final TreeMap<Long, MatchResult> periodResults = new TreeMap<>();
+    private long nextPeriodResultId = 1;
+    private final ConcurrentHashMap<Integer, Map<String, Integer>> closedSeasons = new ConcurrentHashMap<>();
+    private final AtomicInteger currentSeasonId = new AtomicInteger(1);
+
+    private final ConcurrentHashMap<String, TournamentRecord> tournaments = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> participantsByTournament = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MatchRecord> matches = new ConcurrentHashMap<>();
+
+    // Guarded by itself; outboxByKey indexes the same records by dedup key
+    private final TreeMap<Long, OutboxRecord> outbox = new TreeMap<>();
+    private final Map<String, OutboxRecord> outboxByKey = new HashMap<>();
+    private long nextOutboxId = 1;
+
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public InMemoryStorageBackend() {
+        this(null);
+    }
+
+    /**
+     * @param snapshotFile file to restore from and snapshot to, or null to keep nothing across restarts
+     */
+    public InMemoryStorageBackend(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    public void initialize() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            logger.info("In-memory storage starting empty.");
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT_VERSION) {
+                throw new IllegalStateException(snapshotFile + " is not a rating snapshot");
+            }
+            long eventId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ratings.put(Long.toString(in.readLong()), in.readInt());
+            }
+            latestEventId.set(eventId);
+            snapshotEventId = eventId;
+            logger.info("Restored {} ratings from {} at event {}.", count, snapshotFile, eventId);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to restore ratings from " + snapshotFile, e);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        try {
+            return CompletableFuture.completedFuture(task.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return supplyAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> loadRatings() {
+        return new HashMap<>(ratings);
+    }
+
+    @Override
+    public boolean saveEloRatings(Map<String, Integer> batch, List<RatingEvent> events) {
+        ratings.putAll(batch);
+        for (RatingEvent event : events) {
+            if (event.isPlayed()) {
+                lastPlayed.merge(event.playerId, event.createdAtMillis, Math::max);
+            }
+            if (event.matchId != null) {
+                recordedMatches.put(event.source + ":" + event.matchId, event.createdAtMillis);
+            }
+        }
+        latestEventId.addAndGet(events.size());
+        return true;
+    }
+
+    @Override
+    public Map<String, Integer> applyMatchResults(List<MatchResult> results, int initialElo, RatingCalculator calculator) {
+        synchronized (applyLock) {
+            Set<String> playerIds = new LinkedHashSet<>();
+            long playedAt = System.currentTimeMillis();
+            for (MatchResult result : results) {
+                lastPlayed.put(result.winnerId, playedAt);
+                lastPlayed.put(result.loserId, playedAt);
+                int[] updated = calculator.calculate(
+                        ratings.getOrDefault(result.winnerId, initialElo),
+                        ratings.getOrDefault(result.loserId, initialElo));
+                ratings.put(result.winnerId, updated[0]);
+                ratings.put(result.loserId, updated[1]);
+                if (result.matchId != null) {
+                    recordedMatches.put(result.source + ":" + result.matchId, playedAt);
+                }
+                playerIds.add(result.winnerId);
+                playerIds.add(result.loserId);
+            }
+            latestEventId.addAndGet(2L * results.size());
+
+            Map<String, Integer> updatedRatings = new HashMap<>();
+            for (String playerId : playerIds) {
+                updatedRatings.put(playerId, ratings.get(playerId));
+            }
+            return updatedRatings;
+        }
+    }
+
+    @Override
+    public RatingCorrection correctMatchResult(String matchId, String winnerId, Function<RatingEvent.Source, RatingCalculator> calculators,
+                                               int minElo) {
+        throw new IllegalStateException("Rating events are not kept in memory, so match results cannot be corrected");
+    }
+
+    @Override
+    public Set<String> findRecordedMatches(Collection<String> matchIds, RatingEvent.Source source) {
+        Set<String> recorded = new HashSet<>();
+        for (String matchId : matchIds) {
+            if (recordedMatches.containsKey(source + ":" + matchId)) {
+                recorded.add(matchId);
+            }
+        }
+        synchronized (periodResults) {
+            for (MatchResult result : periodResults.values()) {
+                if (result.source == source && matchIds.contains(result.matchId)) {
+                    recorded.add(result.matchId);
+                }
+            }
+        }
+        return recorded;
+    }
+
+    @Override
+    public void queuePeriodResults(List<MatchResult> results) {
+        synchronized (periodResults) {
+            for (MatchResult result : results) {
+                periodResults.put(nextPeriodResultId++, result);
+            }
+        }
+    }
+
+    @Override
+    public RatingPeriod loadRatingPeriod() {
+        synchronized (periodResults) {
+            return new RatingPeriod(new ArrayList<>(periodResults.values()), periodResults.isEmpty() ? 0 : periodResults.lastKey());
+        }
+    }
+
+    @Override
+    public List<RatingState> loadRatingStates() {
+        synchronized (applyLock) {
+            List<RatingState> states = new ArrayList<>(ratings.size());
+            ratings.forEach((playerId, elo) -> {
+                double[] deviation = deviations.getOrDefault(playerId, new double[]{RatingState.DEFAULT_DEVIATION, RatingState.DEFAULT_VOLATILITY});
+                states.add(new RatingState(playerId, elo, deviation[0], deviation[1]));
+            });
+            return states;
+        }
+    }
+
+    @Override
+    public boolean saveRatingPeriod(List<RatingState> states, List<RatingEvent> events, long lastResultId) {
+        synchronized (applyLock) {
+            for (RatingState state : states) {
+                ratings.put(state.playerId, state.elo);
+                deviations.put(state.playerId, new double[]{state.deviation, state.volatility});
+            }
+            latestEventId.addAndGet(events.size());
+        }
+        long ratedAt = System.currentTimeMillis();
+        synchronized (periodResults) {
+            Map<Long, MatchResult> rated = periodResults.headMap(lastResultId, true);
+            for (MatchResult result : rated.values()) {
+                if (result.matchId != null) {
+                    recordedMatches.put(result.source + ":" + result.matchId, ratedAt);
+                }
+            }
+            rated.clear();
+        }
+        return true;
+    }
+
+    @Override
+    public long getLatestEventId() {
+        return latestEventId.get();
+    }
+
+    @Override
+    public LedgerChanges getLedgerChanges(long afterEventId) {
+        throw new IllegalStateException("Ratings kept in memory cannot be shared between instances");
+    }
+
+    @Override
+    public long countEventsSinceSnapshot() {
+        return snapshotFile == null ? 0 : latestEventId.get() - snapshotEventId;
+    }
+
+    @Override
+    public synchronized void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        long eventId = latestEventId.get();
+        Map<String, Integer> copy = new HashMap<>(ratings);
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT_VERSION);
+            out.writeLong(eventId);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, Integer> entry : copy.entrySet()) {
+                out.writeLong(Long.parseLong(entry.getKey()));
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            logger.error("Error writing rating snapshot to " + temporary, e);
+            return;
+        }
+
+        try {
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotEventId = eventId;
+            logger.info("Wrote rating snapshot of {} players to {} at event {}.", copy.size(), snapshotFile, eventId);
+        } catch (IOException e) {
+            logger.error("Error replacing rating snapshot " + snapshotFile, e);
+        }
+    }
+
+    @Override
+    public SeasonRollover closeSeason(String nextSeasonName, double carryOver, int initialElo) {
+        long start = System.currentTimeMillis();
+        synchronized (applyLock) {
+            int closedSeasonId = currentSeasonId.getAndIncrement();
+            closedSeasons.put(closedSeasonId, new HashMap<>(ratings));
+            int archived = ratings.size();
+            if (carryOver <= 0) {
+                ratings.clear();
+            } else {
+                double factor = Math.min(carryOver, 1.0);
+                ratings.replaceAll((playerId, elo) -> (int) Math.round(initialElo + (elo - initialElo) * factor));
+                ratings.values().removeIf(elo -> elo == initialElo);
+            }
+            return new SeasonRollover(closedSeasonId, closedSeasonId + 1, archived, ratings.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public RatingDecay decayInactiveRatings(long inactiveSinceMillis, int points, int minElo) {
+        long start = System.currentTimeMillis();
+        synchronized (applyLock) {
+            Map<String, Integer> decayed = new HashMap<>();
+            lastPlayed.forEach((playerId, playedAt) -> {
+                Integer elo = ratings.get(playerId);
+                if (playedAt < inactiveSinceMillis && elo != null && elo > minElo) {
+                    int newElo = Math.max(minElo, elo - points);
+                    ratings.put(playerId, newElo);
+                    decayed.put(playerId, newElo);
+                }
+            });
+            latestEventId.addAndGet(decayed.size());
+            return new RatingDecay(decayed, System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public List<PlayerElo> getSeasonLeaderboard(int seasonId, int limit) {
+        List<PlayerElo> players = new ArrayList<>();
+        closedSeasons.getOrDefault(seasonId, Map.of()).forEach((playerId, elo) -> players.add(new PlayerElo(playerId, elo)));
+        players.sort(Comparator.comparingInt((PlayerElo playerElo) -> playerElo.elo).reversed());
+        return players.subList(0, Math.min(limit, players.size()));
+    }
+
+    @Override
+    public void createTournament(String tournamentId, String name, String status) {
+        tournaments.put(tournamentId, new TournamentRecord(name, status));
+    }
+
+    @Override
+    public void updateTournamentStatus(String tournamentId, String status) {
+        TournamentRecord tournament = tournaments.get(tournamentId);
+        if (tournament != null) {
+            tournament.status = status;
+        }
+    }
+
+    @Override
+    public void addTournamentParticipant(String tournamentId, String playerId) {
+        participantsByTournament.computeIfAbsent(tournamentId, id -> ConcurrentHashMap.newKeySet()).add(playerId);
+    }
+
+    @Override
+    public void createTournamentMatch(String matchId, String tournamentId, String player1Id, String player2Id, String status) {
+        matches.put(matchId, new MatchRecord(tournamentId, player1Id, player2Id, status));
+    }
+
+    @Override
+    public void updateTournamentMatchResult(String matchId, String winnerId, String score) {
+        MatchRecord match = matches.get(matchId);
+        if (match != null) {
+            match.winnerId = winnerId;
+            match.score = score;
+            match.status = "COMPLETED";
+        }
+    }
+
+    @Override
+    public boolean saveTournamentChanges(TournamentChanges changes) {
+        for (TournamentChanges.Tournament tournament : changes.tournaments) {
+            TournamentRecord previous = tournaments.get(tournament.id);
+            TournamentRecord record = new TournamentRecord(tournament.name, tournament.status);
+            record.channelId = tournament.channelId != null || previous == null ? tournament.channelId : previous.channelId;
+            record.tournamentType = tournament.tournamentType != null || previous == null ? tournament.tournamentType : previous.tournamentType;
+            tournaments.put(tournament.id, record);
+        }
+        for (TournamentChanges.Participant participant : changes.participants) {
+            addTournamentParticipant(participant.tournamentId, participant.playerId);
+        }
+        for (TournamentMatch match : changes.matches) {
+            MatchRecord record = new MatchRecord(match.tournamentId, match.player1Id, match.player2Id, match.status);
+            record.winnerId = match.winnerId;
+            record.score = match.score;
+            matches.put(match.id, record);
+        }
+        return true;
+    }
+
+    @Override
+    public List<PlayerSet> getPlayerSets(String playerId, int limit) {
+        List<PlayerSet> sets = new ArrayList<>();
+        matches.forEach((matchId, record) -> {
+            if (record.player1Id.equals(playerId) || record.player2Id.equals(playerId)) {
+                TournamentRecord tournament = tournaments.get(record.tournamentId);
+                TournamentMatch match = new TournamentMatch(matchId, record.tournamentId, record.player1Id, record.player2Id,
+                        record.winnerId, record.score, record.status);
+                sets.add(PlayerSet.of(match, playerId, tournament != null ? tournament.name : null));
+            }
+        });
+        sets.sort(Comparator.comparingLong((PlayerSet set) -> Long.parseLong(set.tournamentId))
+                .thenComparingLong(set -> Long.parseLong(set.matchId)).reversed());
+        return sets.subList(0, Math.min(limit, sets.size()));
+    }
+
+    @Override
+    public List<TournamentChanges.Tournament> loadOpenTournaments() {
+        List<TournamentChanges.Tournament> open = new ArrayList<>();
+        tournaments.forEach((tournamentId, record) -> {
+            if (record.channelId != null && !"COMPLETED".equals(record.status)) {
+                open.add(new TournamentChanges.Tournament(tournamentId, record.name, record.status, record.channelId, record.tournamentType));
+            }
+        });
+        open.sort(Comparator.comparingLong(tournament -> Long.parseLong(tournament.id)));
+        return open;
+    }
+
+    @Override
+    public int enqueueOutbox(List<OutboxEntry> entries) {
+        synchronized (outbox) {
+            int queued = 0;
+            for (OutboxEntry entry : entries) {
+                OutboxRecord existing = outboxByKey.get(entry.dedupKey);
+                if (existing != null && !OutboxRecord.FAILED.equals(existing.status)) {
+                    continue;
+                }
+                if (existing != null) {
+                    outbox.remove(existing.id);
+                }
+                OutboxRecord record = new OutboxRecord(nextOutboxId++, entry);
+                outbox.put(record.id, record);
+                outboxByKey.put(entry.dedupKey, record);
+                queued++;
+            }
+            return queued;
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> getDueOutboxEntries(int limit) {
+        long now = System.currentTimeMillis();
+        List<OutboxEntry> due = new ArrayList<>();
+        Set<String> seenPartitions = new HashSet<>();
+        synchronized (outbox) {
+            for (OutboxRecord record : outbox.values()) {
+                if (due.size() >= limit) {
+                    break;
+                }
+                if (!OutboxRecord.PENDING.equals(record.status) || !seenPartitions.add(record.entry.partitionKey)) {
+                    continue;
+                }
+                if (record.nextAttemptAt <= now) {
+                    OutboxEntry entry = record.entry;
+                    due.add(new OutboxEntry(record.id, entry.dedupKey, entry.partitionKey, entry.kind, entry.payload, record.attempts));
+                }
+            }
+        }
+        return due;
+    }
+
+    @Override
+    public void markOutboxDelivered(long id) {
+        synchronized (outbox) {
+            OutboxRecord record = outbox.get(id);
+            if (record != null) {
+                record.attempts++;
+                record.status = OutboxRecord.DELIVERED;
+                record.deliveredAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    @Override
+    public void rescheduleOutboxEntry(long id, long delayMillis, String error) {
+        synchronized (outbox) {
+            OutboxRecord record = outbox.get(id);
+            if (record != null) {
+                record.attempts++;
+                record.nextAttemptAt = System.currentTimeMillis() + delayMillis;
+            }
+        }
+    }
+
+    @Override
+    public void markOutboxFailed(long id, String error) {
+        synchronized (outbox) {
+            OutboxRecord record = outbox.get(id);
+            if (record != null) {
+                record.attempts++;
+                record.status = OutboxRecord.FAILED;
+            }
+        }
+    }
+
+    /**
+     * Also forgets matches rated before the cutoff, since no outbox entry old enough to redeliver them is left.
+     */
+    @Override
+    public int purgeDeliveredOutbox(long ageMillis) {
+        long cutoff = System.currentTimeMillis() - ageMillis;
+        int purged = 0;
+        synchronized (outbox) {
+            Iterator<OutboxRecord> records = outbox.values().iterator();
+            while (records.hasNext()) {
+                OutboxRecord record = records.next();
+                if (OutboxRecord.DELIVERED.equals(record.status) && record.deliveredAt < cutoff) {
+                    records.remove();
+                    outboxByKey.remove(record.entry.dedupKey);
+                    purged++;
+                }
+            }
+        }
+        recordedMatches.values().removeIf(ratedAt -> ratedAt < cutoff);
+        return purged;
+    }
+
+    /**
+     * Memory storage is never shared, so this only matters when several elections run in one process.
+     */
+    @Override
+    public boolean tryAcquireLease(String name, String holder, long durationMillis) {
+        long now = System.currentTimeMillis();
+        Lease lease = leases.compute(name, (key, current) ->
+                current == null || current.holder.equals(holder) || current.expiresAt < now
+                        ? new Lease(holder, now + durationMillis)
+                        : current);
+        return lease.holder.equals(holder);
+    }
+
+    @Override
+    public void releaseLease(String name, String holder) {
+        leases.computeIfPresent(name, (key, current) -> current.holder.equals(holder) ? null : current);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("In-memory storage shut down with {} ratings.", ratings.size());
+    }
+
+    private static class TournamentRecord {
+        final String name;
+        volatile String status;
+        volatile String channelId;
+        volatile String tournamentType;
+
+        TournamentRecord(String name, String status) {
+            this.name = name;
+            this.status = status;
+        }
+    }
+
+    private static class MatchRecord {
+        final String tournamentId;
+        final String player1Id;
+        final String player2Id;
+        volatile String winnerId;
+        volatile String score;
+        volatile String status;
+
+        MatchRecord(String tournamentId, String player1Id, String player2Id, String status) {
+            this.tournamentId = tournamentId;
+            this.player1Id = player1Id;
+            this.player2Id = player2Id;
+            this.status = status;
+        }
+    }
+
+    private static class Lease {
+        final String holder;
+        final long expiresAt;
+
+        Lease(String holder, long expiresAt) {
+            this.holder = holder;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class OutboxRecord {
+        static final String PENDING = "PENDING";
+        static final String DELIVERED = "DELIVERED";
+        static final String FAILED = "FAILED";
+
+        final long id;
+        final OutboxEntry entry;
+        String status = PENDING;
+        int attempts;
+        long nextAttemptAt;
+        long deliveredAt;
+
+        OutboxRecord(long id, OutboxEntry entry) {
+            this.id = id;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.discord.handlers.storage;
+
+import java.util.Map;
+
+/**
+ * Rating changes appended to the ledger after a given event, as read by an instance following other instances that
+ * share its database.
+ */
+public class LedgerChanges {
+    /**
+     * Event id every change up to which has committed; the position to read from next time.
+     */
+    public final long lastEventId;
+    /**
+     * Bumped whenever ratings change without new events, by a correction or a season rollover. A follower that
+     * sees it change must reload every rating instead of applying {@link #ratings}.
+     */
+    public final long generation;
+    /**
+     * Latest rating of every player changed after the requested event.
+     */
+    public final Map<String, Integer> ratings;
+
+    public LedgerChanges(long lastEventId, long generation, Map<String, Integer> ratings) {
+        this.lastEventId = lastEventId;
+        this.generation = generation;
+        this.ratings = ratings;
+    }
+}
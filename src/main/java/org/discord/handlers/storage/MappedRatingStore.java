@@ -0,0 +1,372 @@
+package org.discord.handlers.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Rating store backed by a memory-mapped file, for ladders too large to keep as objects on the heap.
+ * <p>
+ * The file is a 4 KiB header followed by an open-addressing hash table of fixed 24-byte records
+ * {@code (long playerId, int elo, int games, long lastPlayedMillis)} with linear probing; player id 0 marks an
+ * empty slot. Lookups and updates work directly on the mapping, so nothing is deserialized at startup and
+ * nothing is allocated per operation. Lookups are optimistic reads under a {@link StampedLock}; writers take the
+ * write lock. The table doubles into a new file, swapped in with an atomic rename, once it is 70% full.
+ * <p>
+ * Crash consistency comes from the header: before the first change after a checkpoint the header is marked dirty
+ * and fsync'd, and {@link #checkpoint(long)} fsyncs the records before fsyncing a clean header with the ledger
+ * position. A file found dirty on open is never trusted and the caller rebuilds it from the rating ledger.
+ */
+public class MappedRatingStore implements RatingStore {
+    private static final Logger logger = LoggerFactory.getLogger(MappedRatingStore.class);
+
+    private static final long MAGIC = 0x534D415348454C4FL; // "SMASHELO"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int RECORD_BYTES = 24;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26; // keeps the whole table inside one 2 GiB mapping
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 8;
+    private static final int HEADER_CAPACITY = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int HEADER_STATE = 20;
+    private static final int HEADER_LEDGER_EVENT_ID = 24;
+    private static final int STATE_CLEAN = 0;
+    private static final int STATE_DIRTY = 1;
+
+    private static final int RECORD_PLAYER_ID = 0;
+    private static final int RECORD_ELO = 8;
+    private static final int RECORD_GAMES = 12;
+    private static final int RECORD_LAST_PLAYED = 16;
+    private static final long EMPTY = 0L;
+
+    private final Path path;
+    private final StampedLock lock = new StampedLock();
+    // Swapped as one reference so an optimistic reader never pairs a buffer with another table's capacity
+    private volatile Table table;
+    private int size;
+    private boolean dirty;
+    private long checkpointedEventId;
+
+    private MappedRatingStore(Path path, Table table, int size, boolean dirty, long checkpointedEventId) {
+        this.path = path;
+        this.table = table;
+        this.size = size;
+        this.dirty = dirty;
+        this.checkpointedEventId = checkpointedEventId;
+    }
+
+    /**
+     * Opens the store at {@code path}, creating it sized for {@code expectedPlayers} if it does not exist or is
+     * not a valid store file.
+     */
+    public static MappedRatingStore open(Path path, int expectedPlayers) throws IOException {
+        if (Files.exists(path) && Files.size(path) >= HEADER_BYTES) {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int capacity = header.getInt(HEADER_CAPACITY);
+            boolean valid = header.getLong(HEADER_MAGIC) == MAGIC
+                    && header.getInt(HEADER_VERSION) == FORMAT_VERSION
+                    && capacity >= MIN_CAPACITY && capacity <= MAX_CAPACITY && Integer.bitCount(capacity) == 1
+                    && channel.size() == fileSize(capacity);
+            if (valid) {
+                Table table = new Table(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity)), capacity);
+                boolean clean = table.buffer.getInt(HEADER_STATE) == STATE_CLEAN;
+                logger.info("Opened rating store {} ({} slots, {}).", path, capacity, clean ? "clean" : "not cleanly closed");
+                return new MappedRatingStore(path, table, table.buffer.getInt(HEADER_SIZE), !clean,
+                        clean ? table.buffer.getLong(HEADER_LEDGER_EVENT_ID) : -1);
+            }
+            channel.close();
+            logger.warn("{} is not a valid rating store; recreating it.", path);
+        }
+
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * MAX_LOAD_FACTOR < expectedPlayers) {
+            capacity <<= 1;
+        }
+        return new MappedRatingStore(path, createTable(path, capacity), 0, true, -1);
+    }
+
+    private static long fileSize(int capacity) {
+        return HEADER_BYTES + (long) capacity * RECORD_BYTES;
+    }
+
+    private static Table createTable(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.putLong(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, FORMAT_VERSION);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        buffer.putInt(HEADER_SIZE, 0);
+        buffer.putInt(HEADER_STATE, STATE_DIRTY);
+        buffer.putLong(HEADER_LEDGER_EVENT_ID, -1);
+        buffer.force(0, HEADER_BYTES);
+        return new Table(channel, buffer, capacity);
+    }
+
+    @Override
+    public int getElo(long playerId) {
+        long stamp = lock.tryOptimisticRead();
+        int elo = readElo(table, playerId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                elo = readElo(table, playerId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return elo;
+    }
+
+    private static int readElo(Table table, long playerId) {
+        int offset = recordOffset(findSlot(table, playerId));
+        return table.buffer.getLong(offset + RECORD_PLAYER_ID) == playerId ? table.buffer.getInt(offset + RECORD_ELO) : NOT_FOUND;
+    }
+
+    @Override
+    public boolean insertIfAbsent(long playerId, int elo) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(table, playerId);
+            if (table.buffer.getLong(recordOffset(slot) + RECORD_PLAYER_ID) == playerId) {
+                return false;
+            }
+            insert(slot, playerId, elo);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void setElo(long playerId, int elo) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(table, playerId);
+            if (table.buffer.getLong(recordOffset(slot) + RECORD_PLAYER_ID) != playerId) {
+                insert(slot, playerId, elo);
+                return;
+            }
+            markDirty();
+            table.buffer.putInt(recordOffset(slot) + RECORD_ELO, elo);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void recordGame(long playerId, int elo, long playedAtMillis) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(table, playerId);
+            if (table.buffer.getLong(recordOffset(slot) + RECORD_PLAYER_ID) != playerId) {
+                slot = insert(slot, playerId, elo);
+            }
+            markDirty();
+            int offset = recordOffset(slot);
+            MappedByteBuffer buffer = table.buffer;
+            buffer.putInt(offset + RECORD_ELO, elo);
+            buffer.putInt(offset + RECORD_GAMES, buffer.getInt(offset + RECORD_GAMES) + 1);
+            buffer.putLong(offset + RECORD_LAST_PLAYED, playedAtMillis);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes a new record into the empty {@code slot}, growing the table first if needed. Caller holds the write lock.
+     *
+     * @return the slot the record ended up in
+     */
+    private int insert(int slot, long playerId, int elo) {
+        if (playerId == EMPTY) {
+            throw new IllegalArgumentException("Player id 0 is reserved");
+        }
+        markDirty();
+        if (size + 1 > table.capacity * MAX_LOAD_FACTOR) {
+            grow();
+            slot = findSlot(table, playerId);
+        }
+        int offset = recordOffset(slot);
+        MappedByteBuffer buffer = table.buffer;
+        buffer.putInt(offset + RECORD_ELO, elo);
+        buffer.putInt(offset + RECORD_GAMES, 0);
+        buffer.putLong(offset + RECORD_LAST_PLAYED, 0);
+        // Publish the id last so an optimistic reader never matches a half-written record
+        buffer.putLong(offset + RECORD_PLAYER_ID, playerId);
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        Table old = table;
+        if (old.capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Rating store is full (" + size + " players)");
+        }
+        int newCapacity = old.capacity << 1;
+        Path resized = path.resolveSibling(path.getFileName() + ".resize");
+        try {
+            Table grown = createTable(resized, newCapacity);
+            for (int slot = 0; slot < old.capacity; slot++) {
+                int from = recordOffset(slot);
+                long playerId = old.buffer.getLong(from + RECORD_PLAYER_ID);
+                if (playerId != EMPTY) {
+                    int to = recordOffset(findSlot(grown, playerId));
+                    grown.buffer.putInt(to + RECORD_ELO, old.buffer.getInt(from + RECORD_ELO));
+                    grown.buffer.putInt(to + RECORD_GAMES, old.buffer.getInt(from + RECORD_GAMES));
+                    grown.buffer.putLong(to + RECORD_LAST_PLAYED, old.buffer.getLong(from + RECORD_LAST_PLAYED));
+                    grown.buffer.putLong(to + RECORD_PLAYER_ID, playerId);
+                }
+            }
+            grown.buffer.force();
+            Files.move(resized, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            table = grown;
+            old.channel.close();
+            logger.info("Grew rating store {} to {} slots.", path, newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow rating store " + path, e);
+        }
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            table.buffer.putInt(HEADER_STATE, STATE_DIRTY);
+            table.buffer.force(0, HEADER_BYTES);
+            dirty = true;
+        }
+    }
+
+    private static int findSlot(Table table, long playerId) {
+        int mask = table.capacity - 1;
+        int slot = hash(playerId) & mask;
+        while (true) {
+            long id = table.buffer.getLong(recordOffset(slot) + RECORD_PLAYER_ID);
+            if (id == playerId || id == EMPTY) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(long playerId) {
+        // Snowflakes share their low bits within a millisecond, so mix before masking
+        long h = playerId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void forEach(RecordVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            Table current = table;
+            for (int slot = 0; slot < current.capacity; slot++) {
+                int offset = recordOffset(slot);
+                long playerId = current.buffer.getLong(offset + RECORD_PLAYER_ID);
+                if (playerId != EMPTY) {
+                    visitor.visit(playerId, current.buffer.getInt(offset + RECORD_ELO),
+                            current.buffer.getInt(offset + RECORD_GAMES), current.buffer.getLong(offset + RECORD_LAST_PLAYED));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            markDirty();
+            Table current = table;
+            for (int slot = 0; slot < current.capacity; slot++) {
+                int offset = recordOffset(slot);
+                current.buffer.putLong(offset + RECORD_PLAYER_ID, EMPTY);
+                current.buffer.putInt(offset + RECORD_ELO, 0);
+                current.buffer.putInt(offset + RECORD_GAMES, 0);
+                current.buffer.putLong(offset + RECORD_LAST_PLAYED, 0);
+            }
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean isConsistentWith(long ledgerEventId) {
+        long stamp = lock.readLock();
+        try {
+            return !dirty && checkpointedEventId == ledgerEventId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void checkpoint(long ledgerEventId) {
+        long stamp = lock.writeLock();
+        try {
+            MappedByteBuffer buffer = table.buffer;
+            buffer.force();
+            buffer.putInt(HEADER_SIZE, size);
+            buffer.putLong(HEADER_LEDGER_EVENT_ID, ledgerEventId);
+            buffer.putInt(HEADER_STATE, STATE_CLEAN);
+            buffer.force(0, HEADER_BYTES);
+            dirty = false;
+            checkpointedEventId = ledgerEventId;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            table.channel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing rating store {}", path, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static final class Table {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+
+        Table(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.discord.handlers.storage;
+
+import java.util.List;
+
+public class MatchResult {
+    public final String winnerId;
+    public final String loserId;
+    public final String matchId;
+    public final RatingEvent.Source source;
+
+    public MatchResult(String winnerId, String loserId, String matchId, RatingEvent.Source source) {
+        this.winnerId = winnerId;
+        this.loserId = loserId;
+        this.matchId = matchId;
+        this.source = source;
+    }
+
+    /**
+     * @param updated {@code {newWinnerElo, newLoserElo}}
+     */
+    public List<RatingEvent> toEvents(int winnerElo, int loserElo, int[] updated) {
+        return List.of(
+                new RatingEvent(matchId, winnerId, loserId, winnerElo, updated[0], 1, source),
+                new RatingEvent(matchId, loserId, winnerId, loserElo, updated[1], 0, source));
+    }
+}
@@ -0,0 +1,36 @@
+package org.discord.handlers.storage;
+
+/**
+ * A side effect (Challonge write, Discord message) queued for the outbox dispatcher.
+ * <p>
+ * Entries sharing a {@code partitionKey} are delivered one at a time in id order; the {@code dedupKey} makes
+ * enqueueing the same work twice a no-op while the first copy is pending or delivered.
+ */
+public class OutboxEntry {
+    public enum Kind {
+        CHALLONGE_UPDATE_MATCH,
+        CHALLONGE_FINALIZE,
+        TOURNAMENT_RESULTS,
+        DISCORD_DIRECT_MESSAGE
+    }
+
+    public final long id;
+    public final String dedupKey;
+    public final String partitionKey;
+    public final Kind kind;
+    public final String payload;
+    public final int attempts;
+
+    public OutboxEntry(String dedupKey, String partitionKey, Kind kind, String payload) {
+        this(0, dedupKey, partitionKey, kind, payload, 0);
+    }
+
+    public OutboxEntry(long id, String dedupKey, String partitionKey, Kind kind, String payload, int attempts) {
+        this.id = id;
+        this.dedupKey = dedupKey;
+        this.partitionKey = partitionKey;
+        this.kind = kind;
+        this.payload = payload;
+        this.attempts = attempts;
+    }
+}
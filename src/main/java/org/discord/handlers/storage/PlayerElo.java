@@ -0,0 +1,11 @@
+package org.discord.handlers.storage;
+
+public class PlayerElo {
+    public final String playerId;
+    public final int elo;
+
+    public PlayerElo(String playerId, int elo) {
+        this.playerId = playerId;
+        this.elo = elo;
+    }
+}
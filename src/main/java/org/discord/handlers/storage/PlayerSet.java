@@ -0,0 +1,49 @@
+package org.discord.handlers.storage;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One tournament set seen from a player's side.
+ */
+public class PlayerSet {
+    private static final Pattern GAME_SCORE = Pattern.compile("(-?\\d+)-(-?\\d+)");
+
+    public final String tournamentId;
+    public final String tournamentName;
+    public final String matchId;
+    public final String opponentId;
+    /**
+     * The player's score first, or null if none was reported.
+     */
+    public final String score;
+    public final String status;
+    /**
+     * Null while the set has no winner.
+     */
+    public final Boolean won;
+
+    public PlayerSet(String tournamentId, String tournamentName, String matchId, String opponentId, String score, String status, Boolean won) {
+        this.tournamentId = tournamentId;
+        this.tournamentName = tournamentName;
+        this.matchId = matchId;
+        this.opponentId = opponentId;
+        this.score = score;
+        this.status = status;
+        this.won = won;
+    }
+
+    /**
+     * Turns a mirrored match around to {@code playerId}'s side, swapping each game score if they were player 2.
+     */
+    public static PlayerSet of(TournamentMatch match, String playerId, String tournamentName) {
+        boolean isPlayer1 = match.player1Id.equals(playerId);
+        String score = match.score;
+        if (!isPlayer1 && score != null) {
+            Matcher games = GAME_SCORE.matcher(score);
+            score = games.replaceAll("$2-$1");
+        }
+        return new PlayerSet(match.tournamentId, tournamentName, match.id, isPlayer1 ? match.player2Id : match.player1Id,
+                score, match.status, match.winnerId == null ? null : match.winnerId.equals(playerId));
+    }
+}
@@ -0,0 +1,9 @@
+package org.discord.handlers.storage;
+
+@FunctionalInterface
+public interface RatingCalculator {
+    /**
+     * @return {@code {newWinnerElo, newLoserElo}}
+     */
+    int[] calculate(int winnerElo, int loserElo);
+}
@@ -0,0 +1,35 @@
+package org.discord.handlers.storage;
+
+import java.util.Map;
+
+/**
+ * Outcome of correcting a recorded match result.
+ */
+public class RatingCorrection {
+    public final String matchId;
+    public final String winnerId;
+    public final String loserId;
+    /**
+     * Id of the corrected match's first rating event; ledger snapshots from there on held the old ratings.
+     */
+    public final long firstEventId;
+    /**
+     * Current rating of every player the correction changed.
+     */
+    public final Map<String, Integer> ratings;
+    public final int recalculatedGames;
+    public final int rewrittenEvents;
+    public final long durationMillis;
+
+    public RatingCorrection(String matchId, String winnerId, String loserId, long firstEventId, Map<String, Integer> ratings,
+                            int recalculatedGames, int rewrittenEvents, long durationMillis) {
+        this.matchId = matchId;
+        this.winnerId = winnerId;
+        this.loserId = loserId;
+        this.firstEventId = firstEventId;
+        this.ratings = ratings;
+        this.recalculatedGames = recalculatedGames;
+        this.rewrittenEvents = rewrittenEvents;
+        this.durationMillis = durationMillis;
+    }
+}
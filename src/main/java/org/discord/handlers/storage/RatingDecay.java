@@ -0,0 +1,19 @@
+package org.discord.handlers.storage;
+
+import java.util.Map;
+
+/**
+ * Outcome of one inactivity decay run.
+ */
+public class RatingDecay {
+    /**
+     * New rating of every decayed player; its size is the number of rows the run touched.
+     */
+    public final Map<String, Integer> ratings;
+    public final long durationMillis;
+
+    public RatingDecay(Map<String, Integer> ratings, long durationMillis) {
+        this.ratings = ratings;
+        this.durationMillis = durationMillis;
+    }
+}
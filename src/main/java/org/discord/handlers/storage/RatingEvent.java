@@ -0,0 +1,44 @@
+package org.discord.handlers.storage;
+
+/**
+ * One player's rating change. {@code result} is 1 for a win, 0 for a loss and null for changes that are not
+ * a single game, such as an administrator setting a rating.
+ */
+public class RatingEvent {
+    public final String matchId;
+    public final String playerId;
+    public final String opponentId;
+    public final int oldElo;
+    public final int newElo;
+    public final Integer result;
+    public final Source source;
+    public final long createdAtMillis;
+
+    public RatingEvent(String matchId, String playerId, String opponentId, int oldElo, int newElo, Integer result, Source source) {
+        this.matchId = matchId;
+        this.playerId = playerId;
+        this.opponentId = opponentId;
+        this.oldElo = oldElo;
+        this.newElo = newElo;
+        this.result = result;
+        this.source = source;
+        this.createdAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * True for changes that come from playing, games and tournament placements, which count as activity.
+     */
+    public boolean isPlayed() {
+        return result != null || source == Source.TOURNAMENT_PLACEMENT;
+    }
+
+    public enum Source {
+        RANKED_MATCH,
+        TOURNAMENT_MATCH,
+        TOURNAMENT_PLACEMENT,
+        ADMIN_SET,
+        IMPORT,
+        RATING_PERIOD,
+        INACTIVITY_DECAY
+    }
+}
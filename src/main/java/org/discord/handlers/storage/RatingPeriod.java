@@ -0,0 +1,20 @@
+package org.discord.handlers.storage;
+
+import java.util.List;
+
+/**
+ * The match results queued for the current rating period, in the order they were played.
+ */
+public class RatingPeriod {
+    public final List<MatchResult> results;
+    /**
+     * Id of the last queued result included, or 0 if there are none; results up to it are removed when the period
+     * is saved.
+     */
+    public final long lastResultId;
+
+    public RatingPeriod(List<MatchResult> results, long lastResultId) {
+        this.results = results;
+        this.lastResultId = lastResultId;
+    }
+}
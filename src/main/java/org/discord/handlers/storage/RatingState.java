@@ -0,0 +1,29 @@
+package org.discord.handlers.storage;
+
+/**
+ * A player's full rating state: the displayed rating plus the Glicko-2 rating deviation and volatility. Engines
+ * that do not use the last two leave them unchanged.
+ */
+public class RatingState {
+    /**
+     * Deviation and volatility of a player Glicko-2 has not rated yet; the schema defaults to the same values.
+     */
+    public static final double DEFAULT_DEVIATION = 350.0;
+    public static final double DEFAULT_VOLATILITY = 0.06;
+
+    public final String playerId;
+    public final int elo;
+    public final double deviation;
+    public final double volatility;
+
+    public RatingState(String playerId, int elo, double deviation, double volatility) {
+        this.playerId = playerId;
+        this.elo = elo;
+        this.deviation = deviation;
+        this.volatility = volatility;
+    }
+
+    public boolean sameRatingAs(RatingState other) {
+        return elo == other.elo && deviation == other.deviation && volatility == other.volatility;
+    }
+}
@@ -0,0 +1,54 @@
+package org.discord.handlers.storage;
+
+/**
+ * Keyed store of per-player rating records, addressed by Discord snowflake.
+ * <p>
+ * Implementations must be safe for concurrent use. The rating ledger in the database stays the source of truth;
+ * a persistent store only saves rebuilding from it when it was checkpointed at the ledger's current position.
+ */
+public interface RatingStore extends AutoCloseable {
+    /**
+     * Returned by {@link #getElo(long)} for players that have no record.
+     */
+    int NOT_FOUND = Integer.MIN_VALUE;
+
+    int getElo(long playerId);
+
+    /**
+     * Creates a record with the given rating unless one exists.
+     *
+     * @return true if a record was created.
+     */
+    boolean insertIfAbsent(long playerId, int elo);
+
+    void setElo(long playerId, int elo);
+
+    /**
+     * Sets the rating after a game, incrementing the player's game count and last-played time.
+     */
+    void recordGame(long playerId, int elo, long playedAtMillis);
+
+    int size();
+
+    void forEach(RecordVisitor visitor);
+
+    void clear();
+
+    /**
+     * @return true if the store was checkpointed at exactly this ledger position and has not been modified since.
+     */
+    boolean isConsistentWith(long ledgerEventId);
+
+    /**
+     * Makes the current contents durable and records that they reflect the ledger up to {@code ledgerEventId}.
+     */
+    void checkpoint(long ledgerEventId);
+
+    @Override
+    void close();
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long playerId, int elo, int games, long lastPlayedMillis);
+    }
+}
@@ -0,0 +1,20 @@
+package org.discord.handlers.storage;
+
+/**
+ * Outcome of closing a ranked season.
+ */
+public class SeasonRollover {
+    public final int closedSeasonId;
+    public final int newSeasonId;
+    public final int archivedRatings;
+    public final int liveRatings;
+    public final long durationMillis;
+
+    public SeasonRollover(int closedSeasonId, int newSeasonId, int archivedRatings, int liveRatings, long durationMillis) {
+        this.closedSeasonId = closedSeasonId;
+        this.newSeasonId = newSeasonId;
+        this.archivedRatings = archivedRatings;
+        this.liveRatings = liveRatings;
+        this.durationMillis = durationMillis;
+    }
+}
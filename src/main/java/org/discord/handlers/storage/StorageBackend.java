@@ -0,0 +1,242 @@
+package org.discord.handlers.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Persistence used by {@link org.discord.handlers.EloManager} and the tournament handlers.
+ * <p>
+ * {@link org.discord.handlers.DatabaseManager} is the H2 implementation; {@link InMemoryStorageBackend} keeps
+ * everything in concurrent maps for load tests, benchmarks and small memory-first deployments.
+ */
+public interface StorageBackend {
+    /**
+     * Prepares the backend (schema migrations, snapshot restore). Called once before any other method.
+     */
+    void initialize();
+
+    /**
+     * Runs blocking storage work off the caller's thread where the backend needs it.
+     */
+    <T> CompletableFuture<T> supplyAsync(Supplier<T> task);
+
+    CompletableFuture<Void> runAsync(Runnable task);
+
+    /**
+     * Rebuilds every player's current rating from the rating ledger.
+     *
+     * @throws IllegalStateException if the ratings cannot be read
+     */
+    Map<String, Integer> loadRatings();
+
+    /**
+     * Stores a batch of ratings together with the events that produced them, atomically.
+     *
+     * @return true if the batch was stored.
+     */
+    boolean saveEloRatings(Map<String, Integer> ratings, List<RatingEvent> events);
+
+    /**
+     * Applies match results in order against the stored ratings, atomically with their rating events.
+     *
+     * @param initialElo rating used for players that have no rating yet
+     * @return the new rating of every involved player
+     * @throws IllegalStateException if the results could not be stored
+     */
+    Map<String, Integer> applyMatchResults(List<MatchResult> results, int initialElo, RatingCalculator calculator);
+
+    /**
+     * Corrects a recorded match so that {@code winnerId} won it, then recalculates only the games downstream of it
+     * that involve an affected player, and stores the rewritten events and changed ratings atomically.
+     *
+     * @param calculators rates a game recorded under the given source, with the calculator it was first rated with
+     * @param minElo      floor of inactivity decay, which is replayed as the decay would have run
+     * @return the correction; its ratings are empty if {@code winnerId} already won the match
+     * @throws IllegalArgumentException if the match is unknown, {@code winnerId} did not play it, or it belongs to a
+     *                                  closed season
+     * @throws IllegalStateException    if the correction could not be stored
+     */
+    RatingCorrection correctMatchResult(String matchId, String winnerId, Function<RatingEvent.Source, RatingCalculator> calculators,
+                                        int minElo);
+
+    /**
+     * Queues results for the next rating period of a periodic rating engine.
+     *
+     * @throws IllegalStateException if the results could not be stored
+     */
+    void queuePeriodResults(List<MatchResult> results);
+
+    /**
+     * @return the ids among {@code matchIds} that already have rating events, a queued period result or a rated
+     * period result recorded under {@code source}
+     * @throws IllegalStateException if they could not be read
+     */
+    Set<String> findRecordedMatches(Collection<String> matchIds, RatingEvent.Source source);
+
+    /**
+     * @return every result queued since the last rating period was saved
+     */
+    RatingPeriod loadRatingPeriod();
+
+    /**
+     * @return the rating, deviation and volatility of every rated player
+     * @throws IllegalStateException if the ratings cannot be read
+     */
+    List<RatingState> loadRatingStates();
+
+    /**
+     * Stores a rated period atomically: the changed rating states in one batch, their rating events, and the
+     * removal of the queued results up to {@code lastResultId}, whose match ids are kept for
+     * {@link #findRecordedMatches}.
+     *
+     * @return true if the period was stored.
+     */
+    boolean saveRatingPeriod(List<RatingState> states, List<RatingEvent> events, long lastResultId);
+
+    /**
+     * @return the id of the newest rating event, or -1 if it cannot be determined.
+     */
+    long getLatestEventId();
+
+    long countEventsSinceSnapshot();
+
+    /**
+     * Reads the rating changes committed after {@code afterEventId}, for an instance keeping its ratings in line with
+     * other instances that share this storage.
+     *
+     * @throws IllegalStateException if the changes could not be read, or this backend cannot be shared
+     */
+    LedgerChanges getLedgerChanges(long afterEventId);
+
+    /**
+     * Compacts the rating ledger into a snapshot so the next {@link #loadRatings()} only replays newer events.
+     */
+    void writeSnapshot();
+
+    /**
+     * Closes the current season: archives every live rating under the season, then resets the live ratings in one
+     * set-based update. With a {@code carryOver} of 0 all live ratings are removed (hard reset); otherwise each
+     * rating keeps that fraction of its distance from {@code initialElo}. Players that end up at
+     * {@code initialElo} are dropped from the live table.
+     *
+     * @param nextSeasonName name of the season that starts
+     * @throws IllegalStateException if the rollover failed and nothing was changed
+     */
+    SeasonRollover closeSeason(String nextSeasonName, double carryOver, int initialElo);
+
+    /**
+     * Decays every player who has not played since {@code inactiveSinceMillis} by {@code points}, but not below
+     * {@code minElo}, in one set-based update that records a rating event per decayed player. Players already at
+     * {@code minElo} are not touched.
+     *
+     * @throws IllegalStateException if the decay failed and nothing was changed
+     */
+    RatingDecay decayInactiveRatings(long inactiveSinceMillis, int points, int minElo);
+
+    /**
+     * @return the highest ratings archived for a closed season, best first; empty if the season is unknown
+     */
+    List<PlayerElo> getSeasonLeaderboard(int seasonId, int limit);
+
+    void createTournament(String tournamentId, String name, String status);
+
+    void updateTournamentStatus(String tournamentId, String status);
+
+    void addTournamentParticipant(String tournamentId, String playerId);
+
+    void createTournamentMatch(String matchId, String tournamentId, String player1Id, String player2Id, String status);
+
+    void updateTournamentMatchResult(String matchId, String winnerId, String score);
+
+    /**
+     * Upserts tournaments, then registrations, then matches, in one transaction. Rows are keyed by id, so
+     * writing the same batch twice leaves the same rows.
+     *
+     * @return true if the batch was stored.
+     */
+    boolean saveTournamentChanges(TournamentChanges changes);
+
+    /**
+     * @return the player's mirrored tournament sets, newest tournament first
+     */
+    List<PlayerSet> getPlayerSets(String playerId, int limit);
+
+    /**
+     * @return mirrored tournaments that were recorded with a channel and are not completed, oldest first
+     */
+    List<TournamentChanges.Tournament> loadOpenTournaments();
+
+    /**
+     * Queues outbox entries atomically. An entry whose dedup key is already pending or delivered is skipped; one
+     * whose earlier copy failed for good is queued again.
+     *
+     * @return how many entries were newly queued
+     * @throws IllegalStateException if nothing could be queued
+     */
+    int enqueueOutbox(List<OutboxEntry> entries);
+
+    /**
+     * @return the oldest pending entry of each partition whose next attempt is due, oldest first
+     */
+    List<OutboxEntry> getDueOutboxEntries(int limit);
+
+    void markOutboxDelivered(long id);
+
+    /**
+     * Counts a failed attempt and holds the entry, and everything queued after it in its partition, back for
+     * {@code delayMillis}.
+     */
+    void rescheduleOutboxEntry(long id, long delayMillis, String error);
+
+    /**
+     * Gives up on an entry, which unblocks the rest of its partition.
+     */
+    void markOutboxFailed(long id, String error);
+
+    /**
+     * Deletes delivered entries older than {@code ageMillis}, after which their dedup keys may be queued again.
+     *
+     * @return the number of entries deleted
+     */
+    int purgeDeliveredOutbox(long ageMillis);
+
+    /**
+     * Takes or renews the named lease for {@code durationMillis}, measured on the storage's clock. Succeeds if
+     * nobody holds it, the current lease has expired, or {@code holder} already holds it.
+     *
+     * @return true if {@code holder} now holds the lease
+     */
+    boolean tryAcquireLease(String name, String holder, long durationMillis);
+
+    /**
+     * Gives the lease up early if {@code holder} holds it, so another instance can take over without waiting.
+     */
+    void releaseLease(String name, String holder);
+
+    default CompletableFuture<Void> createTournamentAsync(String tournamentId, String name, String status) {
+        return runAsync(() -> createTournament(tournamentId, name, status));
+    }
+
+    default CompletableFuture<Void> updateTournamentStatusAsync(String tournamentId, String status) {
+        return runAsync(() -> updateTournamentStatus(tournamentId, status));
+    }
+
+    default CompletableFuture<Void> addTournamentParticipantAsync(String tournamentId, String playerId) {
+        return runAsync(() -> addTournamentParticipant(tournamentId, playerId));
+    }
+
+    default CompletableFuture<Void> createTournamentMatchAsync(String matchId, String tournamentId, String player1Id, String player2Id, String status) {
+        return runAsync(() -> createTournamentMatch(matchId, tournamentId, player1Id, player2Id, status));
+    }
+
+    default CompletableFuture<Void> updateTournamentMatchResultAsync(String matchId, String winnerId, String score) {
+        return runAsync(() -> updateTournamentMatchResult(matchId, winnerId, score));
+    }
+
+    void shutdown();
+}
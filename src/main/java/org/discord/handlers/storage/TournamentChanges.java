@@ -0,0 +1,90 @@
+package org.discord.handlers.storage;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A batch of tournament, registration and match rows to upsert together.
+ */
+public class TournamentChanges {
+    public final List<Tournament> tournaments;
+    public final List<Participant> participants;
+    public final List<TournamentMatch> matches;
+
+    public TournamentChanges(List<Tournament> tournaments, List<Participant> participants, List<TournamentMatch> matches) {
+        this.tournaments = tournaments;
+        this.participants = participants;
+        this.matches = matches;
+    }
+
+    public boolean isEmpty() {
+        return tournaments.isEmpty() && participants.isEmpty() && matches.isEmpty();
+    }
+
+    public int size() {
+        return tournaments.size() + participants.size() + matches.size();
+    }
+
+    public static class Tournament {
+        public final String id;
+        public final String name;
+        public final String status;
+        /**
+         * Discord channel the tournament is run from and its Challonge type, so any instance can take it over;
+         * null keeps the stored values.
+         */
+        public final String channelId;
+        public final String tournamentType;
+
+        public Tournament(String id, String name, String status) {
+            this(id, name, status, null, null);
+        }
+
+        public Tournament(String id, String name, String status, String channelId, String tournamentType) {
+            this.id = id;
+            this.name = name;
+            this.status = status;
+            this.channelId = channelId;
+            this.tournamentType = tournamentType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Tournament)) {
+                return false;
+            }
+            Tournament other = (Tournament) o;
+            return id.equals(other.id) && Objects.equals(name, other.name) && Objects.equals(status, other.status)
+                    && Objects.equals(channelId, other.channelId) && Objects.equals(tournamentType, other.tournamentType);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    public static class Participant {
+        public final String tournamentId;
+        public final String playerId;
+
+        public Participant(String tournamentId, String playerId) {
+            this.tournamentId = tournamentId;
+            this.playerId = playerId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Participant)) {
+                return false;
+            }
+            Participant other = (Participant) o;
+            return tournamentId.equals(other.tournamentId) && playerId.equals(other.playerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tournamentId.hashCode() + playerId.hashCode();
+        }
+    }
+}
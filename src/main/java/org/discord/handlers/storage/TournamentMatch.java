@@ -0,0 +1,46 @@
+package org.discord.handlers.storage;
+
+import java.util.Objects;
+
+/**
+ * A tournament set as mirrored from Challonge. Players are Discord user ids; {@code score} is Challonge's
+ * {@code scores_csv}, from player 1's side.
+ */
+public class TournamentMatch {
+    public final String id;
+    public final String tournamentId;
+    public final String player1Id;
+    public final String player2Id;
+    public final String winnerId;
+    public final String score;
+    public final String status;
+
+    public TournamentMatch(String id, String tournamentId, String player1Id, String player2Id, String winnerId, String score, String status) {
+        this.id = id;
+        this.tournamentId = tournamentId;
+        this.player1Id = player1Id;
+        this.player2Id = player2Id;
+        this.winnerId = winnerId;
+        this.score = score;
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TournamentMatch)) {
+            return false;
+        }
+        TournamentMatch other = (TournamentMatch) o;
+        return id.equals(other.id) && tournamentId.equals(other.tournamentId) && player1Id.equals(other.player1Id)
+                && player2Id.equals(other.player2Id) && Objects.equals(winnerId, other.winnerId)
+                && Objects.equals(score, other.score) && Objects.equals(status, other.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+}
@@ -0,0 +1,36 @@
+package org.discord.utils;
+
+/**
+ * Counts commands over a sliding one-minute window in one-second buckets, so background work can tell whether
+ * the bot is busy.
+ */
+public class CommandRateMonitor {
+    private static final int WINDOW_SECONDS = 60;
+
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final int[] bucketCounts = new int[WINDOW_SECONDS];
+
+    public synchronized void record() {
+        long second = System.currentTimeMillis() / 1000;
+        int bucket = (int) (second % WINDOW_SECONDS);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            bucketCounts[bucket] = 0;
+        }
+        bucketCounts[bucket]++;
+    }
+
+    /**
+     * @return the number of commands recorded during the last minute
+     */
+    public synchronized int getCommandsPerMinute() {
+        long oldest = System.currentTimeMillis() / 1000 - WINDOW_SECONDS;
+        int total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (bucketSeconds[i] > oldest) {
+                total += bucketCounts[i];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,350 @@
+package org.discord.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ * <p>
+ * Connections are handed out as proxies whose {@code close()} returns the physical connection to the pool,
+ * so callers keep using the usual try-with-resources pattern. Idle connections above the minimum size are
+ * evicted after {@code idleTimeoutMillis}, idle connections are validated before being handed out, and
+ * connections held longer than {@code leakThresholdMillis} are reported together with the stack that borrowed them.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, long leakThresholdMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        fillToMinimum();
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout when the pool is exhausted.
+     * Closing the returned connection hands it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        borrowWaitNanos.addAndGet(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowedBy = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrows.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            destroy(pooled);
+        }
+        return createConnection();
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that failed to reset on return", e);
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing pooled connection", e);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && idle.size() + borrowed.size() < minSize) {
+            try {
+                PooledConnection pooled = createConnection();
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                logger.error("Failed to open connection while filling pool to minimum size", e);
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict from the tail: the deque is used LIFO, so the tail holds the longest-idle connections
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && idle.size() + borrowed.size() > minSize) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+            fillToMinimum();
+
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    logger.warn("Possible connection leak: connection held for {} ms", now - pooled.borrowedAt, pooled.borrowedBy);
+                }
+            }
+
+            logger.debug("Connection pool stats: {}", getStats());
+        } catch (RuntimeException e) {
+            logger.error("Connection pool housekeeping failed", e);
+        }
+    }
+
+    public PoolStats getStats() {
+        long borrowCount = borrows.get();
+        return new PoolStats(
+                idle.size(),
+                borrowed.size(),
+                permits.getQueueLength(),
+                minSize,
+                maxSize,
+                created.get(),
+                destroyed.get(),
+                borrowCount,
+                borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(borrowWaitNanos.get()) / borrowCount,
+                borrowTimeouts.get(),
+                validationFailures.get(),
+                leaksDetected.get()
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        if (!borrowed.isEmpty()) {
+            logger.warn("Connection pool closed with {} connection(s) still borrowed; they will be closed on return.", borrowed.size());
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowedBy;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Per-borrow view of a pooled connection. Once closed, the handle stops forwarding calls so a caller that
+     * kept a reference cannot interfere with the next borrower.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned ? ", returned" : "") + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    public static class PoolStats {
+        public final int idle;
+        public final int active;
+        public final int waiting;
+        public final int minSize;
+        public final int maxSize;
+        public final long created;
+        public final long destroyed;
+        public final long borrows;
+        public final long averageWaitMicros;
+        public final long timeouts;
+        public final long validationFailures;
+        public final long leaksDetected;
+
+        public PoolStats(int idle, int active, int waiting, int minSize, int maxSize, long created, long destroyed,
+                         long borrows, long averageWaitMicros, long timeouts, long validationFailures, long leaksDetected) {
+            this.idle = idle;
+            this.active = active;
+            this.waiting = waiting;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.borrows = borrows;
+            this.averageWaitMicros = averageWaitMicros;
+            this.timeouts = timeouts;
+            this.validationFailures = validationFailures;
+            this.leaksDetected = leaksDetected;
+        }
+
+        @Override
+        public String toString() {
+            return "idle=" + idle + ", active=" + active + ", waiting=" + waiting
+                    + ", size=" + minSize + ".." + maxSize
+                    + ", created=" + created + ", destroyed=" + destroyed
+                    + ", borrows=" + borrows + ", avgWait=" + averageWaitMicros + "us"
+                    + ", timeouts=" + timeouts + ", validationFailures=" + validationFailures
+                    + ", leaks=" + leaksDetected;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.discord.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor that runs blocking JDBC work off the JDA gateway threads.
+ * <p>
+ * The work queue has a hard capacity; once it is full new tasks are rejected and the returned future completes
+ * exceptionally with a {@link RejectedExecutionException} instead of piling up behind a slow database.
+ * Continuations attached to the returned futures run on the database threads, so they must not block.
+ */
+public class DatabaseExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong executionNanos = new AtomicLong();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+    public DatabaseExecutor(String name, int threads, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitNanos.addAndGet(startedAt - enqueuedAt);
+                try {
+                    T result = task.get();
+                    completed.incrementAndGet();
+                    future.complete(result);
+                } catch (Throwable t) {
+                    failed.incrementAndGet();
+                    future.completeExceptionally(t);
+                } finally {
+                    executionNanos.addAndGet(System.nanoTime() - startedAt);
+                }
+            });
+            submitted.incrementAndGet();
+            peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.warn("Database queue full ({} tasks queued); rejecting task", executor.getQueue().size());
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return supplyAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public ExecutorStats getStats() {
+        long finished = completed.get() + failed.get();
+        return new ExecutorStats(
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                peakQueueDepth.get(),
+                queueCapacity,
+                submitted.get(),
+                completed.get(),
+                failed.get(),
+                rejected.get(),
+                finished == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.get()) / finished,
+                finished == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(executionNanos.get()) / finished
+        );
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Database executor did not drain within 30 seconds; {} task(s) dropped.", executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class ExecutorStats {
+        public final int active;
+        public final int queueDepth;
+        public final int peakQueueDepth;
+        public final int queueCapacity;
+        public final long submitted;
+        public final long completed;
+        public final long failed;
+        public final long rejected;
+        public final long averageQueueWaitMicros;
+        public final long averageExecutionMicros;
+
+        public ExecutorStats(int active, int queueDepth, int peakQueueDepth, int queueCapacity, long submitted,
+                             long completed, long failed, long rejected, long averageQueueWaitMicros, long averageExecutionMicros) {
+            this.active = active;
+            this.queueDepth = queueDepth;
+            this.peakQueueDepth = peakQueueDepth;
+            this.queueCapacity = queueCapacity;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.averageQueueWaitMicros = averageQueueWaitMicros;
+            this.averageExecutionMicros = averageExecutionMicros;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", queued=" + queueDepth + "/" + queueCapacity + " (peak " + peakQueueDepth + ")"
+                    + ", submitted=" + submitted + ", completed=" + completed + ", failed=" + failed
+                    + ", rejected=" + rejected + ", avgQueueWait=" + averageQueueWaitMicros + "us"
+                    + ", avgExecution=" + averageExecutionMicros + "us";
+        }
+    }
+}
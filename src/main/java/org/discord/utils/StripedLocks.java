@@ -0,0 +1,62 @@
+package org.discord.utils;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by hashing keys onto them, so work on unrelated keys rarely contends while work on
+ * the same key is serialized. Several keys are locked in stripe order, so callers locking overlapping key sets
+ * cannot deadlock.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] stripes;
+
+    public StripedLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripes of all {@code keys}. Close the returned handle to unlock them.
+     */
+    public Held lock(Collection<String> keys) {
+        int[] indexes = keys.stream().mapToInt(this::stripeFor).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(indexes, locked);
+            throw e;
+        }
+        return new Held(indexes);
+    }
+
+    private int stripeFor(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public final class Held implements AutoCloseable {
+        private final int[] indexes;
+
+        private Held(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            unlock(indexes, indexes.length);
+        }
+    }
+}